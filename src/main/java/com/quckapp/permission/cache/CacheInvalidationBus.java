@@ -0,0 +1,93 @@
+package com.quckapp.permission.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Propagates local-tier invalidations of {@link TwoLevelCache}s between nodes over Redis pub/sub.
+ *
+ * <p>Delivery is best effort: a node that misses a message keeps its local entry until the local
+ * tier's expire-after-write runs out, so that setting bounds how stale a node can be.
+ */
+@Slf4j
+public class CacheInvalidationBus implements MessageListener {
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final String channel;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+    public CacheInvalidationBus(StringRedisTemplate redisTemplate, ObjectMapper objectMapper, String channel) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.channel = channel;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    void register(TwoLevelCache cache) {
+        caches.put(cache.getName(), cache);
+    }
+
+    void publishEvict(String cache, String key) {
+        publish(new Invalidation(nodeId, cache, key));
+    }
+
+    void publishClear(String cache) {
+        publish(new Invalidation(nodeId, cache, null));
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Invalidation invalidation;
+        try {
+            invalidation = objectMapper.readValue(message.getBody(), Invalidation.class);
+        } catch (Exception e) {
+            log.warn("Ignoring malformed cache invalidation: {}", new String(message.getBody(), StandardCharsets.UTF_8));
+            return;
+        }
+        if (nodeId.equals(invalidation.origin())) {
+            return;
+        }
+        TwoLevelCache cache = caches.get(invalidation.cache());
+        if (cache == null) {
+            return;
+        }
+        if (invalidation.key() == null) {
+            cache.clearLocal();
+        } else {
+            cache.evictLocal(invalidation.key());
+        }
+        log.debug("Applied cache invalidation from node {}: cache={}, key={}",
+            invalidation.origin(), invalidation.cache(), invalidation.key());
+    }
+
+    private void publish(Invalidation invalidation) {
+        try {
+            redisTemplate.convertAndSend(channel, objectMapper.writeValueAsString(invalidation));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize cache invalidation", e);
+        } catch (Exception e) {
+            log.warn("Failed to publish cache invalidation for cache={}, key={}: {}",
+                invalidation.cache(), invalidation.key(), e.getMessage());
+        }
+    }
+
+    /**
+     * Wire format of an invalidation; a {@code null} key clears the whole cache.
+     */
+    record Invalidation(String origin, String cache, String key) {
+    }
+}
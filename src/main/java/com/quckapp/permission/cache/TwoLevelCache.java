@@ -0,0 +1,154 @@
+package com.quckapp.permission.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link Cache} with a bounded in-process tier in front of a shared remote (Redis) tier.
+ *
+ * <p>Reads are served from the local tier when possible and fall back to the remote tier, whose
+ * hits are copied locally. Writes and evictions go to the remote tier first, then to the local
+ * tier, and are announced on the {@link CacheInvalidationBus} so every other node drops its local
+ * copy. Local entries are keyed by the key's string form, the same form the remote tier uses.
+ *
+ * <p>The local tier holds the values themselves, so a local hit costs neither a round trip nor a
+ * deserialization; callers share them and must not change them. A value read from the remote
+ * tier is only kept locally if no invalidation of this cache arrived while it was being read,
+ * since it may predate the change invalidated.
+ */
+public class TwoLevelCache implements Cache {
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<String, Object> local;
+    private final Cache remote;
+    private final CacheInvalidationBus invalidationBus;
+    // Bumped before every local invalidation, so a read can tell whether one overlapped it
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public TwoLevelCache(String name, com.github.benmanes.caffeine.cache.Cache<String, Object> local,
+                         Cache remote, CacheInvalidationBus invalidationBus) {
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.invalidationBus = invalidationBus;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return local;
+    }
+
+    public Cache getRemoteCache() {
+        return remote;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String localKey = localKey(key);
+        Object value = local.getIfPresent(localKey);
+        if (value != null) {
+            return new SimpleValueWrapper(value);
+        }
+        long seen = invalidations.get();
+        ValueWrapper wrapper = remote.get(key);
+        if (wrapper != null && wrapper.get() != null) {
+            putLocal(localKey, wrapper.get(), seen);
+        }
+        return wrapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException(
+                "Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String localKey = localKey(key);
+        Object value = local.getIfPresent(localKey);
+        if (value != null) {
+            return (T) value;
+        }
+        long seen = invalidations.get();
+        T loaded = remote.get(key, valueLoader);
+        if (loaded != null) {
+            putLocal(localKey, loaded, seen);
+        }
+        return loaded;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        remote.put(key, value);
+        String localKey = localKey(key);
+        invalidations.incrementAndGet();
+        if (value != null) {
+            local.put(localKey, value);
+        } else {
+            local.invalidate(localKey);
+        }
+        invalidationBus.publishEvict(name, localKey);
+    }
+
+    @Override
+    public void evict(Object key) {
+        String localKey = localKey(key);
+        remote.evict(key);
+        evictLocal(localKey);
+        invalidationBus.publishEvict(name, localKey);
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        clearLocal();
+        invalidationBus.publishClear(name);
+    }
+
+    /**
+     * Drops a local entry on behalf of another node; the remote tier is left alone.
+     */
+    void evictLocal(String key) {
+        invalidations.incrementAndGet();
+        local.invalidate(key);
+    }
+
+    void clearLocal() {
+        invalidations.incrementAndGet();
+        local.invalidateAll();
+    }
+
+    /**
+     * Keeps a value read from the remote tier, unless an invalidation arrived since {@code seen}.
+     */
+    private void putLocal(String localKey, Object value, long seen) {
+        if (invalidations.get() != seen) {
+            return;
+        }
+        local.put(localKey, value);
+        // An invalidation between the check and the put has already run its invalidate; undo the put
+        if (invalidations.get() != seen) {
+            local.invalidate(localKey);
+        }
+    }
+
+    private static String localKey(Object key) {
+        return String.valueOf(key);
+    }
+}
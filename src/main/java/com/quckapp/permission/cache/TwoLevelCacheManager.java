@@ -0,0 +1,72 @@
+package com.quckapp.permission.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.boot.actuate.metrics.cache.RedisCacheMetrics;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCache;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link CacheManager} that decorates every cache of a remote manager with a bounded local tier.
+ *
+ * <p>Both tiers are bound to the {@link MeterRegistry} under the standard {@code cache.*} meters,
+ * tagged {@code tier=local} and {@code tier=remote}; the remote tier only sees local misses, so
+ * the two hit ratios are additive.
+ */
+public class TwoLevelCacheManager implements CacheManager {
+
+    private final CacheManager remoteCacheManager;
+    private final CacheInvalidationBus invalidationBus;
+    private final MeterRegistry meterRegistry;
+    private final long localMaximumSize;
+    private final Duration localExpireAfterWrite;
+    private final Map<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+    public TwoLevelCacheManager(CacheManager remoteCacheManager, CacheInvalidationBus invalidationBus,
+                                MeterRegistry meterRegistry, long localMaximumSize, Duration localExpireAfterWrite) {
+        this.remoteCacheManager = remoteCacheManager;
+        this.invalidationBus = invalidationBus;
+        this.meterRegistry = meterRegistry;
+        this.localMaximumSize = localMaximumSize;
+        this.localExpireAfterWrite = localExpireAfterWrite;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        TwoLevelCache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache remote = remoteCacheManager.getCache(name);
+        return remote == null ? null : caches.computeIfAbsent(name, n -> createCache(n, remote));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return remoteCacheManager.getCacheNames();
+    }
+
+    private TwoLevelCache createCache(String name, Cache remote) {
+        com.github.benmanes.caffeine.cache.Cache<String, Object> local = Caffeine.newBuilder()
+            .maximumSize(localMaximumSize)
+            .expireAfterWrite(localExpireAfterWrite)
+            .recordStats()
+            .build();
+        TwoLevelCache cache = new TwoLevelCache(name, local, remote, invalidationBus);
+        invalidationBus.register(cache);
+
+        CaffeineCacheMetrics.monitor(meterRegistry, local, name, Tags.of("tier", "local"));
+        if (remote instanceof RedisCache redisCache) {
+            new RedisCacheMetrics(redisCache, Tags.of("tier", "remote")).bindTo(meterRegistry);
+        }
+        return cache;
+    }
+}
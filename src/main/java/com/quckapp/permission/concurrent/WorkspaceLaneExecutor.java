@@ -0,0 +1,243 @@
+package com.quckapp.permission.concurrent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs tasks on virtual threads, those submitted under the same key (a workspace, say) one at a
+ * time in submission order and tasks of different keys concurrently. Tasks without a key run
+ * concurrently with everything.
+ *
+ * <p>At most {@code capacity} tasks are queued or running at once. Past that, a submission either
+ * waits up to the block timeout for room, holding back its caller, or is rejected at once,
+ * depending on the {@link Overflow} policy; both end in a {@link RejectedExecutionException}.
+ *
+ * <p>Publishes, tagged with the executor's name, the tasks queued or running
+ * ({@code permission.executor.queue.depth}), the keys with queued tasks
+ * ({@code permission.executor.lanes}), the time from submission to start
+ * ({@code permission.executor.wait}) and the rejected submissions
+ * ({@code permission.executor.rejections}).
+ */
+@Slf4j
+public class WorkspaceLaneExecutor implements Executor, AutoCloseable {
+
+    /**
+     * What a submission does when the executor is full.
+     */
+    public enum Overflow {
+        /** Wait for room, up to the block timeout. */
+        BLOCK,
+        /** Reject at once. */
+        ABORT
+    }
+
+    private final String name;
+    private final int capacity;
+    private final Overflow overflow;
+    private final Duration blockTimeout;
+    private final Semaphore room;
+    private final ExecutorService threads;
+    // Per key, its queued tasks; the head is the one running. A key is absent when its lane is idle.
+    private final Map<Object, ArrayDeque<Task>> lanes = new ConcurrentHashMap<>();
+    private final Timer waits;
+    private final Counter rejections;
+
+    public WorkspaceLaneExecutor(String name, int capacity, Overflow overflow, Duration blockTimeout,
+                                 MeterRegistry meterRegistry) {
+        this.name = name;
+        this.capacity = capacity;
+        this.overflow = overflow;
+        this.blockTimeout = blockTimeout;
+        this.room = new Semaphore(capacity);
+        this.threads = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+        Gauge.builder("permission.executor.queue.depth", this, WorkspaceLaneExecutor::depth)
+            .description("Tasks queued or running")
+            .tag("executor", name)
+            .register(meterRegistry);
+        Gauge.builder("permission.executor.lanes", lanes, Map::size)
+            .description("Keys with tasks queued or running")
+            .tag("executor", name)
+            .register(meterRegistry);
+        waits = Timer.builder("permission.executor.wait")
+            .description("Time from a task being submitted to it starting")
+            .tag("executor", name)
+            .register(meterRegistry);
+        rejections = Counter.builder("permission.executor.rejections")
+            .description("Tasks rejected because the executor was full")
+            .tag("executor", name)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Runs a task concurrently with all others.
+     */
+    @Override
+    public void execute(Runnable command) {
+        admit();
+        start(new Task(command)::run);
+    }
+
+    /**
+     * Runs a task after every task submitted earlier under the same key.
+     */
+    public void execute(Object key, Runnable command) {
+        admit();
+        Task task = new Task(command);
+        List<ArrayDeque<Task>> started = new ArrayList<>(1);
+        lanes.compute(key, (k, queue) -> {
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                started.add(queue);
+            }
+            queue.add(task);
+            return queue;
+        });
+        if (!started.isEmpty()) {
+            try {
+                start(() -> drain(key));
+            } catch (RejectedExecutionException e) {
+                retire(key, started.get(0));
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Drops a lane no thread will drain, the executor having shut down as it started. Tasks queued
+     * behind the first meanwhile were accepted, so they are rejected here rather than lost silently.
+     */
+    private void retire(Object key, ArrayDeque<Task> queue) {
+        // Only this lane's starter removes it, and no task is added to it once it is removed
+        if (!lanes.remove(key, queue)) {
+            return;
+        }
+        int dropped = queue.size() - 1;
+        if (dropped > 0) {
+            room.release(dropped);
+            rejections.increment(dropped);
+            log.warn("Executor {} shut down; rejected {} tasks queued under {}", name, dropped, key);
+        }
+    }
+
+    /**
+     * An executor that submits under one key, e.g. for {@code @Async} methods that must not overlap.
+     */
+    public Executor lane(Object key) {
+        return command -> execute(key, command);
+    }
+
+    /**
+     * Tasks queued or running.
+     */
+    public int depth() {
+        return capacity - room.availablePermits();
+    }
+
+    /**
+     * Whether the executor has been closed, after which it rejects every task.
+     */
+    public boolean isShutdown() {
+        return threads.isShutdown();
+    }
+
+    private void admit() {
+        boolean admitted = switch (overflow) {
+            case ABORT -> room.tryAcquire();
+            case BLOCK -> {
+                try {
+                    yield room.tryAcquire(blockTimeout.toNanos(), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    yield false;
+                }
+            }
+        };
+        if (!admitted) {
+            rejections.increment();
+            throw new RejectedExecutionException("Executor " + name + " is full with " + capacity + " tasks");
+        }
+    }
+
+    private void start(Runnable runnable) {
+        try {
+            threads.execute(runnable);
+        } catch (RejectedExecutionException e) {
+            // Shut down
+            room.release();
+            throw e;
+        }
+    }
+
+    private void drain(Object key) {
+        Task task = next(key, false);
+        while (task != null) {
+            task.run();
+            task = next(key, true);
+        }
+    }
+
+    /**
+     * The lane's next task, removing the one that just ran; retires the lane when it is empty.
+     */
+    private Task next(Object key, boolean ranHead) {
+        Task[] next = new Task[1];
+        lanes.computeIfPresent(key, (k, queue) -> {
+            if (ranHead) {
+                queue.poll();
+            }
+            next[0] = queue.peek();
+            return next[0] == null ? null : queue;
+        });
+        return next[0];
+    }
+
+    @Override
+    public void close() {
+        threads.shutdown();
+        try {
+            if (!threads.awaitTermination(blockTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("Executor {} shut down with {} tasks still queued or running", name, depth());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final class Task {
+
+        private final Runnable command;
+        private final long submittedAt = System.nanoTime();
+
+        Task(Runnable command) {
+            this.command = command;
+        }
+
+        void run() {
+            waits.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+            try {
+                command.run();
+            } catch (RuntimeException | Error e) {
+                // Must not stop the lane: its later tasks still run
+                log.error("Task on executor {} failed", name, e);
+            } finally {
+                room.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.quckapp.permission.config;
+
+import com.quckapp.permission.concurrent.WorkspaceLaneExecutor;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+ * The one executor for work taken off the caller's thread: {@code @Async} methods and the
+ * replication consumer's per-workspace lanes share its bound, so that a burst of either cannot
+ * queue up without limit.
+ */
+@Configuration
+@EnableAsync
+@RequiredArgsConstructor
+public class AsyncConfig implements AsyncConfigurer {
+
+    /**
+     * Lane of the {@code @Async("policyReloadExecutor")} reloads, which must not overlap.
+     */
+    public static final String POLICY_RELOAD_LANE = "policy-reload";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.permission.executor.capacity:10000}")
+    private int capacity;
+
+    @Value("${app.permission.executor.overflow:block}")
+    private WorkspaceLaneExecutor.Overflow overflow;
+
+    @Value("${app.permission.executor.block-timeout:PT30S}")
+    private Duration blockTimeout;
+
+    @Bean
+    public WorkspaceLaneExecutor workspaceLaneExecutor() {
+        return new WorkspaceLaneExecutor("permission", capacity, overflow, blockTimeout, meterRegistry);
+    }
+
+    @Bean
+    public Executor policyReloadExecutor(WorkspaceLaneExecutor workspaceLaneExecutor) {
+        return workspaceLaneExecutor.lane(POLICY_RELOAD_LANE);
+    }
+
+    @Override
+    public Executor getAsyncExecutor() {
+        return workspaceLaneExecutor();
+    }
+}
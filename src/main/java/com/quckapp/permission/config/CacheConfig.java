@@ -3,6 +3,10 @@ package com.quckapp.permission.config;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.quckapp.permission.cache.CacheInvalidationBus;
+import com.quckapp.permission.cache.TwoLevelCacheManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
@@ -10,6 +14,9 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 
@@ -21,8 +28,33 @@ import java.util.Map;
 @EnableCaching
 public class CacheConfig {
 
+    @Value("${app.cache.local.maximum-size:10000}")
+    private long localMaximumSize;
+
+    @Value("${app.cache.local.expire-after-write:60s}")
+    private Duration localExpireAfterWrite;
+
+    @Value("${app.cache.invalidation-channel:permission-service:cache-invalidation}")
+    private String invalidationChannel;
+
+    @Bean
+    public CacheInvalidationBus cacheInvalidationBus(StringRedisTemplate redisTemplate) {
+        return new CacheInvalidationBus(redisTemplate, new ObjectMapper(), invalidationChannel);
+    }
+
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(
+            RedisConnectionFactory connectionFactory, CacheInvalidationBus invalidationBus) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(invalidationBus, new ChannelTopic(invalidationBus.getChannel()));
+        return container;
+    }
+
+    @Bean
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory,
+                                     CacheInvalidationBus invalidationBus,
+                                     MeterRegistry meterRegistry) {
         // Create ObjectMapper with Java 8 date/time support
         ObjectMapper objectMapper = new ObjectMapper();
         objectMapper.registerModule(new JavaTimeModule());
@@ -32,12 +64,12 @@ public class CacheConfig {
             ObjectMapper.DefaultTyping.NON_FINAL
         );
 
+        GenericJackson2JsonRedisSerializer valueSerializer = new GenericJackson2JsonRedisSerializer(objectMapper);
+
         RedisCacheConfiguration defaultConfig = RedisCacheConfiguration.defaultCacheConfig()
             .entryTtl(Duration.ofMinutes(30))
             .serializeValuesWith(
-                RedisSerializationContext.SerializationPair.fromSerializer(
-                    new GenericJackson2JsonRedisSerializer(objectMapper)
-                )
+                RedisSerializationContext.SerializationPair.fromSerializer(valueSerializer)
             )
             .disableCachingNullValues();
 
@@ -49,9 +81,16 @@ public class CacheConfig {
         // User permissions cache - shorter TTL for quicker updates
         cacheConfigurations.put("userPermissions", defaultConfig.entryTtl(Duration.ofMinutes(15)));
 
-        return RedisCacheManager.builder(connectionFactory)
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
             .cacheDefaults(defaultConfig)
             .withInitialCacheConfigurations(cacheConfigurations)
+            .enableStatistics()
             .build();
+        redisCacheManager.afterPropertiesSet();
+
+        // Bounded per-node tier in front of Redis; kept well below the Redis TTLs so a missed
+        // invalidation only leaves a node stale for a short while
+        return new TwoLevelCacheManager(redisCacheManager, invalidationBus, meterRegistry,
+            localMaximumSize, localExpireAfterWrite);
     }
 }
@@ -1,10 +1,12 @@
 package com.quckapp.permission.controller;
 
 import com.quckapp.permission.dto.PermissionDtos.ApiResponse;
+import com.quckapp.permission.policy.SnapshotEnforcer;
 import com.quckapp.permission.service.CasbinPolicySyncService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -20,10 +22,11 @@ public class AdminController {
     private final CasbinPolicySyncService casbinPolicySyncService;
 
     @PostMapping("/casbin/reload")
-    @Operation(summary = "Reload Casbin policies from database")
+    @Operation(summary = "Reload Casbin policies from database in the background")
     public ResponseEntity<ApiResponse<Void>> reloadCasbinPolicies() {
         casbinPolicySyncService.reloadPolicies();
-        return ResponseEntity.ok(ApiResponse.success("Casbin policies reloaded", null));
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+            .body(ApiResponse.success("Casbin policy reload started", null));
     }
 
     @PostMapping("/casbin/sync")
@@ -36,9 +39,10 @@ public class AdminController {
     @GetMapping("/casbin/policies")
     @Operation(summary = "Get all Casbin policies (debug)")
     public ResponseEntity<ApiResponse<Map<String, Object>>> getCasbinPolicies() {
+        SnapshotEnforcer.Rows rules = casbinPolicySyncService.getAllRules();
         Map<String, Object> policies = new HashMap<>();
-        policies.put("policies", casbinPolicySyncService.getAllPolicies());
-        policies.put("groupings", casbinPolicySyncService.getAllGroupingPolicies());
+        policies.put("policies", rules.policies());
+        policies.put("groupings", rules.groupings());
         return ResponseEntity.ok(ApiResponse.success(policies));
     }
 }
@@ -23,4 +23,11 @@ public class PermissionCheckController {
             @Valid @RequestBody CheckPermissionRequest request) {
         return ResponseEntity.ok(ApiResponse.success(permissionService.checkPermission(request)));
     }
+
+    @PostMapping("/batch")
+    @Operation(summary = "Check many permissions in one call", description = "Results are returned in request order")
+    public ResponseEntity<ApiResponse<BatchPermissionCheckResponse>> checkPermissions(
+            @Valid @RequestBody BatchCheckPermissionRequest request) {
+        return ResponseEntity.ok(ApiResponse.success(permissionService.checkPermissions(request)));
+    }
 }
@@ -2,6 +2,7 @@ package com.quckapp.permission.controller;
 
 import com.quckapp.permission.dto.PermissionDtos.*;
 import com.quckapp.permission.service.PermissionService;
+import com.quckapp.permission.service.PolicyGenerations;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -24,8 +25,10 @@ public class RoleController {
     @PostMapping
     @Operation(summary = "Create a new role")
     public ResponseEntity<ApiResponse<RoleResponse>> createRole(@Valid @RequestBody CreateRoleRequest request) {
+        RoleResponse role = permissionService.createRole(request);
         return ResponseEntity.status(HttpStatus.CREATED)
-            .body(ApiResponse.success("Role created", permissionService.createRole(request)));
+            .header(PolicyGenerations.HEADER, String.valueOf(role.getPolicyGeneration()))
+            .body(ApiResponse.success("Role created", role));
     }
 
     @GetMapping("/{id}")
@@ -45,13 +48,18 @@ public class RoleController {
     public ResponseEntity<ApiResponse<RoleResponse>> updateRole(
             @PathVariable UUID id,
             @Valid @RequestBody UpdateRoleRequest request) {
-        return ResponseEntity.ok(ApiResponse.success("Role updated", permissionService.updateRole(id, request)));
+        RoleResponse role = permissionService.updateRole(id, request);
+        return ResponseEntity.ok()
+            .header(PolicyGenerations.HEADER, String.valueOf(role.getPolicyGeneration()))
+            .body(ApiResponse.success("Role updated", role));
     }
 
     @DeleteMapping("/{id}")
     @Operation(summary = "Delete role")
     public ResponseEntity<ApiResponse<Void>> deleteRole(@PathVariable UUID id) {
-        permissionService.deleteRole(id);
-        return ResponseEntity.ok(ApiResponse.success("Role deleted", null));
+        long generation = permissionService.deleteRole(id);
+        return ResponseEntity.ok()
+            .header(PolicyGenerations.HEADER, String.valueOf(generation))
+            .body(ApiResponse.success("Role deleted", null));
     }
 }
@@ -2,6 +2,7 @@ package com.quckapp.permission.controller;
 
 import com.quckapp.permission.dto.PermissionDtos.*;
 import com.quckapp.permission.service.PermissionService;
+import com.quckapp.permission.service.PolicyGenerations;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -25,8 +26,10 @@ public class UserRoleController {
     public ResponseEntity<ApiResponse<UserRoleResponse>> assignRole(
             @Valid @RequestBody AssignRoleRequest request,
             @RequestHeader(value = "X-User-Id", required = false) UUID grantedBy) {
+        UserRoleResponse userRole = permissionService.assignRole(request, grantedBy);
         return ResponseEntity.status(HttpStatus.CREATED)
-            .body(ApiResponse.success("Role assigned", permissionService.assignRole(request, grantedBy)));
+            .header(PolicyGenerations.HEADER, String.valueOf(userRole.getPolicyGeneration()))
+            .body(ApiResponse.success("Role assigned", userRole));
     }
 
     @DeleteMapping("/user/{userId}/role/{roleId}/workspace/{workspaceId}")
@@ -35,8 +38,10 @@ public class UserRoleController {
             @PathVariable UUID userId,
             @PathVariable UUID roleId,
             @PathVariable UUID workspaceId) {
-        permissionService.revokeRole(userId, roleId, workspaceId);
-        return ResponseEntity.ok(ApiResponse.success("Role revoked", null));
+        long generation = permissionService.revokeRole(userId, roleId, workspaceId);
+        return ResponseEntity.ok()
+            .header(PolicyGenerations.HEADER, String.valueOf(generation))
+            .body(ApiResponse.success("Role revoked", null));
     }
 
     @GetMapping("/user/{userId}/workspace/{workspaceId}")
@@ -0,0 +1,39 @@
+package com.quckapp.permission.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A permission event waiting to be relayed to Kafka, written in the same transaction as the
+ * change it describes so that it is published if and only if the change commits. Deleted once
+ * the broker has acknowledged it.
+ */
+@Entity
+@Table(name = "permission_event_outbox")
+@EntityListeners(AuditingEntityListener.class)
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "workspace_id", nullable = false)
+    private UUID workspaceId;
+
+    @Column(name = "event_type", nullable = false, length = 32)
+    private String eventType;
+
+    /** The encoded event, as it is sent. */
+    @Column(nullable = false, columnDefinition = "MEDIUMBLOB")
+    private byte[] payload;
+
+    @CreatedDate
+    @Column(name = "created_at", updatable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,50 @@
+package com.quckapp.permission.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One policy change, recorded in the same transaction as the change itself. A node restored from
+ * a policy snapshot replays the changes with a higher id than the snapshot's position.
+ */
+@Entity
+@Table(name = "policy_change_log", indexes = {
+    @Index(name = "idx_policy_change_created", columnList = "created_at")
+})
+@EntityListeners(AuditingEntityListener.class)
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class PolicyChange {
+
+    public enum Kind {
+        /** A role's permissions changed, or the role was deleted. */
+        ROLE,
+        /** A user was granted or revoked a role. */
+        GRANT
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Kind kind;
+
+    @Column(name = "role_id", nullable = false)
+    private UUID roleId;
+
+    @Column(name = "workspace_id", nullable = false)
+    private UUID workspaceId;
+
+    @Column(name = "user_id")
+    private UUID userId;
+
+    @CreatedDate
+    @Column(name = "created_at", updatable = false)
+    private Instant createdAt;
+}
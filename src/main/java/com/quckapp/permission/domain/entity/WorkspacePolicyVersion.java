@@ -0,0 +1,24 @@
+package com.quckapp.permission.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.UUID;
+
+/**
+ * A workspace's policy version, bumped by every policy change of the workspace in the writing
+ * transaction. The bump locks the row until that transaction ends, so the versions of a workspace
+ * commit in the order they were taken: once a version is visible, so is every lower one.
+ */
+@Entity
+@Table(name = "workspace_policy_version")
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class WorkspacePolicyVersion {
+
+    @Id
+    @Column(name = "workspace_id")
+    private UUID workspaceId;
+
+    @Column(nullable = false)
+    private long version;
+}
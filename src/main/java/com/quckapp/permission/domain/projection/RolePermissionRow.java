@@ -0,0 +1,10 @@
+package com.quckapp.permission.domain.projection;
+
+import java.util.UUID;
+
+/**
+ * One {@code role_permissions} row resolved to its role's workspace and the permission's
+ * resource and action, without hydrating either entity.
+ */
+public record RolePermissionRow(UUID roleId, UUID workspaceId, String resource, String action) {
+}
@@ -0,0 +1,9 @@
+package com.quckapp.permission.domain.projection;
+
+import java.util.UUID;
+
+/**
+ * Scalar projection of a {@code user_roles} row: the user holds the role in the workspace.
+ */
+public record UserRoleGrant(UUID userId, UUID roleId, UUID workspaceId) {
+}
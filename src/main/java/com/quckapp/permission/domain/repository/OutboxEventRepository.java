@@ -0,0 +1,36 @@
+package com.quckapp.permission.domain.repository;
+
+import com.quckapp.permission.domain.entity.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Takes or renews the relay lease for {@code owner}, unless another node holds one that has
+     * not expired. Returns 1 if {@code owner} now holds it, 0 otherwise. Runs against the latest
+     * committed lease whatever the isolation level, as an update does.
+     */
+    @Modifying
+    @Query(value = "UPDATE permission_event_outbox_relay_lock"
+        + " SET owner = :owner, lease_until = TIMESTAMPADD(MICROSECOND, :leaseMicros, CURRENT_TIMESTAMP(3))"
+        + " WHERE id = 1 AND (owner IS NULL OR owner = :owner OR lease_until < CURRENT_TIMESTAMP(3))",
+        nativeQuery = true)
+    int claimRelay(@Param("owner") String owner, @Param("leaseMicros") long leaseMicros);
+
+    /**
+     * The oldest events by id, read by the relay holding the lease only. Ids are taken at insert,
+     * not commit, so across workspaces this is not commit order, and an event may commit after
+     * later ids were relayed. Within a workspace it is: its events are inserted while holding the
+     * workspace's policy version row lock, see {@code WorkspacePolicyVersionRepository#increment}.
+     */
+    @Query("SELECT e FROM OutboxEvent e ORDER BY e.id")
+    List<OutboxEvent> findNextBatch(Pageable pageable);
+}
@@ -0,0 +1,25 @@
+package com.quckapp.permission.domain.repository;
+
+import com.quckapp.permission.domain.entity.PolicyChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface PolicyChangeRepository extends JpaRepository<PolicyChange, Long> {
+
+    @Query("SELECT COALESCE(MAX(c.id), 0) FROM PolicyChange c")
+    long findLatestPosition();
+
+    @Query("SELECT c FROM PolicyChange c WHERE c.id > :position OR c.createdAt >= :since ORDER BY c.id")
+    List<PolicyChange> findSince(@Param("position") long position, @Param("since") Instant since);
+
+    @Modifying
+    @Query("DELETE FROM PolicyChange c WHERE c.createdAt < :cutoff")
+    int deleteOlderThan(@Param("cutoff") Instant cutoff);
+}
@@ -1,6 +1,7 @@
 package com.quckapp.permission.domain.repository;
 
 import com.quckapp.permission.domain.entity.Role;
+import com.quckapp.permission.domain.projection.RolePermissionRow;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -22,4 +23,8 @@ public interface RoleRepository extends JpaRepository<Role, UUID> {
 
     @Query("SELECT r FROM Role r LEFT JOIN FETCH r.permissions WHERE r.workspaceId = :workspaceId")
     List<Role> findByWorkspaceIdWithPermissions(@Param("workspaceId") UUID workspaceId);
+
+    @Query("SELECT new com.quckapp.permission.domain.projection.RolePermissionRow(r.id, r.workspaceId, p.resource, p.action) " +
+           "FROM Role r JOIN r.permissions p")
+    List<RolePermissionRow> findAllRolePermissionRows();
 }
@@ -2,13 +2,18 @@ package com.quckapp.permission.domain.repository;
 
 import com.quckapp.permission.domain.entity.UserRole;
 import com.quckapp.permission.domain.entity.UserRoleId;
+import com.quckapp.permission.domain.projection.UserRoleGrant;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRoleRepository extends JpaRepository<UserRole, UserRoleId> {
@@ -21,4 +26,15 @@ public interface UserRoleRepository extends JpaRepository<UserRole, UserRoleId>
 
     @Query("SELECT ur FROM UserRole ur JOIN FETCH ur.role r LEFT JOIN FETCH r.permissions WHERE ur.userId = :userId AND ur.workspaceId = :workspaceId")
     List<UserRole> findByUserIdAndWorkspaceIdWithRoleAndPermissions(@Param("userId") UUID userId, @Param("workspaceId") UUID workspaceId);
+
+    /**
+     * Every grant as a forward-only cursor; with {@code useCursorFetch=true} on the MySQL URL the
+     * driver fetches it in pages of the hinted size instead of buffering the whole table.
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.quckapp.permission.domain.projection.UserRoleGrant(ur.userId, ur.roleId, ur.workspaceId) FROM UserRole ur")
+    Stream<UserRoleGrant> streamAllGrants();
 }
@@ -0,0 +1,27 @@
+package com.quckapp.permission.domain.repository;
+
+import com.quckapp.permission.domain.entity.WorkspacePolicyVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface WorkspacePolicyVersionRepository extends JpaRepository<WorkspacePolicyVersion, UUID> {
+
+    /**
+     * Bumps the workspace's version, creating it at 1, and locks its row until the transaction
+     * ends; concurrent changes of the workspace wait here for this one to commit.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO workspace_policy_version (workspace_id, version) VALUES (:workspaceId, 1) "
+        + "ON DUPLICATE KEY UPDATE version = version + 1", nativeQuery = true)
+    void increment(@Param("workspaceId") UUID workspaceId);
+
+    @Query("SELECT v.version FROM WorkspacePolicyVersion v WHERE v.workspaceId = :workspaceId")
+    Optional<Long> findVersion(@Param("workspaceId") UUID workspaceId);
+}
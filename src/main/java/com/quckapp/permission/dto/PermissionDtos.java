@@ -1,5 +1,7 @@
 package com.quckapp.permission.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.*;
 import lombok.*;
 import java.time.Instant;
@@ -37,6 +39,8 @@ public class PermissionDtos {
         private Set<PermissionResponse> permissions;
         private Instant createdAt;
         private Instant updatedAt;
+        // Set on writes: pass as minGeneration to see the change in later checks
+        @JsonInclude(JsonInclude.Include.NON_NULL) private Long policyGeneration;
     }
 
     @Data @Builder @NoArgsConstructor @AllArgsConstructor
@@ -64,6 +68,7 @@ public class PermissionDtos {
         private UUID channelId;
         private UUID grantedBy;
         private Instant grantedAt;
+        @JsonInclude(JsonInclude.Include.NON_NULL) private Long policyGeneration;
     }
 
     @Data @Builder @NoArgsConstructor @AllArgsConstructor
@@ -73,6 +78,8 @@ public class PermissionDtos {
         @NotBlank private String resource;
         @NotBlank private String action;
         private UUID channelId;
+        // Policy generation returned by an earlier write the check must see, if any
+        @PositiveOrZero private Long minGeneration;
     }
 
     @Data @Builder @NoArgsConstructor @AllArgsConstructor
@@ -81,6 +88,16 @@ public class PermissionDtos {
         private String reason;
     }
 
+    @Data @Builder @NoArgsConstructor @AllArgsConstructor
+    public static class BatchCheckPermissionRequest {
+        @NotEmpty @Size(max = 200) private List<@Valid CheckPermissionRequest> checks;
+    }
+
+    @Data @Builder @NoArgsConstructor @AllArgsConstructor
+    public static class BatchPermissionCheckResponse {
+        private List<PermissionCheckResponse> results;
+    }
+
     @Data @Builder @NoArgsConstructor @AllArgsConstructor
     public static class UserPermissionsResponse {
         private UUID userId;
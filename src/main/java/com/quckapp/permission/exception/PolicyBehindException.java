@@ -0,0 +1,24 @@
+package com.quckapp.permission.exception;
+
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * This node has not applied a policy change a check requires; another node, or a retry, may have.
+ */
+@Getter
+public class PolicyBehindException extends RuntimeException {
+
+    private final UUID workspaceId;
+    private final long requiredGeneration;
+    private final long currentGeneration;
+
+    public PolicyBehindException(UUID workspaceId, long requiredGeneration, long currentGeneration) {
+        super("Policy of workspace " + workspaceId + " is at generation " + currentGeneration
+            + ", check requires " + requiredGeneration);
+        this.workspaceId = workspaceId;
+        this.requiredGeneration = requiredGeneration;
+        this.currentGeneration = currentGeneration;
+    }
+}
@@ -0,0 +1,256 @@
+package com.quckapp.permission.kafka;
+
+import com.quckapp.permission.policy.PolicyRule;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Compact binary format of the permissions topic, written and read field by field. All numbers
+ * are big-endian.
+ *
+ * <pre>
+ * header   version:u8  type:u8  flags:u8  timestamp:i64 (epoch millis)  generation:i64
+ *          workspaceId:uuid  origin:uuid
+ * ROLE_CREATED, ROLE_UPDATED
+ *          roleId:uuid  roleName:str  description:str  priority:i32
+ *          permissions:varint count, then resource:str action:str each
+ * ROLE_DELETED        roleId:uuid  roleName:str
+ * USER_ROLE_ASSIGNED  userId:uuid  roleId:uuid  roleName:str  [channelId:uuid]  [grantedBy:uuid]
+ * USER_ROLE_REVOKED   userId:uuid  roleId:uuid
+ * </pre>
+ *
+ * A uuid is its 16 bytes, most significant first; a str is a varint of its UTF-8 length plus one,
+ * zero standing for null, followed by the bytes. The flags mark a system role and which of the
+ * bracketed fields are present.
+ *
+ * <p>The version byte is never {@code '{'}, so a payload in this format is told apart from a
+ * {@link JsonEventCodec JSON} one by its first byte. A change to the layout takes a new version,
+ * and readers keep decoding the old ones.
+ */
+public class BinaryEventCodec implements PermissionEventCodec {
+
+    public static final byte VERSION = 1;
+
+    private static final int SYSTEM = 1;
+    private static final int CHANNEL = 1 << 1;
+    private static final int GRANTED_BY = 1 << 2;
+    private static final int HEADER_BYTES = 3 + 8 + 8 + 16 + 16;
+
+    /**
+     * Whether a payload is in this format rather than JSON.
+     */
+    public static boolean isBinary(byte[] payload) {
+        return payload.length > 0 && payload[0] == VERSION;
+    }
+
+    @Override
+    public byte[] encode(PermissionEvent event) {
+        Writer out = new Writer(HEADER_BYTES + 64);
+        out.writeByte(VERSION);
+        out.writeByte(event.type().code());
+        out.writeByte(flags(event));
+        out.writeLong(event.timestamp());
+        out.writeLong(event.generation());
+        out.writeUuid(event.workspaceId());
+        out.writeUuid(event.origin());
+        switch (event.type()) {
+            case ROLE_CREATED, ROLE_UPDATED -> {
+                out.writeUuid(event.roleId());
+                out.writeString(event.roleName());
+                out.writeString(event.description());
+                out.writeInt(event.priority());
+                out.writeVarInt(event.permissions().size());
+                for (PolicyRule rule : event.permissions()) {
+                    out.writeString(rule.resource());
+                    out.writeString(rule.action());
+                }
+            }
+            case ROLE_DELETED -> {
+                out.writeUuid(event.roleId());
+                out.writeString(event.roleName());
+            }
+            case USER_ROLE_ASSIGNED -> {
+                out.writeUuid(event.userId());
+                out.writeUuid(event.roleId());
+                out.writeString(event.roleName());
+                if (event.channelId() != null) {
+                    out.writeUuid(event.channelId());
+                }
+                if (event.grantedBy() != null) {
+                    out.writeUuid(event.grantedBy());
+                }
+            }
+            case USER_ROLE_REVOKED -> {
+                out.writeUuid(event.userId());
+                out.writeUuid(event.roleId());
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static int flags(PermissionEvent event) {
+        int flags = 0;
+        if (event.system()) {
+            flags |= SYSTEM;
+        }
+        if (event.channelId() != null) {
+            flags |= CHANNEL;
+        }
+        if (event.grantedBy() != null) {
+            flags |= GRANTED_BY;
+        }
+        return flags;
+    }
+
+    @Override
+    public PermissionEvent decode(byte[] payload) {
+        ByteBuffer in = ByteBuffer.wrap(payload);
+        try {
+            int version = in.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported permission event version " + version);
+            }
+            PermissionEvent.Type type = PermissionEvent.Type.ofCode(in.get());
+            int flags = in.get();
+            PermissionEvent.PermissionEventBuilder event = PermissionEvent.builder()
+                .type(type)
+                .system((flags & SYSTEM) != 0)
+                .timestamp(in.getLong())
+                .generation(in.getLong())
+                .workspaceId(readUuid(in))
+                .origin(readUuid(in));
+            switch (type) {
+                case ROLE_CREATED, ROLE_UPDATED -> {
+                    event.roleId(readUuid(in))
+                        .roleName(readString(in))
+                        .description(readString(in))
+                        .priority(in.getInt());
+                    int count = readVarInt(in);
+                    List<PolicyRule> permissions = new ArrayList<>(Math.min(count, in.remaining() / 2));
+                    for (int i = 0; i < count; i++) {
+                        permissions.add(new PolicyRule(readString(in), readString(in)));
+                    }
+                    event.permissions(permissions);
+                }
+                case ROLE_DELETED -> event.roleId(readUuid(in)).roleName(readString(in));
+                case USER_ROLE_ASSIGNED -> {
+                    event.userId(readUuid(in)).roleId(readUuid(in)).roleName(readString(in));
+                    if ((flags & CHANNEL) != 0) {
+                        event.channelId(readUuid(in));
+                    }
+                    if ((flags & GRANTED_BY) != 0) {
+                        event.grantedBy(readUuid(in));
+                    }
+                }
+                case USER_ROLE_REVOKED -> event.userId(readUuid(in)).roleId(readUuid(in));
+            }
+            return event.build();
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated permission event", e);
+        }
+    }
+
+    private static UUID readUuid(ByteBuffer in) {
+        return new UUID(in.getLong(), in.getLong());
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = readVarInt(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in permission event");
+    }
+
+    /**
+     * Growable big-endian byte sink; unlike a {@code DataOutputStream} it copies nothing but the
+     * final array.
+     */
+    private static final class Writer {
+
+        private byte[] buf;
+        private int pos;
+
+        Writer(int capacity) {
+            buf = new byte[capacity];
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            buf[pos++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            ensure(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                buf[pos++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buf[pos++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeUuid(UUID value) {
+            writeLong(value.getMostSignificantBits());
+            writeLong(value.getLeastSignificantBits());
+        }
+
+        void writeVarInt(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[pos++] = (byte) value;
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarInt(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length + 1);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+        }
+
+        private void ensure(int bytes) {
+            if (pos + bytes > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + bytes));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.quckapp.permission.kafka;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quckapp.permission.policy.PolicyRule;
+import lombok.RequiredArgsConstructor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The original JSON format of the permissions topic: an envelope with the event's fields nested
+ * under {@code data}, UUIDs as strings and an ISO-8601 timestamp. Consumers outside this service
+ * read it, so its shape does not change.
+ */
+@RequiredArgsConstructor
+public class JsonEventCodec implements PermissionEventCodec {
+
+    /** The envelope's version, sent in a header; it stays 1 as long as the shape does not change. */
+    public static final byte VERSION = 1;
+
+    private static final String SOURCE = "permission-service";
+
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public byte[] encode(PermissionEvent event) {
+        Map<String, Object> envelope = new HashMap<>();
+        envelope.put("eventType", event.type().name());
+        envelope.put("workspaceId", event.workspaceId().toString());
+        envelope.put("data", data(event));
+        envelope.put("timestamp", Instant.ofEpochMilli(event.timestamp()).toString());
+        envelope.put("source", SOURCE);
+        envelope.put("origin", event.origin().toString());
+        envelope.put("generation", event.generation());
+        try {
+            return objectMapper.writeValueAsBytes(envelope);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException("Failed to serialize " + event.type() + " event", e);
+        }
+    }
+
+    private static Map<String, Object> data(PermissionEvent event) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("workspaceId", event.workspaceId().toString());
+        switch (event.type()) {
+            case ROLE_CREATED, ROLE_UPDATED -> {
+                data.put("roleId", event.roleId().toString());
+                data.put("roleName", event.roleName());
+                data.put("description", event.description());
+                if (event.type() == PermissionEvent.Type.ROLE_CREATED) {
+                    data.put("isSystem", event.system());
+                }
+                data.put("priority", event.priority());
+                List<Map<String, String>> permissions = new ArrayList<>(event.permissions().size());
+                for (PolicyRule rule : event.permissions()) {
+                    permissions.add(Map.of("resource", rule.resource(), "action", rule.action()));
+                }
+                data.put("permissions", permissions);
+            }
+            case ROLE_DELETED -> {
+                data.put("roleId", event.roleId().toString());
+                data.put("roleName", event.roleName());
+            }
+            case USER_ROLE_ASSIGNED -> {
+                data.put("userId", event.userId().toString());
+                data.put("roleId", event.roleId().toString());
+                data.put("roleName", event.roleName());
+                if (event.channelId() != null) {
+                    data.put("channelId", event.channelId().toString());
+                }
+                if (event.grantedBy() != null) {
+                    data.put("grantedBy", event.grantedBy().toString());
+                }
+            }
+            case USER_ROLE_REVOKED -> {
+                data.put("userId", event.userId().toString());
+                data.put("roleId", event.roleId().toString());
+            }
+        }
+        return data;
+    }
+
+    @Override
+    public PermissionEvent decode(byte[] payload) {
+        JsonNode envelope;
+        try {
+            envelope = objectMapper.readTree(payload);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Permission event is not JSON", e);
+        }
+        JsonNode data = envelope.path("data");
+        try {
+            return PermissionEvent.builder()
+                .type(PermissionEvent.Type.valueOf(envelope.path("eventType").asText()))
+                .workspaceId(uuid(envelope, "workspaceId"))
+                .timestamp(timestamp(envelope))
+                .origin(uuid(envelope, "origin"))
+                .generation(envelope.path("generation").asLong())
+                .roleId(uuid(data, "roleId"))
+                .userId(uuid(data, "userId"))
+                .roleName(text(data, "roleName"))
+                .description(text(data, "description"))
+                .system(data.path("isSystem").asBoolean())
+                .priority(data.path("priority").asInt())
+                .channelId(uuid(data, "channelId"))
+                .grantedBy(uuid(data, "grantedBy"))
+                .permissions(data.has("permissions") ? rules(data.get("permissions")) : null)
+                .build();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Permission event has a malformed timestamp", e);
+        }
+    }
+
+    private static long timestamp(JsonNode envelope) {
+        return envelope.hasNonNull("timestamp") ? Instant.parse(envelope.get("timestamp").asText()).toEpochMilli() : 0;
+    }
+
+    private static List<PolicyRule> rules(JsonNode permissions) {
+        List<PolicyRule> rules = new ArrayList<>(permissions.size());
+        for (JsonNode permission : permissions) {
+            rules.add(new PolicyRule(permission.path("resource").asText(), permission.path("action").asText()));
+        }
+        return rules;
+    }
+
+    private static UUID uuid(JsonNode node, String field) {
+        return node.hasNonNull(field) ? UUID.fromString(node.get(field).asText()) : null;
+    }
+
+    private static String text(JsonNode node, String field) {
+        return node.hasNonNull(field) ? node.get(field).asText() : null;
+    }
+}
@@ -0,0 +1,133 @@
+package com.quckapp.permission.kafka;
+
+import com.quckapp.permission.domain.entity.OutboxEvent;
+import com.quckapp.permission.domain.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Sends the events {@link PermissionEventPublisher} wrote to the outbox on to Kafka, oldest
+ * first, a batch at a time, with the {@linkplain PermissionEventSerde#headers headers} naming
+ * each one's format. The batch is handed to the producer in one go, so that it leaves in
+ * as few requests as the producer's batching allows, and an event is deleted only once the
+ * broker has acknowledged it. One node relays at a time: it holds a lease on the relay lock row,
+ * renewed by every run, and runs on other nodes skip until it expires. No transaction is open
+ * while a batch is sent: the lease is claimed and the batch read in one, the delivered events
+ * deleted in another.
+ *
+ * <p>When an event of a workspace fails, the later events of that workspace in the batch are kept
+ * as well, and all are sent again in order on the next run. Those of them that went through the
+ * first time are then seen twice, the second time after the failed, older one. Every event
+ * carries the resulting state of what it changed, so a consumer that applies them in the order
+ * received still ends up at each workspace's latest state.
+ */
+@Component
+@ConditionalOnProperty(name = "app.permission.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final PermissionEventSerde serde;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+    private final String owner = UUID.randomUUID().toString();
+
+    @Value("${app.kafka.topics.permission-events:quckapp.permissions.events}")
+    private String permissionEventsTopic;
+
+    @Value("${app.permission.outbox.relay.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.permission.outbox.relay.send-timeout:PT10S}")
+    private Duration sendTimeout;
+
+    @Value("${app.permission.outbox.relay.lease:PT30S}")
+    private Duration lease;
+
+    @Scheduled(fixedDelayString = "${app.permission.outbox.relay.interval:PT0.2S}")
+    public void relay() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        List<OutboxEvent> batch = transaction.execute(status -> {
+            if (outboxEventRepository.claimRelay(owner, lease.toNanos() / 1_000) == 0) {
+                log.debug("Outbox relay is running on another node");
+                return List.of();
+            }
+            return outboxEventRepository.findNextBatch(PageRequest.of(0, batchSize));
+        });
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+        List<CompletableFuture<?>> sends = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            sends.add(kafkaTemplate.send(new ProducerRecord<>(permissionEventsTopic, null,
+                event.getWorkspaceId().toString(), event.getPayload(), serde.headers(event.getPayload()))));
+        }
+        kafkaTemplate.flush();
+
+        long deadline = System.nanoTime() + sendTimeout.toNanos();
+        Set<UUID> blocked = new HashSet<>();
+        List<Long> delivered = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            OutboxEvent event = batch.get(i);
+            if (!blocked.contains(event.getWorkspaceId()) && acknowledged(event, sends.get(i), deadline)) {
+                delivered.add(event.getId());
+            } else {
+                blocked.add(event.getWorkspaceId());
+            }
+        }
+        if (!delivered.isEmpty()) {
+            transaction.executeWithoutResult(status -> outboxEventRepository.deleteAllByIdInBatch(delivered));
+        }
+        count("delivered", delivered.size());
+        count("retried", batch.size() - delivered.size());
+        log.debug("Relayed {} of {} permission events", delivered.size(), batch.size());
+    }
+
+    private boolean acknowledged(OutboxEvent event, CompletableFuture<?> send, long deadline) {
+        try {
+            send.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("Failed to publish {} event {} of workspace {}; retrying", event.getEventType(), event.getId(),
+                event.getWorkspaceId(), e);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void count(String outcome, int events) {
+        if (events > 0) {
+            Counter.builder("permission.events.outbox.relayed")
+                .description("Permission events sent from the outbox, by whether they are done or sent again")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment(events);
+        }
+    }
+}
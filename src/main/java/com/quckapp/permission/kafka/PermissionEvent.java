@@ -0,0 +1,65 @@
+package com.quckapp.permission.kafka;
+
+import com.quckapp.permission.policy.PolicyRule;
+import lombok.Builder;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A permission change as published on the permissions topic, independent of its wire format.
+ * Which of the fields are set depends on the type: role events carry the role, and grant events
+ * the user and role; the envelope fields are always set.
+ *
+ * @param timestamp  when the change was made, in epoch millis
+ * @param origin     the node that made the change
+ * @param generation the change's policy generation
+ */
+@Builder
+public record PermissionEvent(
+    Type type,
+    UUID workspaceId,
+    long timestamp,
+    UUID origin,
+    long generation,
+    UUID roleId,
+    UUID userId,
+    String roleName,
+    String description,
+    boolean system,
+    int priority,
+    UUID channelId,
+    UUID grantedBy,
+    List<PolicyRule> permissions
+) {
+
+    /**
+     * Event types, with the code that stands for each in the binary format; codes are never reused.
+     */
+    public enum Type {
+        ROLE_CREATED(1),
+        ROLE_UPDATED(2),
+        ROLE_DELETED(3),
+        USER_ROLE_ASSIGNED(4),
+        USER_ROLE_REVOKED(5);
+
+        private final int code;
+
+        Type(int code) {
+            this.code = code;
+        }
+
+        public int code() {
+            return code;
+        }
+
+        public static Type ofCode(int code) {
+            for (Type type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            throw new IllegalArgumentException("Unknown permission event type " + code);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.quckapp.permission.kafka;
+
+/**
+ * A wire format of {@link PermissionEvent}s.
+ */
+public interface PermissionEventCodec {
+
+    byte[] encode(PermissionEvent event);
+
+    /**
+     * @throws IllegalArgumentException if the payload is not a valid event in this format
+     */
+    PermissionEvent decode(byte[] payload);
+}
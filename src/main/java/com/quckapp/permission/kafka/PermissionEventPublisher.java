@@ -1,105 +1,109 @@
 package com.quckapp.permission.kafka;
 
+import com.quckapp.permission.domain.entity.OutboxEvent;
+import com.quckapp.permission.domain.entity.Permission;
 import com.quckapp.permission.domain.entity.Role;
 import com.quckapp.permission.domain.entity.UserRole;
+import com.quckapp.permission.domain.repository.OutboxEventRepository;
+import com.quckapp.permission.policy.PolicyRule;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.time.Instant;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
+/**
+ * Publishes permission changes keyed by workspace, so that they are ordered per workspace. Role
+ * events carry the role's full permission set and every event the id of the node that made the
+ * change and its policy generation, for {@link PolicyChangeConsumer} on the other nodes to apply.
+ *
+ * <p>Events go to the outbox in the transaction of the change, which {@link OutboxRelay} sends
+ * on once committed: an event is published at least once if its change commits, and never if it
+ * rolls back.
+ */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class PermissionEventPublisher {
 
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final OutboxEventRepository outboxEventRepository;
+    private final PermissionEventSerde serde;
+    private final UUID origin = UUID.randomUUID();
+    @Getter
+    private final String nodeId = origin.toString();
 
-    @Value("${app.kafka.topics.permission-events:quckapp.permissions.events}")
-    private String permissionEventsTopic;
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publishRoleCreated(Role role, long generation) {
+        publishEvent(roleEvent(PermissionEvent.Type.ROLE_CREATED, role, generation)
+            .system(role.isSystem())
+            .build());
+    }
 
-    @Async
-    public void publishRoleCreated(Role role) {
-        Map<String, Object> data = new HashMap<>();
-        data.put("roleId", role.getId().toString());
-        data.put("workspaceId", role.getWorkspaceId().toString());
-        data.put("roleName", role.getName());
-        data.put("description", role.getDescription());
-        data.put("isSystem", role.isSystem());
-        data.put("priority", role.getPriority());
-        publishEvent("ROLE_CREATED", role.getWorkspaceId(), data);
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publishRoleUpdated(Role role, long generation) {
+        publishEvent(roleEvent(PermissionEvent.Type.ROLE_UPDATED, role, generation).build());
     }
 
-    @Async
-    public void publishRoleUpdated(Role role) {
-        Map<String, Object> data = new HashMap<>();
-        data.put("roleId", role.getId().toString());
-        data.put("workspaceId", role.getWorkspaceId().toString());
-        data.put("roleName", role.getName());
-        data.put("description", role.getDescription());
-        data.put("priority", role.getPriority());
-        publishEvent("ROLE_UPDATED", role.getWorkspaceId(), data);
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publishRoleDeleted(UUID roleId, UUID workspaceId, String roleName, long generation) {
+        publishEvent(event(PermissionEvent.Type.ROLE_DELETED, workspaceId, generation)
+            .roleId(roleId)
+            .roleName(roleName)
+            .build());
     }
 
-    @Async
-    public void publishRoleDeleted(UUID roleId, UUID workspaceId, String roleName) {
-        Map<String, Object> data = new HashMap<>();
-        data.put("roleId", roleId.toString());
-        data.put("workspaceId", workspaceId.toString());
-        data.put("roleName", roleName);
-        publishEvent("ROLE_DELETED", workspaceId, data);
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publishUserRoleAssigned(UserRole userRole, String roleName, long generation) {
+        publishEvent(event(PermissionEvent.Type.USER_ROLE_ASSIGNED, userRole.getWorkspaceId(), generation)
+            .userId(userRole.getUserId())
+            .roleId(userRole.getRoleId())
+            .roleName(roleName)
+            .channelId(userRole.getChannelId())
+            .grantedBy(userRole.getGrantedBy())
+            .build());
     }
 
-    @Async
-    public void publishUserRoleAssigned(UserRole userRole, String roleName) {
-        Map<String, Object> data = new HashMap<>();
-        data.put("userId", userRole.getUserId().toString());
-        data.put("roleId", userRole.getRoleId().toString());
-        data.put("roleName", roleName);
-        data.put("workspaceId", userRole.getWorkspaceId().toString());
-        if (userRole.getChannelId() != null) {
-            data.put("channelId", userRole.getChannelId().toString());
-        }
-        if (userRole.getGrantedBy() != null) {
-            data.put("grantedBy", userRole.getGrantedBy().toString());
-        }
-        publishEvent("USER_ROLE_ASSIGNED", userRole.getWorkspaceId(), data);
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publishUserRoleRevoked(UUID userId, UUID roleId, UUID workspaceId, long generation) {
+        publishEvent(event(PermissionEvent.Type.USER_ROLE_REVOKED, workspaceId, generation)
+            .userId(userId)
+            .roleId(roleId)
+            .build());
     }
 
-    @Async
-    public void publishUserRoleRevoked(UUID userId, UUID roleId, UUID workspaceId) {
-        Map<String, Object> data = new HashMap<>();
-        data.put("userId", userId.toString());
-        data.put("roleId", roleId.toString());
-        data.put("workspaceId", workspaceId.toString());
-        publishEvent("USER_ROLE_REVOKED", workspaceId, data);
+    private PermissionEvent.PermissionEventBuilder roleEvent(PermissionEvent.Type type, Role role, long generation) {
+        List<PolicyRule> permissions = new ArrayList<>(role.getPermissions().size());
+        for (Permission permission : role.getPermissions()) {
+            permissions.add(new PolicyRule(permission.getResource(), permission.getAction()));
+        }
+        return event(type, role.getWorkspaceId(), generation)
+            .roleId(role.getId())
+            .roleName(role.getName())
+            .description(role.getDescription())
+            .priority(role.getPriority())
+            .permissions(permissions);
     }
 
-    private void publishEvent(String eventType, UUID workspaceId, Map<String, Object> data) {
-        try {
-            Map<String, Object> event = new HashMap<>();
-            event.put("eventType", eventType);
-            event.put("workspaceId", workspaceId.toString());
-            event.put("data", data);
-            event.put("timestamp", Instant.now().toString());
-            event.put("source", "permission-service");
+    private PermissionEvent.PermissionEventBuilder event(PermissionEvent.Type type, UUID workspaceId, long generation) {
+        return PermissionEvent.builder()
+            .type(type)
+            .workspaceId(workspaceId)
+            .timestamp(System.currentTimeMillis())
+            .origin(origin)
+            .generation(generation);
+    }
 
-            kafkaTemplate.send(permissionEventsTopic, workspaceId.toString(), event)
-                    .whenComplete((result, ex) -> {
-                        if (ex != null) {
-                            log.error("Failed to publish {} event for workspace {}", eventType, workspaceId, ex);
-                        } else {
-                            log.debug("Published {} event for workspace {}", eventType, workspaceId);
-                        }
-                    });
-        } catch (Exception e) {
-            log.error("Error publishing {} event", eventType, e);
-        }
+    private void publishEvent(PermissionEvent event) {
+        outboxEventRepository.save(OutboxEvent.builder()
+            .workspaceId(event.workspaceId())
+            .eventType(event.type().name())
+            .payload(serde.encode(event))
+            .build());
+        log.debug("Queued {} event for workspace {}", event.type(), event.workspaceId());
     }
 }
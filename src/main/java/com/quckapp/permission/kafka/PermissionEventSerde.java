@@ -0,0 +1,76 @@
+package com.quckapp.permission.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.support.mapping.AbstractJavaTypeMapper;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Encodes permission events in the format set by {@code app.kafka.event-format} and decodes them
+ * in whichever format they were written, so that the format can be switched on a running cluster.
+ * Switch to {@code binary} only once every consumer of the topic reads it.
+ *
+ * <p>Records also name their format in {@link #headers}, so that consumers need not sniff it.
+ */
+@Component
+public class PermissionEventSerde {
+
+    public static final String CODEC_HEADER = "permission-event-codec";
+    public static final String VERSION_HEADER = "permission-event-version";
+
+    public enum Format {
+        JSON,
+        BINARY
+    }
+
+    private final JsonEventCodec json;
+    private final BinaryEventCodec binary = new BinaryEventCodec();
+
+    @Value("${app.kafka.event-format:json}")
+    private Format format = Format.JSON;
+
+    public PermissionEventSerde(ObjectMapper objectMapper) {
+        this.json = new JsonEventCodec(objectMapper);
+    }
+
+    public byte[] encode(PermissionEvent event) {
+        return (format == Format.BINARY ? binary : json).encode(event);
+    }
+
+    /**
+     * The headers to send an encoded payload with: its codec and that codec's version, and for
+     * JSON also Spring's type header. JSON events used to be sent through Spring's JsonSerializer,
+     * which set that header to the envelope's class, and JsonDeserializer consumers map by it.
+     */
+    public List<Header> headers(byte[] payload) {
+        if (BinaryEventCodec.isBinary(payload)) {
+            return List.of(header(CODEC_HEADER, codecName(Format.BINARY)), header(VERSION_HEADER, payload[0]));
+        }
+        return List.of(
+            header(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME, HashMap.class.getName()),
+            header(CODEC_HEADER, codecName(Format.JSON)),
+            header(VERSION_HEADER, JsonEventCodec.VERSION));
+    }
+
+    private static String codecName(Format format) {
+        return format.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static Header header(String key, Object value) {
+        return new RecordHeader(key, String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the payload is not a valid event
+     */
+    public PermissionEvent decode(byte[] payload) {
+        return (BinaryEventCodec.isBinary(payload) ? binary : json).decode(payload);
+    }
+}
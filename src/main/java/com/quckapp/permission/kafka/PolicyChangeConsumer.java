@@ -0,0 +1,316 @@
+package com.quckapp.permission.kafka;
+
+import com.quckapp.permission.concurrent.WorkspaceLaneExecutor;
+import com.quckapp.permission.service.CasbinPolicySyncService;
+import com.quckapp.permission.service.PolicyGenerations;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Applies the permission events published by the other nodes to the local enforcers, so that a
+ * change made on one node shows up on all of them without a reload. Every node consumes the
+ * whole topic in a consumer group of its own, named after its instance id (the host name unless
+ * {@code app.permission.replication.instance-id} is set) so that a restarted node rejoins its
+ * group rather than leaving an orphaned one behind. The topic is keyed by workspace, so the changes of
+ * a workspace are applied in the order they were relayed, which after a failed send may repeat
+ * older ones (see {@link OutboxRelay}). Events are applied on the workspace's lane
+ * of the {@link WorkspaceLaneExecutor}, so that a slow workspace does not hold up the others on
+ * its partition. When the executor is full the partition is paused and rewound to the record,
+ * which is fetched again once the partition resumes, rather than passing the record on to the
+ * container's error handler, which would skip it after a few attempts and lose the change on
+ * this node. The poll loop keeps running meanwhile, so the consumer stays in its group.
+ *
+ * <p>On its first assignment the consumer starts from the node's start time rather than from the
+ * end of the topic, so that nothing published between the startup load reading the tables and the
+ * partitions being assigned is lost. Replaying a change the load already saw is harmless: each
+ * event carries the full state of what it changed.
+ */
+@Component
+@ConditionalOnProperty(name = "app.permission.replication.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class PolicyChangeConsumer implements ConsumerSeekAware {
+
+    /**
+     * Allowance for the producers' clocks, which stamp the events, running ahead of this node's.
+     */
+    private static final Duration CLOCK_SKEW = Duration.ofMinutes(1);
+
+    /**
+     * Pause before offering an event to a full executor again.
+     */
+    private static final Duration RETRY_INTERVAL = Duration.ofMillis(100);
+
+    static final String LISTENER_ID = "policy-change-consumer";
+
+    private final CasbinPolicySyncService syncService;
+    private final PolicyGenerations policyGenerations;
+    private final PermissionEventPublisher eventPublisher;
+    private final PermissionEventSerde serde;
+    private final WorkspaceLaneExecutor workspaceLaneExecutor;
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.permission.replication.group-prefix:permission-service-policy}")
+    private String groupPrefix;
+
+    @Value("${app.permission.replication.instance-id:}")
+    private String instanceId;
+
+    private final long startedAt = System.currentTimeMillis();
+    private final Set<TopicPartition> positioned = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, PartitionProgress> progress = new ConcurrentHashMap<>();
+    // Partitions paused on a full executor, by the offset of the record to fetch again; poll thread only
+    private final Map<TopicPartition, Long> rewound = new HashMap<>();
+
+    /**
+     * The node's consumer group: the prefix and the instance id, which defaults to the host name.
+     */
+    public String getGroupId() {
+        if (instanceId != null && !instanceId.isBlank()) {
+            return groupPrefix + "-" + instanceId;
+        }
+        try {
+            return groupPrefix + "-" + InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException(
+                "Cannot resolve the host name; set app.permission.replication.instance-id", e);
+        }
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        List<TopicPartition> fresh = new ArrayList<>();
+        for (TopicPartition partition : assignments.keySet()) {
+            Long offset = rewound.get(partition);
+            if (offset != null) {
+                // The group's committed offset may be past the record that did not fit
+                callback.seek(partition.topic(), partition.partition(), offset);
+            } else if (positioned.add(partition)) {
+                fresh.add(partition);
+            }
+        }
+        if (!fresh.isEmpty()) {
+            callback.seekToTimestamp(fresh, startedAt - CLOCK_SKEW.toMillis());
+        }
+    }
+
+    @KafkaListener(
+        id = LISTENER_ID,
+        idIsGroup = false,
+        topics = "${app.kafka.topics.permission-events:quckapp.permissions.events}",
+        groupId = "#{__listener.groupId}",
+        properties = {
+            "key.deserializer=org.apache.kafka.common.serialization.StringDeserializer",
+            "value.deserializer=org.apache.kafka.common.serialization.ByteArrayDeserializer",
+            "auto.offset.reset=latest"
+        })
+    public void onEvent(ConsumerRecord<String, byte[]> record, Consumer<?, ?> consumer) {
+        TopicPartition topicPartition = new TopicPartition(record.topic(), record.partition());
+        Long rewoundTo = rewound.get(topicPartition);
+        if (rewoundTo != null) {
+            if (record.offset() != rewoundTo) {
+                // Fetched with the record that did not fit; delivered again after it
+                return;
+            }
+            rewound.remove(topicPartition);
+        }
+        PartitionProgress partition = progress.computeIfAbsent(record.partition(), this::registerProgress);
+        PermissionEvent event = decode(record);
+        // This node applied its own changes when it made them
+        boolean foreign = event != null
+            && (event.origin() == null || !eventPublisher.getNodeId().equals(event.origin().toString()));
+        if (foreign) {
+            partition.pending.add(record.offset());
+            boolean handedOff;
+            try {
+                // Workspaces apply concurrently, each in order
+                handedOff = handOff(event, () -> {
+                    try {
+                        apply(event);
+                    } finally {
+                        partition.pending.remove(record.offset());
+                        recordDelay(record);
+                    }
+                });
+            } catch (RuntimeException e) {
+                partition.pending.remove(record.offset());
+                throw e;
+            }
+            if (!handedOff) {
+                partition.pending.remove(record.offset());
+                rewind(consumer, topicPartition, record.offset());
+                return;
+            }
+            partition.received(record.offset());
+        } else {
+            partition.received(record.offset());
+            recordDelay(record);
+        }
+        // The consumer may only be used on the poll thread
+        consumer.currentLag(topicPartition).ifPresent(partition.fetchLag::set);
+    }
+
+    private PermissionEvent decode(ConsumerRecord<String, byte[]> record) {
+        try {
+            return serde.decode(record.value());
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring malformed permission event at {}-{}@{}: {}", record.topic(), record.partition(),
+                record.offset(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Queues the event on its workspace's lane; false if the executor is full. Rethrows the
+     * rejection when the executor is closed, which means the node is stopping.
+     */
+    private boolean handOff(PermissionEvent event, Runnable task) {
+        try {
+            workspaceLaneExecutor.execute(event.workspaceId(), task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            if (workspaceLaneExecutor.isShutdown()) {
+                throw e;
+            }
+            log.warn("Executor full, pausing to apply {} to workspace {} later", event.type(), event.workspaceId());
+            return false;
+        }
+    }
+
+    /**
+     * Fetches the partition again from {@code offset} once the executor has had time to make room.
+     * The container pauses the partition on its next poll and resumes it from another thread, so
+     * the poll loop itself never waits.
+     */
+    private void rewind(Consumer<?, ?> consumer, TopicPartition partition, long offset) {
+        rewound.put(partition, offset);
+        consumer.seek(partition, offset);
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(LISTENER_ID);
+        container.pausePartition(partition);
+        CompletableFuture.delayedExecutor(RETRY_INTERVAL.toMillis(), TimeUnit.MILLISECONDS)
+            .execute(() -> container.resumePartition(partition));
+    }
+
+    /**
+     * Applies one event to both enforcers.
+     */
+    void apply(PermissionEvent event) {
+        switch (event.type()) {
+            case ROLE_CREATED, ROLE_UPDATED -> {
+                if (event.permissions() == null) {
+                    // Published before role events carried their permissions; the next reload picks it up
+                    log.warn("Ignoring {} event without permissions for role {}", event.type(), event.roleId());
+                    return;
+                }
+                syncService.applyRolePolicies(event.roleId(), event.workspaceId(), event.permissions());
+            }
+            case ROLE_DELETED -> syncService.applyRoleRemoval(event.roleId(), event.workspaceId());
+            case USER_ROLE_ASSIGNED -> syncService.applyUserRoleAssignment(
+                event.userId(), event.roleId(), event.workspaceId());
+            case USER_ROLE_REVOKED -> syncService.applyUserRoleRevocation(
+                event.userId(), event.roleId(), event.workspaceId());
+        }
+        if (event.generation() > 0) {
+            policyGenerations.advance(event.workspaceId(), event.generation());
+        }
+        Counter.builder("permission.policy.replication.applied")
+            .description("Policy changes from other nodes applied to the local enforcers")
+            .tag("type", event.type().name())
+            .register(meterRegistry)
+            .increment();
+        log.debug("Applied {} from node {} to workspace {}", event.type(), event.origin(), event.workspaceId());
+    }
+
+    /**
+     * Records how far behind the producer this node is, once the record has been applied or skipped.
+     */
+    private void recordDelay(ConsumerRecord<String, byte[]> record) {
+        Timer.builder("permission.policy.replication.delay")
+            .description("Time from a change being published to it being applied on this node")
+            .register(meterRegistry)
+            .record(Math.max(0, System.currentTimeMillis() - record.timestamp()), TimeUnit.MILLISECONDS);
+    }
+
+    private PartitionProgress registerProgress(int partition) {
+        PartitionProgress progress = new PartitionProgress();
+        Gauge.builder("permission.policy.replication.lag", progress, PartitionProgress::lag)
+            .description("Permission events published but not yet applied on this node")
+            .tag("partition", String.valueOf(partition))
+            .register(meterRegistry);
+        return progress;
+    }
+
+    /**
+     * Offset up to which every event has been applied or skipped, by partition.
+     */
+    public Map<Integer, Long> appliedOffsets() {
+        Map<Integer, Long> offsets = new HashMap<>();
+        progress.forEach((partition, p) -> {
+            long applied = p.appliedOffset();
+            if (applied >= 0) {
+                offsets.put(partition, applied);
+            }
+        });
+        return Map.copyOf(offsets);
+    }
+
+    /**
+     * What has been received from a partition and what of it is still waiting on a lane. Lanes
+     * finish out of offset order, so the applied offset is the one below the oldest pending event.
+     */
+    private static final class PartitionProgress {
+
+        private final NavigableSet<Long> pending = new ConcurrentSkipListSet<>();
+        private final AtomicLong received = new AtomicLong(-1);
+        private final AtomicLong fetchLag = new AtomicLong();
+
+        void received(long offset) {
+            received.accumulateAndGet(offset, Math::max);
+        }
+
+        long appliedOffset() {
+            // Read before the pending events, which are added before the offset is received
+            long last = received.get();
+            Long oldestPending = pending.ceiling(Long.MIN_VALUE);
+            return oldestPending == null ? last : Math.min(last, oldestPending - 1);
+        }
+
+        /**
+         * Events not yet fetched plus those fetched but still waiting on a lane.
+         */
+        long lag() {
+            return fetchLag.get() + pending.size();
+        }
+    }
+}
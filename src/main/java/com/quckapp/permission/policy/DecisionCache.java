@@ -0,0 +1,80 @@
+package com.quckapp.permission.policy;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Bounded cache of permission check results keyed on (user, workspace, resource, action).
+ *
+ * <p>Every entry is stamped with the {@linkplain DomainPolicy#getGeneration() generation} of the
+ * workspace it was computed against. A write to a workspace moves it to a new generation, which
+ * makes all of its cached decisions stale at once without scanning the cache; a stale entry is
+ * recomputed and overwritten on its next lookup. Decisions are always computed against the same
+ * {@link DomainPolicy} whose generation they are stamped with, so a concurrent write can never be
+ * masked.
+ *
+ * <p>Published as the {@code permissionDecisions} cache ({@code cache.gets}, {@code cache.evictions},
+ * ...) plus {@code permission.decisions.stale}, the lookups that found an outdated entry.
+ */
+@Component
+public class DecisionCache {
+
+    static final String CACHE_NAME = "permissionDecisions";
+
+    private final boolean enabled;
+    private final Cache<DecisionKey, Decision> decisions;
+    private final Counter staleLookups;
+
+    public DecisionCache(@Value("${app.permission.decision-cache.enabled:true}") boolean enabled,
+                         @Value("${app.permission.decision-cache.maximum-size:100000}") long maximumSize,
+                         MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.decisions = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .recordStats()
+            .build();
+        this.staleLookups = Counter.builder("permission.decisions.stale")
+            .description("Decision cache lookups that found an entry from an older workspace generation")
+            .register(meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, decisions, CACHE_NAME);
+    }
+
+    /**
+     * Answers a check for {@code workspaceId}, whose current policy the caller passes in.
+     */
+    public boolean check(DomainPolicy workspace, UUID userId, UUID workspaceId, String resource, String action) {
+        if (!enabled) {
+            return workspace.enforce(userId, resource, action);
+        }
+        long generation = workspace.getGeneration();
+        DecisionKey key = new DecisionKey(userId, workspaceId, resource, action);
+        Decision cached = decisions.getIfPresent(key);
+        if (cached != null) {
+            if (cached.generation() == generation) {
+                return cached.allowed();
+            }
+            staleLookups.increment();
+        }
+        boolean allowed = workspace.enforce(userId, resource, action);
+        decisions.put(key, new Decision(generation, allowed));
+        return allowed;
+    }
+
+    long size() {
+        decisions.cleanUp();
+        return decisions.estimatedSize();
+    }
+
+    private record DecisionKey(UUID userId, UUID workspaceId, String resource, String action) {
+    }
+
+    private record Decision(long generation, boolean allowed) {
+    }
+}
@@ -0,0 +1,323 @@
+package com.quckapp.permission.policy;
+
+import java.util.*;
+
+/**
+ * Immutable policy of a single domain (workspace): the {@code g} links from subjects to roles,
+ * the compiled {@code p} rules of every role, and the precompiled {@link SubjectPolicy} of every
+ * subject holding a role. Mutators return a modified copy and leave this instance untouched, so
+ * a published instance is a consistent snapshot of its workspace for any number of readers.
+ *
+ * <p>Subjects and roles are {@link UuidDictionary} ids; the roles of a subject are kept as a
+ * sorted {@code int[]}. Subject policies are maintained incrementally: a grouping change
+ * recompiles that one subject, a rule change recompiles the holders of that role.
+ */
+public final class DomainPolicy {
+
+    private static final int[] NO_ROLES = new int[0];
+
+    private final UuidDictionary dictionary;
+    private final PermissionCatalog catalog;
+    private final IntMap<int[]> rolesBySubject;
+    private final IntMap<RolePermissions> rulesByRole;
+    private final IntMap<SubjectPolicy> subjects;
+    private final long generation;
+
+    private DomainPolicy(UuidDictionary dictionary, PermissionCatalog catalog, IntMap<int[]> rolesBySubject,
+                         IntMap<RolePermissions> rulesByRole, IntMap<SubjectPolicy> subjects, long generation) {
+        this.dictionary = dictionary;
+        this.catalog = catalog;
+        this.rolesBySubject = rolesBySubject;
+        this.rulesByRole = rulesByRole;
+        this.subjects = subjects;
+        this.generation = generation;
+    }
+
+    static DomainPolicy empty(UuidDictionary dictionary, PermissionCatalog catalog) {
+        return new DomainPolicy(dictionary, catalog, new IntMap<>(), new IntMap<>(), new IntMap<>(), 0);
+    }
+
+    /**
+     * Generation at which this domain last changed. Every write to the domain yields a new, higher
+     * generation, so anything derived from it (e.g. a cached decision) is current exactly while
+     * the generations match. A domain that never held any policy is at generation {@code 0}.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    DomainPolicy withGeneration(long newGeneration) {
+        return new DomainPolicy(dictionary, catalog, rolesBySubject, rulesByRole, subjects, newGeneration);
+    }
+
+    public boolean enforce(UUID subject, String resource, String action) {
+        int subjectId = dictionary.find(subject);
+        return subjectId != UuidDictionary.NONE && enforce(subjectId, resource, action);
+    }
+
+    /**
+     * Resolves the effective permissions of a subject once, for answering many checks.
+     */
+    public SubjectPolicy subject(UUID subject) {
+        int subjectId = dictionary.find(subject);
+        return subjectId == UuidDictionary.NONE ? SubjectPolicy.NONE : subject(subjectId);
+    }
+
+    /**
+     * Whether the subject can hold any permission here: it has a role in this domain, or is itself
+     * a role with rules. A probe of the primitive subject set, without evaluating any policy; when
+     * it is {@code false}, every check for the subject is denied.
+     */
+    public boolean isMember(UUID subject) {
+        int subjectId = dictionary.find(subject);
+        return subjectId != UuidDictionary.NONE
+            && (rolesBySubject.containsKey(subjectId) || rulesByRole.containsKey(subjectId));
+    }
+
+    boolean enforce(int subject, String resource, String action) {
+        SubjectPolicy policy = subjects.get(subject);
+        if (policy != null) {
+            return policy.permits(resource, action);
+        }
+        // g(r.sub, p.sub, r.dom) also holds when the subject is the role itself
+        RolePermissions own = rulesByRole.get(subject);
+        return own != null && own.permits(catalog, resource, action);
+    }
+
+    SubjectPolicy subject(int subject) {
+        SubjectPolicy policy = subjects.get(subject);
+        if (policy != null) {
+            return policy;
+        }
+        RolePermissions own = rulesByRole.get(subject);
+        return own == null ? SubjectPolicy.NONE : SubjectPolicy.compile(catalog, List.of(own));
+    }
+
+    public boolean isEmpty() {
+        return rolesBySubject.isEmpty() && rulesByRole.isEmpty();
+    }
+
+    IntMap<int[]> rolesBySubject() {
+        return rolesBySubject;
+    }
+
+    IntMap<RolePermissions> rulesByRole() {
+        return rulesByRole;
+    }
+
+    public int policyCount() {
+        return (int) rulesByRole.sum(RolePermissions::size);
+    }
+
+    public int groupingCount() {
+        return (int) rolesBySubject.sum(roles -> roles.length);
+    }
+
+    DomainPolicy withRules(int role, Collection<PolicyRule> rules) {
+        RolePermissions current = rulesByRole.getOrDefault(role, RolePermissions.EMPTY);
+        Set<PolicyRule> merged = new LinkedHashSet<>(current.rules());
+        merged.addAll(rules);
+        return withRolePermissions(role, current, RolePermissions.of(merged, catalog));
+    }
+
+    DomainPolicy withReplacedRules(int role, Collection<PolicyRule> rules) {
+        RolePermissions current = rulesByRole.getOrDefault(role, RolePermissions.EMPTY);
+        return withRolePermissions(role, current, RolePermissions.of(new LinkedHashSet<>(rules), catalog));
+    }
+
+    DomainPolicy withoutRules(int role) {
+        RolePermissions current = rulesByRole.get(role);
+        return current == null ? this : withRolePermissions(role, current, RolePermissions.EMPTY);
+    }
+
+    private DomainPolicy withRolePermissions(int role, RolePermissions current, RolePermissions updated) {
+        if (updated.rules().equals(current.rules())) {
+            return this;
+        }
+        IntMap<RolePermissions> rules = rulesByRole.copy();
+        if (updated.isEmpty()) {
+            rules.remove(role);
+        } else {
+            rules.put(role, updated);
+        }
+        IntMap<SubjectPolicy> compiled = subjects.copy();
+        rolesBySubject.forEach((subject, roles) -> {
+            if (subject == role || Arrays.binarySearch(roles, role) >= 0) {
+                compiled.put(subject, compile(catalog, subject, roles, rules));
+            }
+        });
+        return new DomainPolicy(dictionary, catalog, rolesBySubject, rules, compiled, generation);
+    }
+
+    DomainPolicy withGrouping(int subject, int role) {
+        int[] roles = rolesBySubject.getOrDefault(subject, NO_ROLES);
+        int[] updated = with(roles, role);
+        return updated == roles ? this : withSubjectRoles(subject, updated);
+    }
+
+    /**
+     * Adds the roles mapped to each subject with a single copy of this domain's maps, for bulk
+     * loads where {@link #withGrouping} per row would copy them once per row.
+     */
+    DomainPolicy withGroupings(IntMap<int[]> added) {
+        IntMap<int[]> groupings = rolesBySubject.copy();
+        IntMap<SubjectPolicy> compiled = subjects.copy();
+        boolean[] changed = {false};
+        added.forEach((subject, roles) -> {
+            int[] current = groupings.getOrDefault(subject, NO_ROLES);
+            int[] updated = current;
+            for (int role : roles) {
+                updated = with(updated, role);
+            }
+            if (updated != current) {
+                changed[0] = true;
+                groupings.put(subject, updated);
+                compiled.put(subject, compile(catalog, subject, updated, rulesByRole));
+            }
+        });
+        return changed[0] ? new DomainPolicy(dictionary, catalog, groupings, rulesByRole, compiled, generation) : this;
+    }
+
+    DomainPolicy withoutGrouping(int subject, int role) {
+        int[] roles = rolesBySubject.get(subject);
+        int at = roles == null ? -1 : Arrays.binarySearch(roles, role);
+        if (at < 0) {
+            return this;
+        }
+        return withSubjectRoles(subject, without(roles, at));
+    }
+
+    DomainPolicy withoutGroupingsTo(int role) {
+        IntMap<int[]> groupings = rolesBySubject.copy();
+        IntMap<SubjectPolicy> compiled = subjects.copy();
+        boolean[] changed = {false};
+        rolesBySubject.forEach((subject, roles) -> {
+            int at = Arrays.binarySearch(roles, role);
+            if (at < 0) {
+                return;
+            }
+            changed[0] = true;
+            int[] updated = without(roles, at);
+            if (updated.length == 0) {
+                groupings.remove(subject);
+                compiled.remove(subject);
+            } else {
+                groupings.put(subject, updated);
+                compiled.put(subject, compile(catalog, subject, updated, rulesByRole));
+            }
+        });
+        return changed[0] ? new DomainPolicy(dictionary, catalog, groupings, rulesByRole, compiled, generation) : this;
+    }
+
+    private DomainPolicy withSubjectRoles(int subject, int[] roles) {
+        IntMap<int[]> groupings = rolesBySubject.copy();
+        IntMap<SubjectPolicy> compiled = subjects.copy();
+        if (roles.length == 0) {
+            groupings.remove(subject);
+            compiled.remove(subject);
+        } else {
+            groupings.put(subject, roles);
+            compiled.put(subject, compile(catalog, subject, roles, rulesByRole));
+        }
+        return new DomainPolicy(dictionary, catalog, groupings, rulesByRole, compiled, generation);
+    }
+
+    /**
+     * Recompiles every role and subject against a new permission catalog.
+     */
+    DomainPolicy recompiled(PermissionCatalog newCatalog) {
+        if (newCatalog == catalog) {
+            return this;
+        }
+        IntMap<RolePermissions> rules = new IntMap<>(rulesByRole.size());
+        rulesByRole.forEach((role, permissions) -> rules.put(role, permissions.recompiled(newCatalog)));
+        return compileAll(dictionary, newCatalog, rolesBySubject, rules).withGeneration(generation);
+    }
+
+    private static int[] with(int[] roles, int role) {
+        int at = Arrays.binarySearch(roles, role);
+        if (at >= 0) {
+            return roles;
+        }
+        int insert = -at - 1;
+        int[] updated = new int[roles.length + 1];
+        System.arraycopy(roles, 0, updated, 0, insert);
+        updated[insert] = role;
+        System.arraycopy(roles, insert, updated, insert + 1, roles.length - insert);
+        return updated;
+    }
+
+    private static int[] without(int[] roles, int index) {
+        int[] updated = new int[roles.length - 1];
+        System.arraycopy(roles, 0, updated, 0, index);
+        System.arraycopy(roles, index + 1, updated, index, updated.length - index);
+        return updated;
+    }
+
+    private static SubjectPolicy compile(PermissionCatalog catalog, int subject, int[] roles,
+                                         IntMap<RolePermissions> rules) {
+        List<RolePermissions> granted = new ArrayList<>(roles.length + 1);
+        RolePermissions own = rules.get(subject);
+        if (own != null) {
+            granted.add(own);
+        }
+        for (int role : roles) {
+            RolePermissions permissions = rules.get(role);
+            if (permissions != null) {
+                granted.add(permissions);
+            }
+        }
+        return SubjectPolicy.compile(catalog, granted);
+    }
+
+    private static DomainPolicy compileAll(UuidDictionary dictionary, PermissionCatalog catalog,
+                                           IntMap<int[]> groupings, IntMap<RolePermissions> rules) {
+        IntMap<SubjectPolicy> compiled = new IntMap<>(groupings.size());
+        // Most subjects share their role set with others; compile each distinct set once
+        Map<RoleSet, SubjectPolicy> shared = new HashMap<>();
+        groupings.forEach((subject, roles) -> compiled.put(subject, rules.containsKey(subject)
+            ? compile(catalog, subject, roles, rules)
+            : shared.computeIfAbsent(new RoleSet(roles), set -> compile(catalog, subject, roles, rules))));
+        return new DomainPolicy(dictionary, catalog, groupings, rules, compiled, 0);
+    }
+
+    private record RoleSet(int[] roles) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof RoleSet other && Arrays.equals(roles, other.roles);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(roles);
+        }
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Mutable accumulator used for bulk loads, where copying per row would be quadratic.
+     */
+    static final class Builder {
+        private final IntMap<int[]> rolesBySubject = new IntMap<>();
+        private final IntMap<Set<PolicyRule>> rulesByRole = new IntMap<>();
+
+        Builder addRule(int role, PolicyRule rule) {
+            rulesByRole.computeIfAbsent(role, k -> new LinkedHashSet<>()).add(rule);
+            return this;
+        }
+
+        Builder addGrouping(int subject, int role) {
+            rolesBySubject.put(subject, with(rolesBySubject.getOrDefault(subject, NO_ROLES), role));
+            return this;
+        }
+
+        DomainPolicy build(UuidDictionary dictionary, PermissionCatalog catalog) {
+            IntMap<RolePermissions> rules = new IntMap<>(rulesByRole.size());
+            rulesByRole.forEach((role, set) -> rules.put(role, RolePermissions.of(set, catalog)));
+            return compileAll(dictionary, catalog, rolesBySubject.copy(), rules);
+        }
+    }
+}
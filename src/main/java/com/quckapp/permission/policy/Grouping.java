@@ -0,0 +1,9 @@
+package com.quckapp.permission.policy;
+
+import java.util.UUID;
+
+/**
+ * A {@code g} row: {@code subject} holds {@code role} in {@code domain}.
+ */
+public record Grouping(UUID subject, UUID role, UUID domain) {
+}
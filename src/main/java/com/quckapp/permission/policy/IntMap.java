@@ -0,0 +1,175 @@
+package com.quckapp.permission.policy;
+
+import java.util.function.IntFunction;
+
+/**
+ * Open-addressed map from {@link UuidDictionary} ids to values, without boxing the keys.
+ *
+ * <p>Used the same way as the copy-on-write {@code HashMap}s it replaces: a writer takes a
+ * {@link #copy()}, mutates it and publishes it inside an immutable policy object; once published
+ * a map is only read. Keys must be positive, {@code 0} marks a free slot.
+ */
+final class IntMap<V> {
+
+    private static final int FREE = 0;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+
+    IntMap() {
+        this(0);
+    }
+
+    IntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 4 / 3 + 1) - 1) << 1;
+        keys = new int[capacity];
+        values = new Object[capacity];
+    }
+
+    private IntMap(IntMap<V> source) {
+        keys = source.keys.clone();
+        values = source.values.clone();
+        size = source.size;
+    }
+
+    IntMap<V> copy() {
+        return new IntMap<>(this);
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); ; slot = (slot + 1) & mask) {
+            int k = keys[slot];
+            if (k == key) {
+                return (V) values[slot];
+            }
+            if (k == FREE) {
+                return null;
+            }
+        }
+    }
+
+    V getOrDefault(int key, V defaultValue) {
+        V value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    V computeIfAbsent(int key, IntFunction<V> factory) {
+        V value = get(key);
+        if (value == null) {
+            value = factory.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    void put(int key, V value) {
+        if (key <= FREE) {
+            throw new IllegalArgumentException("Keys must be positive: " + key);
+        }
+        if ((size + 1) * 4 > keys.length * 3) {
+            resize(keys.length << 1);
+        }
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == FREE) {
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+    }
+
+    void remove(int key) {
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (keys[slot] != key) {
+            if (keys[slot] == FREE) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        // Backward-shift deletion keeps probe chains intact without tombstones
+        int hole = slot;
+        for (int next = (hole + 1) & mask; keys[next] != FREE; next = (next + 1) & mask) {
+            int home = slot(keys[next], mask);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        keys[hole] = FREE;
+        values[hole] = null;
+        size--;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEach(Entries<? super V> action) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != FREE) {
+                action.accept(keys[slot], (V) values[slot]);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    long sum(ToLong<? super V> weight) {
+        long total = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != FREE) {
+                total += weight.applyAsLong((V) values[slot]);
+            }
+        }
+        return total;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = slot(oldKeys[i], mask);
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int slot(int key, int mask) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    @FunctionalInterface
+    interface Entries<V> {
+        void accept(int key, V value);
+    }
+
+    @FunctionalInterface
+    interface ToLong<V> {
+        long applyAsLong(V value);
+    }
+}
@@ -0,0 +1,194 @@
+package com.quckapp.permission.policy;
+
+import java.util.*;
+
+/**
+ * A set of {@link PolicyRule}s compiled into a path-segment trie that answers
+ * {@code keyMatch2(resource, p.obj) && keyMatch(action, p.act)} for all of them in a single walk.
+ *
+ * <p>Each resource pattern is split on {@code /}. Literal segments become keyed children, a
+ * {@code :param} segment a child matching any one non-empty segment, and a trailing {@code /*}
+ * a tail matching whatever follows the slash; a bare {@code *} matches every resource. Resources
+ * without either are a single hash lookup. Every trie node carries the actions granted there,
+ * split into literal actions, {@code *} and {@code prefix*} patterns as {@code keyMatch} reads
+ * them. Patterns relying on other regex constructs ({@code .}, a {@code *} inside a segment...)
+ * keep being evaluated with jcasbin's own functions.
+ *
+ * <p>Instances are immutable once compiled.
+ */
+public final class PatternMatcher {
+
+    static final PatternMatcher EMPTY = new PatternMatcher(Map.of(), new Node(), null, List.of());
+
+    private static final String WILDCARD = "*";
+
+    private final Map<String, Actions> literals;
+    private final Node root;
+    private final Actions anyResource;
+    private final List<PolicyRule> fallback;
+
+    private PatternMatcher(Map<String, Actions> literals, Node root, Actions anyResource, List<PolicyRule> fallback) {
+        this.literals = literals;
+        this.root = root;
+        this.anyResource = anyResource;
+        this.fallback = fallback;
+    }
+
+    public static PatternMatcher compile(Collection<PolicyRule> rules) {
+        if (rules.isEmpty()) {
+            return EMPTY;
+        }
+        Map<String, Actions> literals = new HashMap<>();
+        Node root = new Node();
+        Actions anyResource = null;
+        List<PolicyRule> fallback = new ArrayList<>(0);
+        for (PolicyRule rule : rules) {
+            String resource = rule.resource();
+            if (WILDCARD.equals(resource)) {
+                anyResource = Actions.add(anyResource, rule.action());
+            } else if (RolePermissions.isLiteralResource(resource)) {
+                literals.compute(resource, (r, actions) -> Actions.add(actions, rule.action()));
+            } else if (!insert(root, resource, rule.action())) {
+                fallback.add(rule);
+            }
+        }
+        return new PatternMatcher(literals, root, anyResource, List.copyOf(fallback));
+    }
+
+    public boolean matches(String resource, String action) {
+        if (anyResource != null && anyResource.matches(action)) {
+            return true;
+        }
+        Actions actions = literals.get(resource);
+        if (actions != null && actions.matches(action)) {
+            return true;
+        }
+        if (root.hasChildren() && walk(root, resource, 0, action)) {
+            return true;
+        }
+        for (PolicyRule rule : fallback) {
+            if (rule.matches(resource, action)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isEmpty() {
+        return anyResource == null && literals.isEmpty() && !root.hasChildren() && fallback.isEmpty();
+    }
+
+    /**
+     * Adds one pattern to the trie, or returns {@code false} if it uses a construct the trie
+     * cannot reproduce exactly.
+     */
+    private static boolean insert(Node root, String resource, String action) {
+        String[] segments = resource.split("/", -1);
+        int last = segments.length - 1;
+        boolean tail = last > 0 && WILDCARD.equals(segments[last]);
+        int depth = tail ? last : segments.length;
+        for (int i = 0; i < depth; i++) {
+            if (!isParam(segments[i]) && !RolePermissions.isLiteralResource(segments[i]) && !segments[i].isEmpty()) {
+                return false;
+            }
+        }
+        Node node = root;
+        for (int i = 0; i < depth; i++) {
+            node = node.child(segments[i]);
+        }
+        if (tail) {
+            node.tail = Actions.add(node.tail, action);
+        } else {
+            node.terminal = Actions.add(node.terminal, action);
+        }
+        return true;
+    }
+
+    /**
+     * {@code keyMatch2} turns {@code :name} into {@code [^/]+}, so a segment starting with a colon
+     * matches any non-empty segment whatever the rest of its name.
+     */
+    private static boolean isParam(String segment) {
+        return segment.length() > 1 && segment.charAt(0) == ':';
+    }
+
+    /**
+     * Matches {@code path} from {@code start}, the offset of its next segment; an offset past the
+     * end means every segment has been consumed.
+     */
+    private static boolean walk(Node node, String path, int start, String action) {
+        if (start > path.length()) {
+            return node.terminal != null && node.terminal.matches(action);
+        }
+        if (node.tail != null && node.tail.matches(action)) {
+            return true;
+        }
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = path.length();
+        }
+        if (node.literals != null) {
+            Node literal = node.literals.get(path.substring(start, end));
+            if (literal != null && walk(literal, path, end + 1, action)) {
+                return true;
+            }
+        }
+        return node.param != null && end > start && walk(node.param, path, end + 1, action);
+    }
+
+    private static final class Node {
+        private Map<String, Node> literals;
+        private Node param;
+        private Actions terminal;
+        private Actions tail;
+
+        Node child(String segment) {
+            if (isParam(segment)) {
+                return param != null ? param : (param = new Node());
+            }
+            if (literals == null) {
+                literals = new HashMap<>(4);
+            }
+            return literals.computeIfAbsent(segment, s -> new Node());
+        }
+
+        boolean hasChildren() {
+            return literals != null || param != null || tail != null;
+        }
+    }
+
+    /**
+     * Actions granted at one resource, with {@code keyMatch} semantics: {@code *} grants
+     * everything, {@code prefix*} everything starting with {@code prefix}, anything else itself.
+     */
+    private static final class Actions {
+        private final Set<String> exact = new HashSet<>(4);
+        private final List<String> prefixes = new ArrayList<>(0);
+        private boolean all;
+
+        static Actions add(Actions actions, String action) {
+            Actions target = actions != null ? actions : new Actions();
+            int wildcard = action.indexOf('*');
+            if (wildcard == 0) {
+                target.all = true;
+            } else if (wildcard > 0) {
+                target.prefixes.add(action.substring(0, wildcard));
+            } else {
+                target.exact.add(action);
+            }
+            return target;
+        }
+
+        boolean matches(String action) {
+            if (all || exact.contains(action)) {
+                return true;
+            }
+            for (String prefix : prefixes) {
+                if (action.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
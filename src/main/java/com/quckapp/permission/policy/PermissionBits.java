@@ -0,0 +1,63 @@
+package com.quckapp.permission.policy;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Immutable bitset over {@link PermissionCatalog} indices.
+ */
+public final class PermissionBits {
+
+    static final PermissionBits EMPTY = new PermissionBits(new long[0]);
+
+    private final long[] words;
+
+    private PermissionBits(long[] words) {
+        this.words = words;
+    }
+
+    static PermissionBits of(BitSet bits) {
+        return bits.isEmpty() ? EMPTY : new PermissionBits(bits.toLongArray());
+    }
+
+    public boolean get(int index) {
+        int word = index >>> 6;
+        return index >= 0 && word < words.length && (words[word] & (1L << index)) != 0;
+    }
+
+    public boolean isEmpty() {
+        return words.length == 0;
+    }
+
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    PermissionBits or(PermissionBits other) {
+        if (other.words.length == 0 || other == this) {
+            return this;
+        }
+        if (words.length == 0) {
+            return other;
+        }
+        long[] merged = Arrays.copyOf(words, Math.max(words.length, other.words.length));
+        for (int i = 0; i < other.words.length; i++) {
+            merged[i] |= other.words[i];
+        }
+        return Arrays.equals(merged, words) ? this : new PermissionBits(merged);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof PermissionBits other && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+}
@@ -0,0 +1,87 @@
+package com.quckapp.permission.policy;
+
+import com.quckapp.permission.domain.entity.Permission;
+
+import java.util.*;
+
+/**
+ * Dense index over the {@code permissions} table. Every catalog entry on a literal resource gets
+ * a stable bit position (ordered by resource, then action), so the grants of a role or user can
+ * be held as a {@link PermissionBits}.
+ */
+public final class PermissionCatalog {
+
+    public static final PermissionCatalog EMPTY = new PermissionCatalog(Map.of(), List.of());
+
+    private final Map<String, Map<String, Integer>> indexByResource;
+    private final List<String> keys;
+
+    private PermissionCatalog(Map<String, Map<String, Integer>> indexByResource, List<String> keys) {
+        this.indexByResource = indexByResource;
+        this.keys = keys;
+    }
+
+    public static PermissionCatalog of(Collection<Permission> permissions) {
+        List<Permission> indexable = permissions.stream()
+            .filter(p -> RolePermissions.isLiteralResource(p.getResource())
+                && RolePermissions.isIndexableAction(p.getAction()))
+            .sorted(Comparator.comparing(Permission::getResource).thenComparing(Permission::getAction))
+            .toList();
+
+        Map<String, Map<String, Integer>> index = new HashMap<>();
+        List<String> keys = new ArrayList<>(indexable.size());
+        for (Permission permission : indexable) {
+            index.computeIfAbsent(permission.getResource(), r -> new HashMap<>())
+                .put(permission.getAction(), keys.size());
+            keys.add(permission.getKey());
+        }
+        Map<String, Map<String, Integer>> frozen = new HashMap<>(index.size() * 4 / 3 + 1);
+        index.forEach((resource, actions) -> frozen.put(resource, Map.copyOf(actions)));
+        return new PermissionCatalog(frozen, List.copyOf(keys));
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    public String keyAt(int index) {
+        return keys.get(index);
+    }
+
+    public int indexOf(String resource, String action) {
+        Map<String, Integer> actions = indexByResource.get(resource);
+        Integer index = actions == null ? null : actions.get(action);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Two catalogs are equal when they index the same permissions, and therefore assign them the
+     * same bits.
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof PermissionCatalog other && keys.equals(other.keys);
+    }
+
+    @Override
+    public int hashCode() {
+        return keys.hashCode();
+    }
+
+    /**
+     * Whether {@code bits} grant the action on the resource, either exactly or through the
+     * resource's {@code *} entry.
+     */
+    public boolean test(PermissionBits bits, String resource, String action) {
+        Map<String, Integer> actions = indexByResource.get(resource);
+        if (actions == null) {
+            return false;
+        }
+        Integer exact = actions.get(action);
+        if (exact != null && bits.get(exact)) {
+            return true;
+        }
+        Integer wildcard = actions.get(RolePermissions.WILDCARD);
+        return wildcard != null && bits.get(wildcard);
+    }
+}
@@ -0,0 +1,15 @@
+package com.quckapp.permission.policy;
+
+import org.casbin.jcasbin.util.BuiltInFunctions;
+
+/**
+ * A single {@code p} rule of a role, evaluated with the same
+ * {@code keyMatch2(r.obj, p.obj) && keyMatch(r.act, p.act)} semantics as {@code rbac_model.conf}.
+ */
+public record PolicyRule(String resource, String action) {
+
+    public boolean matches(String requestResource, String requestAction) {
+        return BuiltInFunctions.keyMatch2(requestResource, resource)
+            && BuiltInFunctions.keyMatch(requestAction, action);
+    }
+}
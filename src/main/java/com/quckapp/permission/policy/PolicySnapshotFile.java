@@ -0,0 +1,228 @@
+package com.quckapp.permission.policy;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Compact binary image of a {@link SnapshotEnforcer}, written to disk so that a restarting node
+ * can serve checks before it has read anything from the database.
+ *
+ * <p>Layout, all integers big-endian:
+ * <pre>
+ * int    magic "QPS1", int version
+ * long   position     last policy_change_log id the image reflects
+ * long   writtenAt    epoch millis
+ * int    n, n x (int id, long msb, long lsb)                    dictionary
+ * int    n, n x (int length, utf-8 bytes)                       string table (resources, actions)
+ * int    n, n x domain:
+ *          int id
+ *          int n, n x (int role, int n, n x (int resource, int action))
+ *          int n, n x (int subject, int n, n x int role)
+ * long   CRC32C of everything before it
+ * </pre>
+ * Subjects, roles and domains are stored by their dictionary id and rules by string-table index.
+ * The image is read through a read-only memory mapping, and only after its checksum matched.
+ */
+@Slf4j
+public final class PolicySnapshotFile {
+
+    private static final int MAGIC = 0x51505331;
+    private static final int VERSION = 1;
+
+    private PolicySnapshotFile() {
+    }
+
+    /**
+     * Header of a restored image, and how long its workspaces took to compile.
+     */
+    public record Image(long position, long writtenAt, int domains, WorkspaceTasks.Report<UUID> build) {
+    }
+
+    /**
+     * Writes the current policy of {@code enforcer} to {@code file}, replacing it atomically.
+     * Each workspace is written as one consistent snapshot.
+     */
+    public static void write(SnapshotEnforcer enforcer, long position, Path file) throws IOException {
+        // Policies first: every id they reference is then already in the dictionary
+        List<Map.Entry<Integer, DomainPolicy>> domains = new ArrayList<>();
+        enforcer.forEachDomain((domain, policy) -> domains.add(Map.entry(domain, policy)));
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        CRC32C crc = new CRC32C();
+        try (OutputStream raw = new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16)) {
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(raw, crc));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(position);
+            out.writeLong(System.currentTimeMillis());
+            writeDictionary(out, enforcer.dictionary());
+
+            Map<String, Integer> strings = new LinkedHashMap<>();
+            for (Map.Entry<Integer, DomainPolicy> domain : domains) {
+                domain.getValue().rulesByRole().forEach((role, permissions) -> {
+                    for (PolicyRule rule : permissions.rules()) {
+                        strings.putIfAbsent(rule.resource(), strings.size());
+                        strings.putIfAbsent(rule.action(), strings.size());
+                    }
+                });
+            }
+            out.writeInt(strings.size());
+            for (String string : strings.keySet()) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            out.writeInt(domains.size());
+            for (Map.Entry<Integer, DomainPolicy> domain : domains) {
+                writeDomain(out, domain.getKey(), domain.getValue(), strings);
+            }
+            out.flush();
+            new DataOutputStream(raw).writeLong(crc.getValue());
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads the image in {@code file} into {@code enforcer}, replacing its policy. Returns empty,
+     * leaving the enforcer untouched, if the file is missing, truncated or fails its checksum.
+     */
+    public static Optional<Image> read(Path file, SnapshotEnforcer enforcer) {
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int body = buffer.limit() - Long.BYTES;
+            if (body < 6 * Integer.BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != VERSION) {
+                log.warn("Ignoring policy snapshot {}: not a version {} snapshot", file, VERSION);
+                return Optional.empty();
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.slice(0, body));
+            if (crc.getValue() != buffer.getLong(body)) {
+                log.warn("Ignoring policy snapshot {}: checksum mismatch", file);
+                return Optional.empty();
+            }
+            buffer.position(2 * Integer.BYTES);
+            long position = buffer.getLong();
+            long writtenAt = buffer.getLong();
+            int[] ids = readDictionary(buffer, enforcer.dictionary());
+            String[] strings = readStrings(buffer);
+            WorkspaceTasks.Report<UUID> build = enforcer.restore(() -> {
+                int count = buffer.getInt();
+                IntMap<DomainPolicy.Builder> builders = new IntMap<>(count);
+                for (int i = 0; i < count; i++) {
+                    builders.put(ids[buffer.getInt()], readDomain(buffer, ids, strings));
+                }
+                return builders;
+            });
+            return Optional.of(new Image(position, writtenAt, build.workspaces(), build));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable policy snapshot {}: {}", file, e.toString());
+            return Optional.empty();
+        }
+    }
+
+    private static void writeDictionary(DataOutputStream out, UuidDictionary dictionary) throws IOException {
+        List<long[]> entries = new ArrayList<>(dictionary.size());
+        dictionary.forEach((id, msb, lsb) -> entries.add(new long[] {id, msb, lsb}));
+        out.writeInt(entries.size());
+        for (long[] entry : entries) {
+            out.writeInt((int) entry[0]);
+            out.writeLong(entry[1]);
+            out.writeLong(entry[2]);
+        }
+    }
+
+    private static void writeDomain(DataOutputStream out, int domain, DomainPolicy policy,
+                                    Map<String, Integer> strings) throws IOException {
+        out.writeInt(domain);
+        out.writeInt(policy.rulesByRole().size());
+        IOException[] failure = {null};
+        policy.rulesByRole().forEach((role, permissions) -> {
+            try {
+                out.writeInt(role);
+                out.writeInt(permissions.size());
+                for (PolicyRule rule : permissions.rules()) {
+                    out.writeInt(strings.get(rule.resource()));
+                    out.writeInt(strings.get(rule.action()));
+                }
+            } catch (IOException e) {
+                failure[0] = e;
+            }
+        });
+        out.writeInt(policy.rolesBySubject().size());
+        policy.rolesBySubject().forEach((subject, roles) -> {
+            try {
+                out.writeInt(subject);
+                out.writeInt(roles.length);
+                for (int role : roles) {
+                    out.writeInt(role);
+                }
+            } catch (IOException e) {
+                failure[0] = e;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+    }
+
+    /**
+     * Interns the image's UUIDs and returns the live id of every image id.
+     */
+    private static int[] readDictionary(ByteBuffer buffer, UuidDictionary dictionary) {
+        int count = buffer.getInt();
+        int[] fileIds = new int[count];
+        UUID[] uuids = new UUID[count];
+        int max = 0;
+        for (int i = 0; i < count; i++) {
+            fileIds[i] = buffer.getInt();
+            uuids[i] = new UUID(buffer.getLong(), buffer.getLong());
+            max = Math.max(max, fileIds[i]);
+        }
+        int[] ids = new int[max + 1];
+        for (int i = 0; i < count; i++) {
+            ids[fileIds[i]] = dictionary.intern(uuids[i]);
+        }
+        return ids;
+    }
+
+    private static String[] readStrings(ByteBuffer buffer) {
+        String[] strings = new String[buffer.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    private static DomainPolicy.Builder readDomain(ByteBuffer buffer, int[] ids, String[] strings) {
+        DomainPolicy.Builder builder = DomainPolicy.builder();
+        for (int roles = buffer.getInt(); roles > 0; roles--) {
+            int role = ids[buffer.getInt()];
+            for (int rules = buffer.getInt(); rules > 0; rules--) {
+                builder.addRule(role, new PolicyRule(strings[buffer.getInt()], strings[buffer.getInt()]));
+            }
+        }
+        for (int subjects = buffer.getInt(); subjects > 0; subjects--) {
+            int subject = ids[buffer.getInt()];
+            for (int roles = buffer.getInt(); roles > 0; roles--) {
+                builder.addGrouping(subject, ids[buffer.getInt()]);
+            }
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,116 @@
+package com.quckapp.permission.policy;
+
+import java.util.*;
+
+/**
+ * Compiled {@code p} rules of one role.
+ *
+ * <p>Rules that name a {@link PermissionCatalog} entry are folded into a {@link PermissionBits}.
+ * The remaining rules are compiled into a {@link PatternMatcher}, which resolves literal resources
+ * with a hash lookup and path parameters and wildcards with a single trie walk.
+ */
+final class RolePermissions {
+
+    static final String WILDCARD = "*";
+
+    static final RolePermissions EMPTY =
+        new RolePermissions(List.of(), PermissionBits.EMPTY, List.of(), PatternMatcher.EMPTY);
+
+    private final List<PolicyRule> rules;
+    private final PermissionBits bits;
+    private final List<PolicyRule> residualRules;
+    private final PatternMatcher residual;
+
+    private RolePermissions(List<PolicyRule> rules, PermissionBits bits,
+                            List<PolicyRule> residualRules, PatternMatcher residual) {
+        this.rules = rules;
+        this.bits = bits;
+        this.residualRules = residualRules;
+        this.residual = residual;
+    }
+
+    static RolePermissions of(Collection<PolicyRule> rules, PermissionCatalog catalog) {
+        if (rules.isEmpty()) {
+            return EMPTY;
+        }
+        BitSet bits = new BitSet(catalog.size());
+        List<PolicyRule> residual = new ArrayList<>(0);
+        for (PolicyRule rule : rules) {
+            int index = catalog.indexOf(rule.resource(), rule.action());
+            if (index >= 0) {
+                bits.set(index);
+            } else {
+                residual.add(rule);
+            }
+        }
+        return new RolePermissions(List.copyOf(rules), PermissionBits.of(bits),
+            List.copyOf(residual), PatternMatcher.compile(residual));
+    }
+
+    PermissionBits bits() {
+        return bits;
+    }
+
+    /**
+     * The rules not covered by {@link #bits()}.
+     */
+    List<PolicyRule> residualRules() {
+        return residualRules;
+    }
+
+    boolean permits(PermissionCatalog catalog, String resource, String action) {
+        return catalog.test(bits, resource, action) || residual.matches(resource, action);
+    }
+
+    boolean contains(PolicyRule rule) {
+        return rules.contains(rule);
+    }
+
+    RolePermissions with(PolicyRule rule, PermissionCatalog catalog) {
+        if (rules.contains(rule)) {
+            return this;
+        }
+        List<PolicyRule> updated = new ArrayList<>(rules.size() + 1);
+        updated.addAll(rules);
+        updated.add(rule);
+        return of(updated, catalog);
+    }
+
+    RolePermissions recompiled(PermissionCatalog catalog) {
+        return of(rules, catalog);
+    }
+
+    List<PolicyRule> rules() {
+        return rules;
+    }
+
+    int size() {
+        return rules.size();
+    }
+
+    boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    /**
+     * A resource compares equal under {@code keyMatch2} only when it has no path parameter,
+     * no wildcard and no character the regex translation would interpret.
+     */
+    static boolean isLiteralResource(String resource) {
+        for (int i = 0; i < resource.length(); i++) {
+            char c = resource.charAt(i);
+            if (!(Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '/')) {
+                return false;
+            }
+        }
+        return !resource.isEmpty();
+    }
+
+    /**
+     * Under {@code keyMatch} an action is either compared literally or, when it is exactly
+     * {@code *}, matches everything; any other use of {@code *} is a prefix pattern.
+     */
+    static boolean isIndexableAction(String action) {
+        return WILDCARD.equals(action) || action.indexOf('*') < 0;
+    }
+}
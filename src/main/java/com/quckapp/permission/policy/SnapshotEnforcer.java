@@ -0,0 +1,725 @@
+package com.quckapp.permission.policy;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Read-optimized enforcer for the {@code rbac_model.conf} model, partitioned by domain (workspace).
+ *
+ * <p>Every workspace is an independent partition holding an immutable {@link DomainPolicy} and its
+ * own write lock. Workspaces are numbered in a dense id space of their own, apart from the
+ * {@link UuidDictionary} ids shared with users and roles, so the partition table grows with the
+ * workspaces only. Checks resolve the partition with one lookup and a single array read and never
+ * take a lock. Writers only lock and copy the partition they change, derive its next
+ * policy off to the side and publish it with a single reference swap, so neither reads nor writes
+ * in one workspace scan or contend with another's data. A superseded policy stays valid for any
+ * check still holding it.
+ *
+ * <p>Consistency is per workspace, except for {@link #rebuild}: it compiles a complete partition
+ * table off to the side and publishes every workspace at once with a single swap of the table, so
+ * a check sees either the whole previous policy or the whole new one. Writes racing a rebuild are
+ * journaled and replayed onto the new table before it is published. The workspaces of a rebuild
+ * are compiled independently of each other, in parallel.
+ *
+ * <p>With {@linkplain #enableLazyLoading lazy loading}, a workspace only holds policy once it has
+ * been {@linkplain #beginLoad loaded} and until it is {@linkplain #evict evicted}. Writes to a
+ * workspace that is not resident are dropped, since its next load reads them from the tables;
+ * writes to one being loaded are queued and applied on top of the loaded rows. A load the
+ * workspace was evicted during is not published, as writes were dropped meanwhile.
+ */
+@Component
+@Slf4j
+public class SnapshotEnforcer {
+
+    private static final int INITIAL_PARTITIONS = 64;
+
+    private final UuidDictionary dictionary = new UuidDictionary();
+    // Workspaces only: the partition table is indexed by these
+    private final UuidDictionary slots = new UuidDictionary();
+    private final AtomicLong generations = new AtomicLong();
+    private final ReentrantLock structureLock = new ReentrantLock();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    // Writers hold the read side while resolving and updating a partition, a rebuild's swap the write side
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private volatile List<JournalEntry> journal;
+    private volatile AtomicReferenceArray<Partition> partitions = new AtomicReferenceArray<>(INITIAL_PARTITIONS);
+    private volatile PermissionCatalog catalog = PermissionCatalog.EMPTY;
+    private volatile DomainPolicy emptyDomain = DomainPolicy.empty(dictionary, PermissionCatalog.EMPTY);
+
+    @Value("${app.permission.sync.parallelism:0}")
+    private int buildParallelism;
+
+    private volatile boolean lazy;
+
+    /**
+     * Current policy of a workspace; an immutable snapshot that later writes leave untouched.
+     */
+    public DomainPolicy domain(UUID domain) {
+        Partition partition = partition(slots.find(domain));
+        return partition != null ? partition.policy : emptyDomain;
+    }
+
+    public boolean enforce(UUID subject, UUID domain, String resource, String action) {
+        int subjectId = dictionary.find(subject);
+        if (subjectId == UuidDictionary.NONE) {
+            return false;
+        }
+        Partition partition = partition(slots.find(domain));
+        return partition != null && partition.policy.enforce(subjectId, resource, action);
+    }
+
+    /**
+     * Current policy of a workspace if it is resident, else {@code null}; unlike
+     * {@link #isResident} followed by {@link #domain}, never the empty policy of a workspace
+     * evicted in between. Without lazy loading the same as {@link #domain}.
+     */
+    public DomainPolicy residentDomain(UUID domain) {
+        Partition partition = partition(slots.find(domain));
+        if (!lazy) {
+            return partition != null ? partition.policy : emptyDomain;
+        }
+        if (partition == null) {
+            return null;
+        }
+        long transitions = partition.transitions;
+        if (partition.residency != Residency.RESIDENT) {
+            return null;
+        }
+        DomainPolicy policy = partition.policy;
+        // Residency changes are counted before the policy changes with them
+        return partition.transitions == transitions ? policy : null;
+    }
+
+    public PermissionCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Number of workspaces currently holding any policy. Walks every partition; not for hot paths.
+     */
+    public int domainCount() {
+        AtomicReferenceArray<Partition> table = partitions;
+        int count = 0;
+        for (int i = 0; i < table.length(); i++) {
+            Partition partition = table.get(i);
+            if (partition != null && !partition.policy.isEmpty()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public void addPolicy(UUID role, UUID domain, String resource, String action) {
+        addPolicies(role, domain, List.of(new PolicyRule(resource, action)));
+    }
+
+    public void addPolicies(UUID role, UUID domain, Collection<PolicyRule> rules) {
+        int roleId = dictionary.intern(role);
+        update(domain, true, policy -> policy.withRules(roleId, rules));
+    }
+
+    /**
+     * Replaces all rules of a role in one step, recompiling its holders once.
+     */
+    public void replacePolicies(UUID role, UUID domain, Collection<PolicyRule> rules) {
+        int roleId = dictionary.intern(role);
+        update(domain, true, policy -> policy.withReplacedRules(roleId, rules));
+    }
+
+    public void removeFilteredPolicy(UUID role, UUID domain) {
+        int roleId = dictionary.find(role);
+        update(domain, false, policy -> policy.withoutRules(roleId));
+    }
+
+    public void addGroupingPolicy(UUID subject, UUID role, UUID domain) {
+        int subjectId = dictionary.intern(subject);
+        int roleId = dictionary.intern(role);
+        update(domain, true, policy -> policy.withGrouping(subjectId, roleId));
+    }
+
+    /**
+     * Adds a batch of groupings, publishing each workspace they touch once.
+     */
+    public void addGroupingPolicies(Collection<Grouping> groupings) {
+        Map<UUID, IntMap<int[]>> byDomain = new LinkedHashMap<>();
+        for (Grouping grouping : groupings) {
+            int subjectId = dictionary.intern(grouping.subject());
+            int roleId = dictionary.intern(grouping.role());
+            IntMap<int[]> added = byDomain.computeIfAbsent(grouping.domain(), d -> new IntMap<>());
+            int[] roles = added.get(subjectId);
+            if (roles == null) {
+                added.put(subjectId, new int[] {roleId});
+            } else {
+                roles = Arrays.copyOf(roles, roles.length + 1);
+                roles[roles.length - 1] = roleId;
+                added.put(subjectId, roles);
+            }
+        }
+        byDomain.forEach((domain, added) -> update(domain, true, policy -> policy.withGroupings(added)));
+    }
+
+    public void removeGroupingPolicy(UUID subject, UUID role, UUID domain) {
+        int subjectId = dictionary.find(subject);
+        int roleId = dictionary.find(role);
+        update(domain, false, policy -> policy.withoutGrouping(subjectId, roleId));
+    }
+
+    public void removeFilteredGroupingPolicy(UUID role, UUID domain) {
+        int roleId = dictionary.find(role);
+        update(domain, false, policy -> policy.withoutGroupingsTo(roleId));
+    }
+
+    /**
+     * Installs a new permission catalog and recompiles every workspace against it. A catalog equal
+     * to the installed one changes nothing, so workspaces keep their generation.
+     */
+    public void updateCatalog(PermissionCatalog newCatalog) {
+        if (newCatalog.equals(catalog)) {
+            return;
+        }
+        swapLock.readLock().lock();
+        try {
+            structureLock.lock();
+            try {
+                catalog = newCatalog;
+                emptyDomain = DomainPolicy.empty(dictionary, newCatalog);
+            } finally {
+                structureLock.unlock();
+            }
+            // Every publish reconciles with the installed catalog; this pass makes sure each partition does
+            forEachPartition(partition -> publish(partition, UnaryOperator.identity()));
+        } finally {
+            swapLock.readLock().unlock();
+        }
+        log.debug("Installed permission catalog with {} entries", newCatalog.size());
+    }
+
+    public void clear() {
+        swapLock.readLock().lock();
+        try {
+            forEachPartition(partition -> publish(partition, current -> emptyDomain));
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the whole policy with the given Casbin rows, see {@link #rebuild}.
+     */
+    public WorkspaceTasks.Report<UUID> load(List<List<String>> policies, List<List<String>> groupings) {
+        return rebuild(() -> new Rows(policies, groupings));
+    }
+
+    /**
+     * Replaces the whole policy with the Casbin rows returned by {@code source}
+     * ({@code [sub, dom, obj, act]} for policies, {@code [sub, role, dom]} for groupings). Rows whose
+     * subject, role or domain is not a UUID cannot have been written by this service and are skipped.
+     *
+     * <p>Checks keep being answered from the current policy while {@code source} reads the rows and
+     * the new one is compiled; the new policy of every workspace is then published with one swap.
+     * Writes made from the moment {@code source} is called, or from the start of an enclosing
+     * {@link #journaling} call, are replayed onto the new policy before the swap; writes are
+     * idempotent, so replaying one the rows already reflect changes nothing.
+     * Returns how long the workspaces took to compile, slowest first.
+     */
+    public WorkspaceTasks.Report<UUID> rebuild(Supplier<Rows> source) {
+        int[] counts = new int[2];
+        WorkspaceTasks.Report<UUID> report = swapIn(() -> {
+            Rows rows = source.get();
+            counts[0] = rows.policies().size();
+            counts[1] = rows.groupings().size();
+            return group(rows);
+        });
+        log.debug("Loaded {} policies and {} groupings across {} domains ({} interned ids)",
+            counts[0], counts[1], report.workspaces(), dictionary.size());
+        return report;
+    }
+
+    /**
+     * Runs {@code work}, which reads rows and {@linkplain #rebuild rebuilds} from them, with writes
+     * journaled from the start of {@code work} rather than from the rebuild's read. For reads in a
+     * transaction whose first query comes before the rebuild: the rows reflect that query's
+     * snapshot, so a write committed after it must be journaled even if it is applied before the
+     * rebuild starts.
+     */
+    public void journaling(Runnable work) {
+        rebuildLock.lock();
+        try {
+            journal = new ArrayList<>();
+            work.run();
+        } finally {
+            journal = null;
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the whole policy with domains assembled by {@code source}, with the same guarantees
+     * as {@link #rebuild}. Used to restore a {@link PolicySnapshotFile}.
+     */
+    WorkspaceTasks.Report<UUID> restore(Supplier<IntMap<DomainPolicy.Builder>> source) {
+        return swapIn(source);
+    }
+
+    /**
+     * Switches to lazy loading: workspaces first written or checked from now on start out not
+     * resident. Called once, before any workspace is loaded.
+     */
+    public void enableLazyLoading() {
+        lazy = true;
+    }
+
+    /**
+     * Whether the workspace's policy is held in memory; always so without lazy loading.
+     */
+    public boolean isResident(UUID domain) {
+        if (!lazy) {
+            return true;
+        }
+        Partition partition = partition(slots.find(domain));
+        return partition != null && partition.residency == Residency.RESIDENT;
+    }
+
+    /**
+     * Whether writes to the workspace are applied, that is whether it is resident or being loaded.
+     */
+    public boolean isTracked(UUID domain) {
+        if (!lazy) {
+            return true;
+        }
+        Partition partition = partition(slots.find(domain));
+        return partition != null && partition.residency != Residency.ABSENT;
+    }
+
+    /**
+     * Starts loading a workspace; call before reading its rows, so that no write committed after
+     * the read started is lost. Writes from now on are queued until {@link #completeLoad}; checks
+     * keep seeing the current policy, which is empty unless this is a reload. Returns the load to
+     * pass to {@code completeLoad}.
+     */
+    public long beginLoad(UUID domain) {
+        // Resolved under the swap lock, like any write, so that the partition cannot be swapped out meanwhile
+        swapLock.readLock().lock();
+        try {
+            Partition partition = partitionForWrite(domain);
+            partition.lock.lock();
+            try {
+                if (partition.residency != Residency.LOADING) {
+                    partition.residency = Residency.LOADING;
+                    partition.transitions++;
+                    partition.queued = new ArrayList<>();
+                }
+                return partition.transitions;
+            } finally {
+                partition.lock.unlock();
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Publishes a workspace compiled from {@code rows}, all of which must belong to it, with the
+     * writes queued since {@link #beginLoad} applied on top. Returns the loaded policy, or
+     * {@code null} if the workspace was evicted or loaded again since the {@code load} began: the
+     * writes made while it was not loading were dropped, so the rows may be missing some of them.
+     */
+    public DomainPolicy completeLoad(UUID domain, long load, Rows rows) {
+        int domainId = dictionary.intern(domain);
+        DomainPolicy.Builder builder = group(rows).getOrDefault(domainId, DomainPolicy.builder());
+        DomainPolicy loaded = builder.build(dictionary, catalog);
+        swapLock.readLock().lock();
+        Partition partition = partitionForWrite(domain);
+        partition.lock.lock();
+        try {
+            if (partition.residency != Residency.LOADING || partition.transitions != load) {
+                return null;
+            }
+            List<UnaryOperator<DomainPolicy>> queued = partition.queued;
+            partition.queued = null;
+            publish(partition, current -> {
+                DomainPolicy policy = loaded;
+                if (queued != null) {
+                    for (UnaryOperator<DomainPolicy> write : queued) {
+                        policy = write.apply(policy);
+                    }
+                }
+                return policy;
+            });
+            // Only once the loaded policy is published, so that a resident workspace never shows an older one
+            partition.residency = Residency.RESIDENT;
+            partition.transitions++;
+            return partition.policy;
+        } finally {
+            partition.lock.unlock();
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Drops a workspace's policy from memory until it is loaded again. Decisions cached against it
+     * are invalidated by the generation change.
+     */
+    public void evict(UUID domain) {
+        Partition partition = partition(slots.find(domain));
+        if (partition == null) {
+            return;
+        }
+        swapLock.readLock().lock();
+        partition.lock.lock();
+        try {
+            partition.residency = Residency.ABSENT;
+            partition.transitions++;
+            partition.queued = null;
+            partition.policy = emptyDomain.withGeneration(generations.incrementAndGet());
+        } finally {
+            partition.lock.unlock();
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The current policy as Casbin rows, the inverse of {@link #rebuild}; each workspace is read
+     * from one consistent snapshot. Walks every partition; not for hot paths.
+     */
+    public Rows rows() {
+        List<Map.Entry<Integer, DomainPolicy>> domains = new ArrayList<>();
+        forEachDomain((domain, policy) -> domains.add(Map.entry(domain, policy)));
+        // Read after the policies, so every id they reference is resolved
+        IntMap<String> uuids = new IntMap<>(dictionary.size());
+        dictionary.forEach((id, msb, lsb) -> uuids.put(id, new UUID(msb, lsb).toString()));
+        List<List<String>> policies = new ArrayList<>();
+        List<List<String>> groupings = new ArrayList<>();
+        for (Map.Entry<Integer, DomainPolicy> entry : domains) {
+            String domain = uuids.get(entry.getKey());
+            entry.getValue().rulesByRole().forEach((role, permissions) -> {
+                for (PolicyRule rule : permissions.rules()) {
+                    policies.add(List.of(uuids.get(role), domain, rule.resource(), rule.action()));
+                }
+            });
+            entry.getValue().rolesBySubject().forEach((subject, roles) -> {
+                for (int role : roles) {
+                    groupings.add(List.of(uuids.get(subject), uuids.get(role), domain));
+                }
+            });
+        }
+        return new Rows(policies, groupings);
+    }
+
+    UuidDictionary dictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Visits the current policy of every workspace holding any.
+     */
+    void forEachDomain(IntMap.Entries<DomainPolicy> action) {
+        forEachPartition(partition -> {
+            DomainPolicy policy = partition.policy;
+            if (!policy.isEmpty()) {
+                action.accept(partition.domain, policy);
+            }
+        });
+    }
+
+    /**
+     * Compiles the domains assembled by {@code source} and publishes them as a new partition table
+     * with one swap, replaying the writes journaled meanwhile.
+     */
+    private WorkspaceTasks.Report<UUID> swapIn(Supplier<IntMap<DomainPolicy.Builder>> source) {
+        WorkspaceTasks.Report<Integer> report;
+        rebuildLock.lock();
+        try {
+            if (journal == null) {
+                journal = new ArrayList<>();
+            }
+            IntMap<DomainPolicy.Builder> builders = source.get();
+            IntMap<DomainPolicy> loaded = new IntMap<>(builders.size());
+            report = build(builders, loaded);
+            IntMap<Integer> slotsByDomain = slotsOf(loaded);
+
+            swapLock.writeLock().lock();
+            try {
+                // No writer runs now; stop journaling so that placing and replaying is not journaled itself
+                List<JournalEntry> replay = journal;
+                journal = null;
+                AtomicReferenceArray<Partition> table = new AtomicReferenceArray<>(capacityFor(slots.size()));
+                loaded.forEach((domain, policy) -> {
+                    int slot = slotsByDomain.get(domain);
+                    table.set(slot, new Partition(slot, domain, emptyDomain));
+                });
+                forEachPartition(table, partition -> publish(partition, current -> loaded.get(partition.domain)));
+                for (JournalEntry entry : replay) {
+                    Partition partition = table.get(entry.slot());
+                    if (partition == null) {
+                        partition = new Partition(entry.slot(), entry.domain(), emptyDomain);
+                        table.set(entry.slot(), partition);
+                    }
+                    publish(partition, entry.update());
+                }
+                partitions = table;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+        } finally {
+            journal = null;
+            rebuildLock.unlock();
+        }
+        return withWorkspaceUuids(report);
+    }
+
+    /**
+     * The partition slot of every domain in {@code domains}, by dictionary id; assigns slots to
+     * domains seen for the first time. One pass over the dictionary.
+     */
+    private IntMap<Integer> slotsOf(IntMap<?> domains) {
+        IntMap<Integer> slotsByDomain = new IntMap<>(domains.size());
+        dictionary.forEach((id, msb, lsb) -> {
+            if (domains.containsKey(id)) {
+                slotsByDomain.put(id, slots.intern(new UUID(msb, lsb)));
+            }
+        });
+        return slotsByDomain;
+    }
+
+    /**
+     * Compiles every domain on its own, in parallel, into {@code loaded}.
+     */
+    private WorkspaceTasks.Report<Integer> build(IntMap<DomainPolicy.Builder> builders, IntMap<DomainPolicy> loaded) {
+        List<BuildSlot> slots = new ArrayList<>(builders.size());
+        builders.forEach((domain, builder) -> slots.add(new BuildSlot(domain, builder)));
+        PermissionCatalog current = catalog;
+        WorkspaceTasks.Report<Integer> report = WorkspaceTasks.run("Policy build", buildParallelism, slots,
+            slot -> slot.domain, slot -> slot.policy = slot.builder.build(dictionary, current));
+        for (BuildSlot slot : slots) {
+            loaded.put(slot.domain, slot.policy);
+        }
+        return report;
+    }
+
+    /**
+     * Resolves the domain ids of a report back to their UUIDs, with one pass over the dictionary.
+     */
+    private WorkspaceTasks.Report<UUID> withWorkspaceUuids(WorkspaceTasks.Report<Integer> report) {
+        Map<Integer, UUID> uuids = new HashMap<>();
+        for (WorkspaceTasks.Timing<Integer> timing : report.slowest()) {
+            uuids.put(timing.workspace(), null);
+        }
+        if (!uuids.isEmpty()) {
+            dictionary.forEach((id, msb, lsb) -> {
+                if (uuids.containsKey(id)) {
+                    uuids.put(id, new UUID(msb, lsb));
+                }
+            });
+        }
+        return report.mapWorkspaces(uuids::get);
+    }
+
+    private IntMap<DomainPolicy.Builder> group(Rows rows) {
+        IntMap<DomainPolicy.Builder> builders = new IntMap<>();
+        int skipped = 0;
+        for (List<String> p : rows.policies()) {
+            try {
+                int role = dictionary.intern(UUID.fromString(p.get(0)));
+                builders.computeIfAbsent(dictionary.intern(UUID.fromString(p.get(1))), d -> DomainPolicy.builder())
+                    .addRule(role, new PolicyRule(p.get(2), p.get(3)));
+            } catch (IllegalArgumentException e) {
+                skipped++;
+            }
+        }
+        for (List<String> g : rows.groupings()) {
+            try {
+                int subject = dictionary.intern(UUID.fromString(g.get(0)));
+                int role = dictionary.intern(UUID.fromString(g.get(1)));
+                builders.computeIfAbsent(dictionary.intern(UUID.fromString(g.get(2))), d -> DomainPolicy.builder())
+                    .addGrouping(subject, role);
+            } catch (IllegalArgumentException e) {
+                skipped++;
+            }
+        }
+        if (skipped > 0) {
+            log.warn("Skipped {} policy rows with non-UUID subjects, roles or domains", skipped);
+        }
+        return builders;
+    }
+
+    /**
+     * Applies {@code update} to one workspace under that workspace's lock. Removals pass
+     * {@code create = false}: a workspace without a partition holds no policy to remove from, so
+     * the update is skipped.
+     */
+    private void update(UUID domain, boolean create, UnaryOperator<DomainPolicy> update) {
+        swapLock.readLock().lock();
+        try {
+            Partition partition = create ? partitionForWrite(domain) : partition(slots.find(domain));
+            if (partition == null) {
+                return;
+            }
+            if (!lazy) {
+                publish(partition, update);
+                return;
+            }
+            partition.lock.lock();
+            try {
+                if (partition.residency == Residency.LOADING) {
+                    partition.queued.add(update);
+                } else if (partition.residency == Residency.RESIDENT) {
+                    publish(partition, update);
+                }
+            } finally {
+                partition.lock.unlock();
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Derives a partition's next policy from its current one and publishes it under a new
+     * generation, unless nothing changed. The result is recompiled if it was built against a
+     * catalog other than the installed one. While a rebuild is running the update is also
+     * journaled, under the partition lock so that the journal keeps each workspace's write order.
+     */
+    private void publish(Partition partition, UnaryOperator<DomainPolicy> update) {
+        partition.lock.lock();
+        try {
+            DomainPolicy current = partition.policy;
+            DomainPolicy updated = update.apply(current).recompiled(catalog);
+            if (updated != current) {
+                partition.policy = updated.withGeneration(generations.incrementAndGet());
+            }
+            List<JournalEntry> pending = journal;
+            if (pending != null) {
+                synchronized (pending) {
+                    pending.add(new JournalEntry(partition.slot, partition.domain, update));
+                }
+            }
+        } finally {
+            partition.lock.unlock();
+        }
+    }
+
+    private Partition partition(int slot) {
+        AtomicReferenceArray<Partition> table = partitions;
+        return slot > UuidDictionary.NONE && slot < table.length() ? table.get(slot) : null;
+    }
+
+    private Partition partitionForWrite(UUID domain) {
+        Partition partition = partition(slots.find(domain));
+        if (partition != null) {
+            return partition;
+        }
+        structureLock.lock();
+        try {
+            int slot = slots.intern(domain);
+            AtomicReferenceArray<Partition> table = partitions;
+            if (slot >= table.length()) {
+                AtomicReferenceArray<Partition> grown =
+                    new AtomicReferenceArray<>(Math.max(table.length() << 1, capacityFor(slot)));
+                for (int i = 0; i < table.length(); i++) {
+                    grown.set(i, table.get(i));
+                }
+                partitions = table = grown;
+            }
+            partition = table.get(slot);
+            if (partition == null) {
+                partition = new Partition(slot, dictionary.intern(domain), emptyDomain);
+                partition.residency = lazy ? Residency.ABSENT : Residency.RESIDENT;
+                table.set(slot, partition);
+            }
+            return partition;
+        } finally {
+            structureLock.unlock();
+        }
+    }
+
+    private static int capacityFor(int slot) {
+        return Math.max(INITIAL_PARTITIONS, Integer.highestOneBit(slot) << 1);
+    }
+
+    /**
+     * Length of the partition table, for tests.
+     */
+    int partitionCapacity() {
+        return partitions.length();
+    }
+
+    private void forEachPartition(Consumer<Partition> action) {
+        forEachPartition(partitions, action);
+    }
+
+    private static void forEachPartition(AtomicReferenceArray<Partition> table, Consumer<Partition> action) {
+        for (int i = 0; i < table.length(); i++) {
+            Partition partition = table.get(i);
+            if (partition != null) {
+                action.accept(partition);
+            }
+        }
+    }
+
+    /**
+     * Casbin rows to {@linkplain #rebuild rebuild} from.
+     */
+    public record Rows(List<List<String>> policies, List<List<String>> groupings) {
+    }
+
+    private record JournalEntry(int slot, int domain, UnaryOperator<DomainPolicy> update) {
+    }
+
+    /**
+     * One domain of a parallel build; its policy is read back only after every build finished.
+     */
+    private static final class BuildSlot {
+        private final int domain;
+        private final DomainPolicy.Builder builder;
+        private DomainPolicy policy;
+
+        private BuildSlot(int domain, DomainPolicy.Builder builder) {
+            this.domain = domain;
+            this.builder = builder;
+        }
+    }
+
+    private enum Residency {
+        ABSENT, LOADING, RESIDENT
+    }
+
+    /**
+     * One workspace: its current policy and the lock serializing writers to it. With lazy loading
+     * also whether it is resident, and the writes queued while it loads; both guarded by the lock.
+     * Indexed by its slot; {@code domain} is its dictionary id, which the policy rows refer to.
+     */
+    private static final class Partition {
+        private final int slot;
+        private final int domain;
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile DomainPolicy policy;
+        private volatile Residency residency = Residency.RESIDENT;
+        // Bumped on every residency change, before the policy changes with it
+        private volatile long transitions;
+        private List<UnaryOperator<DomainPolicy>> queued;
+
+        Partition(int slot, int domain, DomainPolicy policy) {
+            this.slot = slot;
+            this.domain = domain;
+            this.policy = policy;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.quckapp.permission.policy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The effective permissions of one subject in one domain: the union of its roles' catalog
+ * permissions as a single {@link PermissionBits}, plus the few roles whose rules fall outside the
+ * catalog. A check on a catalog permission is a hash lookup and a bit test.
+ */
+public final class SubjectPolicy {
+
+    static final SubjectPolicy NONE = new SubjectPolicy(PermissionCatalog.EMPTY, PermissionBits.EMPTY, PatternMatcher.EMPTY);
+
+    private final PermissionCatalog catalog;
+    private final PermissionBits bits;
+    private final PatternMatcher residual;
+
+    private SubjectPolicy(PermissionCatalog catalog, PermissionBits bits, PatternMatcher residual) {
+        this.catalog = catalog;
+        this.bits = bits;
+        this.residual = residual;
+    }
+
+    static SubjectPolicy compile(PermissionCatalog catalog, Collection<RolePermissions> roles) {
+        PermissionBits union = PermissionBits.EMPTY;
+        List<PolicyRule> residual = new ArrayList<>(0);
+        for (RolePermissions role : roles) {
+            union = union.or(role.bits());
+            residual.addAll(role.residualRules());
+        }
+        return new SubjectPolicy(catalog, union, PatternMatcher.compile(residual));
+    }
+
+    public boolean permits(String resource, String action) {
+        return catalog.test(bits, resource, action) || residual.matches(resource, action);
+    }
+
+    public boolean hasGrants() {
+        return !bits.isEmpty() || !residual.isEmpty();
+    }
+
+    public PermissionBits bits() {
+        return bits;
+    }
+}
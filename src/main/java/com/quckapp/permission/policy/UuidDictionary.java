@@ -0,0 +1,127 @@
+package com.quckapp.permission.policy;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.UUID;
+
+/**
+ * Interns UUIDs (users, roles, workspaces) as dense {@code int} ids so the policy can be stored
+ * and looked up without 36-character strings.
+ *
+ * <p>The table is open-addressed over the two {@code long} halves of the UUID, so neither interning
+ * nor lookup allocates. Ids are assigned from {@code 1} upwards and never reused; {@link #NONE} is
+ * returned for a UUID that was never interned. Interning is serialized, lookups are lock-free: a
+ * slot's halves are written before its id is published with release semantics, and a table is
+ * only swapped in once it is fully populated.
+ */
+public final class UuidDictionary {
+
+    public static final int NONE = 0;
+
+    private static final VarHandle IDS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    private volatile Table table = new Table(INITIAL_CAPACITY);
+    private int size;
+
+    /**
+     * Returns the id of {@code uuid}, or {@link #NONE} if it has never been interned.
+     */
+    public int find(UUID uuid) {
+        return table.find(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * Returns the id of {@code uuid}, assigning the next free id on first sight.
+     */
+    public synchronized int intern(UUID uuid) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        Table current = table;
+        int id = current.find(msb, lsb);
+        if (id != NONE) {
+            return id;
+        }
+        if ((size + 1) * 4L > current.ids.length * 3L) {
+            current = current.grown();
+            table = current;
+        }
+        id = ++size;
+        current.insert(msb, lsb, id);
+        return id;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Visits every interned UUID with its id, without locking; every id assigned before the call
+     * is visited.
+     */
+    void forEach(Entries entries) {
+        Table current = table;
+        for (int slot = 0; slot < current.ids.length; slot++) {
+            int id = (int) IDS.getAcquire(current.ids, slot);
+            if (id != NONE) {
+                entries.accept(id, current.msbs[slot], current.lsbs[slot]);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface Entries {
+        void accept(int id, long msb, long lsb);
+    }
+
+    private static final class Table {
+        private final long[] msbs;
+        private final long[] lsbs;
+        private final int[] ids;
+        private final int mask;
+
+        Table(int capacity) {
+            msbs = new long[capacity];
+            lsbs = new long[capacity];
+            ids = new int[capacity];
+            mask = capacity - 1;
+        }
+
+        int find(long msb, long lsb) {
+            for (int slot = slot(msb, lsb); ; slot = (slot + 1) & mask) {
+                int id = (int) IDS.getAcquire(ids, slot);
+                if (id == NONE) {
+                    return NONE;
+                }
+                if (msbs[slot] == msb && lsbs[slot] == lsb) {
+                    return id;
+                }
+            }
+        }
+
+        void insert(long msb, long lsb, int id) {
+            int slot = slot(msb, lsb);
+            while (ids[slot] != NONE) {
+                slot = (slot + 1) & mask;
+            }
+            msbs[slot] = msb;
+            lsbs[slot] = lsb;
+            IDS.setRelease(ids, slot, id);
+        }
+
+        Table grown() {
+            Table next = new Table(ids.length << 1);
+            for (int slot = 0; slot < ids.length; slot++) {
+                if (ids[slot] != NONE) {
+                    next.insert(msbs[slot], lsbs[slot], ids[slot]);
+                }
+            }
+            return next;
+        }
+
+        private int slot(long msb, long lsb) {
+            long h = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.quckapp.permission.policy;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs one task per workspace on a bounded fork/join pool and times each, so that a full build
+ * scales with the cores available and a pathological tenant shows up in the report by name.
+ * Tasks for different workspaces must not share mutable state.
+ */
+@Slf4j
+public final class WorkspaceTasks {
+
+    private static final int SLOWEST = 10;
+
+    private WorkspaceTasks() {
+    }
+
+    /**
+     * How long the task of one workspace took.
+     */
+    public record Timing<K>(K workspace, long nanos) {
+    }
+
+    /**
+     * Outcome of a run: the number of workspaces, the wall-clock time, and the slowest workspaces
+     * first.
+     */
+    public record Report<K>(int workspaces, long elapsedNanos, List<Timing<K>> slowest) {
+
+        static <K> Report<K> empty() {
+            return new Report<>(0, 0, List.of());
+        }
+
+        public <T> Report<T> mapWorkspaces(Function<K, T> mapper) {
+            return new Report<>(workspaces, elapsedNanos, slowest.stream()
+                .map(timing -> new Timing<>(mapper.apply(timing.workspace()), timing.nanos()))
+                .toList());
+        }
+    }
+
+    /**
+     * Normalizes a configured parallelism; anything below one means one thread per core.
+     */
+    public static int parallelism(int configured) {
+        return configured > 0 ? configured : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Runs {@code task} for every item on at most {@code parallelism} threads and waits for all of
+     * them. The first failure is rethrown once every task has finished.
+     */
+    public static <T, K> Report<K> run(String name, int parallelism, Collection<T> items,
+                                       Function<T, K> workspace, Consumer<T> task) {
+        if (items.isEmpty()) {
+            return Report.empty();
+        }
+        long start = System.nanoTime();
+        int total = items.size();
+        int step = Math.max(1, total / 10);
+        AtomicInteger done = new AtomicInteger();
+        // Kept as thrown; a fork/join future would rethrow a reflective copy
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        List<Callable<Timing<K>>> calls = new ArrayList<>(total);
+        for (T item : items) {
+            calls.add(() -> {
+                long begin = System.nanoTime();
+                try {
+                    task.accept(item);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                    return null;
+                }
+                Timing<K> timing = new Timing<>(workspace.apply(item), System.nanoTime() - begin);
+                int completed = done.incrementAndGet();
+                if (completed % step == 0 && log.isDebugEnabled()) {
+                    log.debug("{}: {}/{} workspaces done", name, completed, total);
+                }
+                return timing;
+            });
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism(parallelism), total));
+        try {
+            List<Timing<K>> timings = new ArrayList<>(total);
+            for (Future<Timing<K>> future : pool.invokeAll(calls)) {
+                try {
+                    timings.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(name + " failed", e.getCause());
+                }
+            }
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+            timings.sort(Comparator.comparingLong((Timing<K> timing) -> timing.nanos()).reversed());
+            return new Report<>(total, System.nanoTime() - start, List.copyOf(timings.subList(0, Math.min(SLOWEST, total))));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(name + " was interrupted", e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -1,138 +1,645 @@
 package com.quckapp.permission.service;
 
 import com.quckapp.permission.domain.entity.Permission;
+import com.quckapp.permission.domain.entity.PolicyChange;
 import com.quckapp.permission.domain.entity.Role;
-import com.quckapp.permission.domain.entity.UserRole;
+import com.quckapp.permission.domain.entity.WorkspacePolicyVersion;
+import com.quckapp.permission.domain.projection.RolePermissionRow;
+import com.quckapp.permission.domain.projection.UserRoleGrant;
+import com.quckapp.permission.domain.repository.PermissionRepository;
+import com.quckapp.permission.domain.repository.PolicyChangeRepository;
 import com.quckapp.permission.domain.repository.RoleRepository;
 import com.quckapp.permission.domain.repository.UserRoleRepository;
+import com.quckapp.permission.domain.repository.WorkspacePolicyVersionRepository;
+import com.quckapp.permission.dto.PermissionDtos.CheckPermissionRequest;
+import com.quckapp.permission.policy.DecisionCache;
+import com.quckapp.permission.policy.DomainPolicy;
+import com.quckapp.permission.policy.DomainTableAdapter;
+import com.quckapp.permission.policy.Grouping;
+import com.quckapp.permission.policy.PermissionCatalog;
+import com.quckapp.permission.policy.PolicyRule;
+import com.quckapp.permission.policy.PolicySnapshotFile;
+import com.quckapp.permission.policy.SnapshotEnforcer;
+import com.quckapp.permission.policy.SubjectPolicy;
+import com.quckapp.permission.policy.WorkspaceTasks;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.casbin.jcasbin.main.SyncedEnforcer;
-import org.springframework.boot.context.event.ApplicationReadyEvent;
-import org.springframework.context.event.EventListener;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class CasbinPolicySyncService {
 
-    private final SyncedEnforcer enforcer;
+    private static final int APPLY_LOCK_STRIPES = 64;
+
+    private final DomainTableAdapter adapter;
+    private final SnapshotEnforcer snapshotEnforcer;
+    private final DecisionCache decisionCache;
     private final RoleRepository roleRepository;
+    private final PermissionRepository permissionRepository;
     private final UserRoleRepository userRoleRepository;
+    private final PolicyChangeRepository policyChangeRepository;
+    private final WorkspacePolicyVersionRepository versionRepository;
+    private final PolicySnapshotService policySnapshotService;
+    private final WorkspacePolicyLoader workspacePolicyLoader;
+    private final PolicyGenerations policyGenerations;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.permission.sync.parallelism:0}")
+    private int syncParallelism;
 
-    @EventListener(ApplicationReadyEvent.class)
+    // Per running full sync, the roles and grants changed in memory since it started reading
+    private final Set<Set<Object>> runningSyncs = ConcurrentHashMap.newKeySet();
+    // Striped by workspace; see recordChange
+    private final ReentrantLock[] applyLocks = Stream.generate(ReentrantLock::new)
+        .limit(APPLY_LOCK_STRIPES)
+        .toArray(ReentrantLock[]::new);
+
+    /**
+     * Loads the snapshot enforcer, which starts out empty. Run once in the background by
+     * {@link PolicyWarmup}, which keeps the service out of rotation until this returns; failures
+     * propagate so that it can report them and retry.
+     */
     @Transactional(readOnly = true)
     public void syncPoliciesOnStartup() {
         log.info("Syncing Casbin policies on application startup...");
-        try {
-            syncAllPolicies();
-            log.info("Casbin policies synced successfully");
-        } catch (Exception e) {
-            log.error("Failed to sync Casbin policies on startup", e);
+        if (workspacePolicyLoader.isEnabled()) {
+            // Only the pinned workspaces up front; a snapshot file would hold every workspace
+            snapshotEnforcer.updateCatalog(PermissionCatalog.of(permissionRepository.findAll()));
+            logReport("preload", rebuildTimer("preload").record(workspacePolicyLoader::loadPinned));
+            log.info("Casbin policies of pinned workspaces loaded");
+            return;
+        }
+        // Journaled from before the first read of the transaction, which fixes what the load sees
+        snapshotEnforcer.journaling(() -> {
+            // Every change at these versions is in the tables the load reads
+            Map<UUID, Long> versions = currentVersions();
+            if (!rebuildTimer("restore").record(this::restoreSnapshot)) {
+                rebuildTimer("startup").record(() -> loadSnapshotFromTables("startup"));
+            }
+            policyGenerations.advanceAll(versions);
+        });
+        policySnapshotService.markCurrent();
+        log.info("Casbin policies synced successfully");
+    }
+
+    /**
+     * Serves from the on-disk policy snapshot, if there is a usable one, and replays the changes
+     * logged since it was written against the domain tables.
+     */
+    private boolean restoreSnapshot() {
+        snapshotEnforcer.updateCatalog(PermissionCatalog.of(permissionRepository.findAll()));
+        Optional<PolicySnapshotFile.Image> image = policySnapshotService.restore();
+        if (image.isEmpty()) {
+            return false;
+        }
+        logReport("restore", image.get().build());
+        catchUp(policySnapshotService.changesSince(image.get()));
+        return true;
+    }
+
+    /**
+     * Brings the snapshot enforcer up to date with the tables for every role and grant the
+     * changes touched. Each is re-read rather than replayed, so the outcome does not depend on
+     * the order of the changes or on whether the snapshot already reflected some of them.
+     */
+    void catchUp(List<PolicyChange> changes) {
+        Set<RoleKey> roles = new LinkedHashSet<>();
+        Set<UserRoleGrant> grants = new LinkedHashSet<>();
+        for (PolicyChange change : changes) {
+            if (change.getKind() == PolicyChange.Kind.ROLE) {
+                roles.add(new RoleKey(change.getRoleId(), change.getWorkspaceId()));
+            } else {
+                grants.add(new UserRoleGrant(change.getUserId(), change.getRoleId(), change.getWorkspaceId()));
+            }
+        }
+        for (RoleKey key : roles) {
+            roleRepository.findByIdWithPermissions(key.roleId())
+                .filter(role -> role.getWorkspaceId().equals(key.workspaceId()))
+                .ifPresentOrElse(
+                    role -> snapshotEnforcer.replacePolicies(key.roleId(), key.workspaceId(), toRules(role)),
+                    () -> {
+                        snapshotEnforcer.removeFilteredPolicy(key.roleId(), key.workspaceId());
+                        snapshotEnforcer.removeFilteredGroupingPolicy(key.roleId(), key.workspaceId());
+                    });
+        }
+        for (UserRoleGrant grant : grants) {
+            if (userRoleRepository.existsByUserIdAndRoleIdAndWorkspaceId(grant.userId(), grant.roleId(), grant.workspaceId())) {
+                snapshotEnforcer.addGroupingPolicy(grant.userId(), grant.roleId(), grant.workspaceId());
+            } else {
+                snapshotEnforcer.removeGroupingPolicy(grant.userId(), grant.roleId(), grant.workspaceId());
+            }
         }
+        log.info("Caught up {} policy changes ({} roles, {} grants) since the snapshot",
+            changes.size(), roles.size(), grants.size());
     }
 
+    /**
+     * Reconciles the snapshot enforcer with the domain tables. The desired policy set is read with
+     * two projection queries (every role's (resource, action) pairs, and a stream of every
+     * user-role grant) and diffed against the rows the enforcer currently holds. Only missing rules
+     * are added and only stale ones removed; a resync with nothing to change republishes nothing.
+     * Roles and grants changed in memory after the sync started are left alone: the tables it
+     * read may predate the change.
+     */
+    @Transactional(readOnly = true)
     public void syncAllPolicies() {
-        // Clear existing policies
-        enforcer.clearPolicy();
+        if (workspacePolicyLoader.isEnabled()) {
+            rebuildTimer("sync").record(this::reloadResident);
+            return;
+        }
+        // Journal changes from before the first read, which fixes what the tables show from then on
+        Set<Object> changed = ConcurrentHashMap.newKeySet();
+        runningSyncs.add(changed);
+        try {
+            Map<UUID, Long> versions = currentVersions();
+            rebuildTimer("sync").record(() -> applyTableDiff(changed));
+            policyGenerations.advanceAll(versions);
+        } finally {
+            runningSyncs.remove(changed);
+        }
+    }
+
+    /**
+     * Lazy loading: only the resident workspaces are in memory, so those are all there is to sync.
+     */
+    private void reloadResident() {
+        snapshotEnforcer.updateCatalog(PermissionCatalog.of(permissionRepository.findAll()));
+        logReport("resident reload", workspacePolicyLoader.reloadResident());
+    }
+
+    private void applyTableDiff(Set<Object> changed) {
+        snapshotEnforcer.updateCatalog(PermissionCatalog.of(permissionRepository.findAll()));
+        Map<UUID, WorkspaceDelta> deltas = new HashMap<>();
+        SnapshotEnforcer.Rows current = snapshotEnforcer.rows();
 
-        // Sync all roles and their permissions
-        List<Role> roles = roleRepository.findAll();
-        for (Role role : roles) {
-            Role roleWithPerms = roleRepository.findByIdWithPermissions(role.getId()).orElse(role);
-            syncRolePermissions(roleWithPerms);
+        // Role permissions: the desired set is small enough to diff in one go
+        Map<RoleKey, List<PolicyRule>> rulesByRole = new LinkedHashMap<>();
+        Set<List<String>> desiredPolicies = new LinkedHashSet<>();
+        for (RolePermissionRow row : roleRepository.findAllRolePermissionRows()) {
+            desiredPolicies.add(List.of(row.roleId().toString(), row.workspaceId().toString(), row.resource(), row.action()));
+            rulesByRole.computeIfAbsent(new RoleKey(row.roleId(), row.workspaceId()), key -> new ArrayList<>())
+                .add(new PolicyRule(row.resource(), row.action()));
+        }
+        Set<List<String>> stalePolicies = new HashSet<>(current.policies());
+        List<List<String>> missingPolicies = new ArrayList<>();
+        for (List<String> policy : desiredPolicies) {
+            if (!stalePolicies.remove(policy)) {
+                missingPolicies.add(policy);
+            }
         }
+        recordPolicyDelta(missingPolicies, stalePolicies, rulesByRole, deltas);
 
-        // Sync all user-role assignments
-        List<UserRole> userRoles = userRoleRepository.findAll();
-        for (UserRole userRole : userRoles) {
-            addUserRoleAssignment(userRole.getUserId(), userRole.getRoleId(), userRole.getWorkspaceId());
+        // User-role assignments: whatever is left of the current groupings after the stream is stale
+        Set<List<String>> staleGroupings = new HashSet<>(current.groupings());
+        long assignments = 0;
+        long addedGroupings = 0;
+        try (Stream<UserRoleGrant> grants = userRoleRepository.streamAllGrants()) {
+            for (Iterator<UserRoleGrant> it = grants.iterator(); it.hasNext(); assignments++) {
+                UserRoleGrant grant = it.next();
+                if (staleGroupings.remove(toGrouping(grant))) {
+                    continue;
+                }
+                deltas.computeIfAbsent(grant.workspaceId(), WorkspaceDelta::new).addedGroupings
+                    .add(new Grouping(grant.userId(), grant.roleId(), grant.workspaceId()));
+                addedGroupings++;
+            }
         }
+        recordRemovedGroupings(staleGroupings, deltas);
+
+        // The snapshot is partitioned, so workspaces apply in parallel
+        WorkspaceTasks.Report<UUID> report = WorkspaceTasks.run("Policy sync", syncParallelism, deltas.values(),
+            delta -> delta.workspaceId, delta -> applyToSnapshot(delta, changed));
+        logReport("sync", report);
 
-        log.info("Synced {} roles and {} user-role assignments", roles.size(), userRoles.size());
+        log.info("Synced {} roles and {} user-role assignments (policies +{}/-{}, groupings +{}/-{})",
+            rulesByRole.size(), assignments, missingPolicies.size(), stalePolicies.size(),
+            addedGroupings, staleGroupings.size());
     }
 
-    public void syncRolePermissions(Role role) {
-        String workspaceId = role.getWorkspaceId().toString();
-        String roleId = role.getId().toString();
+    /**
+     * Records the rules of every role the policy diff touched as the snapshot change of that
+     * role's workspace.
+     */
+    private void recordPolicyDelta(List<List<String>> missing, Set<List<String>> stale,
+                                   Map<RoleKey, List<PolicyRule>> rulesByRole, Map<UUID, WorkspaceDelta> deltas) {
+        Set<RoleKey> touched = new LinkedHashSet<>();
+        for (List<String> policy : missing) {
+            touched.add(toRoleKey(policy));
+        }
+        for (List<String> policy : stale) {
+            touched.add(toRoleKey(policy));
+        }
+        touched.remove(null);
+        for (RoleKey role : touched) {
+            // No rules left means the role's rules are removed
+            deltas.computeIfAbsent(role.workspaceId(), WorkspaceDelta::new).roles
+                .put(role.roleId(), rulesByRole.get(role));
+        }
+    }
 
-        // Add policies for each permission
-        for (Permission permission : role.getPermissions()) {
-            String resource = permission.getResource();
-            String action = permission.getAction();
-
-            // Add policy: role has permission on resource/action in workspace
-            boolean added = enforcer.addPolicy(roleId, workspaceId, resource, action);
-            if (added) {
-                log.debug("Added policy: role={}, workspace={}, resource={}, action={}",
-                    roleId, workspaceId, resource, action);
+    private void recordRemovedGroupings(Collection<List<String>> groupings, Map<UUID, WorkspaceDelta> deltas) {
+        for (List<String> grouping : groupings) {
+            UUID workspaceId = UUID.fromString(grouping.get(2));
+            deltas.computeIfAbsent(workspaceId, WorkspaceDelta::new).removedGroupings.add(
+                new Grouping(UUID.fromString(grouping.get(0)), UUID.fromString(grouping.get(1)), workspaceId));
+        }
+    }
+
+    /**
+     * Brings one workspace of the snapshot enforcer in line with the tables, skipping what was
+     * {@code changed} since the sync started. Runs concurrently with the other workspaces of a
+     * sync, and under the workspace's apply lock, so that no change is applied between the check
+     * and the update.
+     */
+    private void applyToSnapshot(WorkspaceDelta delta, Set<Object> changed) {
+        UUID workspaceId = delta.workspaceId;
+        applyLocked(workspaceId, () -> {
+            delta.roles.forEach((roleId, rules) -> {
+                if (changed.contains(new RoleKey(roleId, workspaceId))) {
+                    return;
+                }
+                if (rules == null) {
+                    snapshotEnforcer.removeFilteredPolicy(roleId, workspaceId);
+                } else {
+                    snapshotEnforcer.replacePolicies(roleId, workspaceId, rules);
+                }
+            });
+            List<Grouping> added = delta.addedGroupings.stream().filter(grouping -> !isChanged(grouping, changed)).toList();
+            if (!added.isEmpty()) {
+                snapshotEnforcer.addGroupingPolicies(added);
             }
+            for (Grouping grouping : delta.removedGroupings) {
+                if (!isChanged(grouping, changed)) {
+                    snapshotEnforcer.removeGroupingPolicy(grouping.subject(), grouping.role(), grouping.domain());
+                }
+            }
+        });
+    }
+
+    private static boolean isChanged(Grouping grouping, Set<Object> changed) {
+        // Removing a role removes its grants too
+        return changed.contains(grouping) || changed.contains(new RoleKey(grouping.role(), grouping.domain()));
+    }
+
+    private static List<String> toGrouping(UserRoleGrant grant) {
+        return List.of(grant.userId().toString(), grant.roleId().toString(), grant.workspaceId().toString());
+    }
+
+    /**
+     * The (role, workspace) of a Casbin policy row, or {@code null} if either is not a UUID.
+     */
+    private static RoleKey toRoleKey(List<String> policy) {
+        try {
+            return new RoleKey(UUID.fromString(policy.get(0)), UUID.fromString(policy.get(1)));
+        } catch (IllegalArgumentException e) {
+            return null;
         }
     }
 
-    public void addUserRoleAssignment(UUID userId, UUID roleId, UUID workspaceId) {
+    /**
+     * Adds a new role's policies; returns the policy generation of the change, as do all local writes.
+     */
+    public long syncRolePermissions(Role role) {
+        // Add policies for each permission: role has permission on resource/action in workspace
+        List<PolicyRule> rules = toRules(role);
+        long generation = recordChange(PolicyChange.Kind.ROLE, role.getId(), role.getWorkspaceId(), null,
+            () -> snapshotEnforcer.addPolicies(role.getId(), role.getWorkspaceId(), rules));
+        log.debug("Added {} policies for role={} in workspace={}", rules.size(), role.getId(), role.getWorkspaceId());
+        return generation;
+    }
+
+    /**
+     * Replaces the permission policies of an existing role while keeping its user assignments,
+     * so holders of the role are recompiled once instead of losing and regaining it.
+     */
+    public long replaceRolePermissions(Role role) {
+        List<PolicyRule> rules = toRules(role);
+        long generation = recordChange(PolicyChange.Kind.ROLE, role.getId(), role.getWorkspaceId(), null,
+            () -> snapshotEnforcer.replacePolicies(role.getId(), role.getWorkspaceId(), rules));
+        log.debug("Replaced policies for role={} in workspace={} with {} rules", role.getId(), role.getWorkspaceId(), rules.size());
+        return generation;
+    }
+
+    public long addUserRoleAssignment(UUID userId, UUID roleId, UUID workspaceId) {
         // Add grouping policy: user has role in workspace
-        boolean added = enforcer.addGroupingPolicy(
-            userId.toString(),
-            roleId.toString(),
-            workspaceId.toString()
-        );
-        if (added) {
-            log.debug("Added grouping: user={}, role={}, workspace={}", userId, roleId, workspaceId);
+        long generation = recordChange(PolicyChange.Kind.GRANT, roleId, workspaceId, userId,
+            () -> snapshotEnforcer.addGroupingPolicy(userId, roleId, workspaceId));
+        log.debug("Added grouping: user={}, role={}, workspace={}", userId, roleId, workspaceId);
+        return generation;
+    }
+
+    private static List<PolicyRule> toRules(Role role) {
+        List<PolicyRule> rules = new ArrayList<>(role.getPermissions().size());
+        for (Permission permission : role.getPermissions()) {
+            rules.add(new PolicyRule(permission.getResource(), permission.getAction()));
         }
+        return rules;
+    }
+
+    public long removeUserRoleAssignment(UUID userId, UUID roleId, UUID workspaceId) {
+        long generation = recordChange(PolicyChange.Kind.GRANT, roleId, workspaceId, userId,
+            () -> snapshotEnforcer.removeGroupingPolicy(userId, roleId, workspaceId));
+        log.debug("Removed grouping: user={}, role={}, workspace={}", userId, roleId, workspaceId);
+        return generation;
+    }
+
+    public long removeRolePolicies(UUID roleId, UUID workspaceId) {
+        long generation = recordChange(PolicyChange.Kind.ROLE, roleId, workspaceId, null,
+            () -> removeRole(roleId, workspaceId));
+        log.debug("Removed all policies for role={} in workspace={}", roleId, workspaceId);
+        return generation;
     }
 
-    public void removeUserRoleAssignment(UUID userId, UUID roleId, UUID workspaceId) {
-        boolean removed = enforcer.removeGroupingPolicy(
-            userId.toString(),
-            roleId.toString(),
-            workspaceId.toString()
-        );
-        if (removed) {
-            log.debug("Removed grouping: user={}, role={}, workspace={}", userId, roleId, workspaceId);
+    private void removeRole(UUID roleId, UUID workspaceId) {
+        // Remove all policies and groupings for this role
+        snapshotEnforcer.removeFilteredPolicy(roleId, workspaceId);
+        snapshotEnforcer.removeFilteredGroupingPolicy(roleId, workspaceId);
+    }
+
+    // ===== Changes made on other nodes, see PolicyChangeConsumer =====
+    // Applied like the local writes above, but not logged again: the node that made them did.
+    // Under the workspace's apply lock, so they do not overtake a local change that committed earlier.
+
+    /**
+     * Sets a role's permissions to those it has after a change on another node.
+     */
+    public void applyRolePolicies(UUID roleId, UUID workspaceId, List<PolicyRule> rules) {
+        applyLocked(workspaceId, changeOf(roleId, workspaceId, null),
+            () -> snapshotEnforcer.replacePolicies(roleId, workspaceId, rules));
+    }
+
+    public void applyRoleRemoval(UUID roleId, UUID workspaceId) {
+        applyLocked(workspaceId, changeOf(roleId, workspaceId, null), () -> removeRole(roleId, workspaceId));
+    }
+
+    public void applyUserRoleAssignment(UUID userId, UUID roleId, UUID workspaceId) {
+        applyLocked(workspaceId, changeOf(roleId, workspaceId, userId),
+            () -> snapshotEnforcer.addGroupingPolicy(userId, roleId, workspaceId));
+    }
+
+    public void applyUserRoleRevocation(UUID userId, UUID roleId, UUID workspaceId) {
+        applyLocked(workspaceId, changeOf(roleId, workspaceId, userId),
+            () -> snapshotEnforcer.removeGroupingPolicy(userId, roleId, workspaceId));
+    }
+
+    private void applyLocked(UUID workspaceId, Object change, Runnable apply) {
+        applyLocked(workspaceId, () -> {
+            markChanged(change);
+            apply.run();
+        });
+    }
+
+    private void applyLocked(UUID workspaceId, Runnable apply) {
+        ReentrantLock lock = applyLock(workspaceId);
+        lock.lock();
+        try {
+            apply.run();
+        } finally {
+            lock.unlock();
         }
     }
 
-    public void removeRolePolicies(UUID roleId, UUID workspaceId) {
-        String roleIdStr = roleId.toString();
-        String workspaceIdStr = workspaceId.toString();
+    /**
+     * Logs a change in the caller's transaction, for nodes catching up from a policy snapshot, and
+     * bumps the workspace's version. The new version is the change's policy generation. The
+     * change is applied to memory, and its generation counted as applied, only once the
+     * transaction commits, so that a rollback leaves nothing behind in memory.
+     *
+     * <p>The workspace's apply lock is held from before the version bump until the transaction
+     * ends. Another transaction of the workspace on this node cannot bump the version before this
+     * one has committed and applied, so this node applies its changes in version order.
+     */
+    private long recordChange(PolicyChange.Kind kind, UUID roleId, UUID workspaceId, UUID userId, Runnable apply) {
+        ReentrantLock lock = applyLock(workspaceId);
+        lock.lock();
+        Object change = changeOf(roleId, workspaceId, userId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            try {
+                long generation = logChange(kind, roleId, workspaceId, userId);
+                markChanged(change);
+                apply.run();
+                policyGenerations.advance(workspaceId, generation);
+                return generation;
+            } finally {
+                lock.unlock();
+            }
+        }
+        long generation;
+        try {
+            generation = logChange(kind, roleId, workspaceId, userId);
+        } catch (RuntimeException | Error e) {
+            lock.unlock();
+            throw e;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                markChanged(change);
+                apply.run();
+                policyGenerations.advance(workspaceId, generation);
+            }
 
-        // Remove all policies for this role
-        enforcer.removeFilteredPolicy(0, roleIdStr, workspaceIdStr);
+            @Override
+            public void afterCompletion(int status) {
+                lock.unlock();
+            }
+        });
+        return generation;
+    }
 
-        // Remove all groupings for this role
-        enforcer.removeFilteredGroupingPolicy(1, roleIdStr, workspaceIdStr);
+    private long logChange(PolicyChange.Kind kind, UUID roleId, UUID workspaceId, UUID userId) {
+        // Holds the workspace's version row until commit, so versions commit in order
+        versionRepository.increment(workspaceId);
+        long generation = versionRepository.findVersion(workspaceId).orElseThrow();
+        policyChangeRepository.save(PolicyChange.builder()
+            .kind(kind)
+            .roleId(roleId)
+            .workspaceId(workspaceId)
+            .userId(userId)
+            .build());
+        return generation;
+    }
 
-        log.debug("Removed all policies for role={} in workspace={}", roleId, workspaceId);
+    /**
+     * What a change is keyed by for a running full sync: the role, or the grant of it to a user.
+     */
+    private static Object changeOf(UUID roleId, UUID workspaceId, UUID userId) {
+        return userId == null ? new RoleKey(roleId, workspaceId) : new Grouping(userId, roleId, workspaceId);
+    }
+
+    private void markChanged(Object change) {
+        for (Set<Object> changed : runningSyncs) {
+            changed.add(change);
+        }
+    }
+
+    private ReentrantLock applyLock(UUID workspaceId) {
+        return applyLocks[(workspaceId.hashCode() & Integer.MAX_VALUE) % applyLocks.length];
+    }
+
+    /**
+     * Every workspace's policy version; read before loading from the tables, which then hold at
+     * least every change up to them.
+     */
+    private Map<UUID, Long> currentVersions() {
+        Map<UUID, Long> versions = new HashMap<>();
+        for (WorkspacePolicyVersion version : versionRepository.findAll()) {
+            versions.put(version.getWorkspaceId(), version.getVersion());
+        }
+        return versions;
+    }
+
+    /**
+     * Waits until this node has applied the workspace's changes up to {@code minGeneration}, as
+     * returned by a write on any node; see {@link PolicyGenerations}.
+     */
+    public void awaitGeneration(UUID workspaceId, long minGeneration) {
+        policyGenerations.await(workspaceId, minGeneration);
     }
 
     public boolean checkPermission(UUID userId, UUID workspaceId, String resource, String action) {
-        return enforcer.enforce(
-            userId.toString(),
-            workspaceId.toString(),
-            resource,
-            action
-        );
+        // Served from the lock-free snapshot
+        DomainPolicy workspace = workspacePolicyLoader.ensureLoaded(workspaceId);
+        if (!workspace.isMember(userId)) {
+            // No roles in this workspace: deny without evaluating or filling the decision cache
+            return false;
+        }
+        // Cached decisions are only reused while the workspace's generation is unchanged
+        return decisionCache.check(workspace, userId, workspaceId, resource, action);
+    }
+
+    /**
+     * Whether the user holds any role in the workspace, answered from the in-memory policy
+     * that {@code assignRole}/{@code revokeRole} keep in sync.
+     */
+    public boolean isMember(UUID userId, UUID workspaceId) {
+        return workspacePolicyLoader.ensureLoaded(workspaceId).isMember(userId);
+    }
+
+    /**
+     * Evaluates many checks, each workspace against one policy snapshot. Roles are resolved once
+     * per (user, workspace) pair; results are positional.
+     */
+    public boolean[] checkPermissions(List<CheckPermissionRequest> checks) {
+        Map<UUID, DomainPolicy> workspaces = new HashMap<>();
+        Map<SubjectKey, SubjectPolicy> subjects = new HashMap<>();
+        boolean[] results = new boolean[checks.size()];
+        for (int i = 0; i < results.length; i++) {
+            CheckPermissionRequest check = checks.get(i);
+            SubjectPolicy subject = subjects.computeIfAbsent(
+                new SubjectKey(check.getUserId(), check.getWorkspaceId()),
+                key -> workspaces.computeIfAbsent(key.workspaceId(), workspacePolicyLoader::ensureLoaded)
+                    .subject(key.userId()));
+            results[i] = subject.permits(check.getResource(), check.getAction());
+        }
+        return results;
+    }
+
+    private record SubjectKey(UUID userId, UUID workspaceId) {
     }
 
-    @Async
+    private record RoleKey(UUID roleId, UUID workspaceId) {
+    }
+
+    /**
+     * What a full sync changes in one workspace of the snapshot enforcer. A role mapped to
+     * {@code null} has no rules left.
+     */
+    private static final class WorkspaceDelta {
+        private final UUID workspaceId;
+        private final Map<UUID, List<PolicyRule>> roles = new LinkedHashMap<>();
+        private final List<Grouping> addedGroupings = new ArrayList<>();
+        private final List<Grouping> removedGroupings = new ArrayList<>();
+
+        private WorkspaceDelta(UUID workspaceId) {
+            this.workspaceId = workspaceId;
+        }
+    }
+
+    /**
+     * Reloads the policy in the background. Reloads run one after another: one requested while
+     * another is running starts once that one is done.
+     */
+    @Async("policyReloadExecutor")
     public void reloadPolicies() {
         log.info("Reloading Casbin policies...");
-        enforcer.loadPolicy();
+        if (workspacePolicyLoader.isEnabled()) {
+            rebuildTimer("reload").record(this::reloadResident);
+        } else {
+            Map<UUID, Long> versions = currentVersions();
+            rebuildTimer("reload").record(() -> loadSnapshotFromTables("reload"));
+            policyGenerations.advanceAll(versions);
+        }
         log.info("Casbin policies reloaded");
     }
 
-    public List<List<String>> getAllPolicies() {
-        return enforcer.getPolicy();
+    /**
+     * Rebuilds the snapshot enforcer from the domain tables. Checks are served from the previous
+     * snapshot until the rebuilt one is swapped in.
+     */
+    private void loadSnapshotFromTables(String type) {
+        snapshotEnforcer.updateCatalog(PermissionCatalog.of(permissionRepository.findAll()));
+        logReport(type, snapshotEnforcer.rebuild(adapter::loadAll));
+    }
+
+    /**
+     * Logs how long a parallel build or sync took, naming its slowest workspaces so that
+     * pathological tenants stand out.
+     */
+    private void logReport(String type, WorkspaceTasks.Report<UUID> report) {
+        if (report.workspaces() == 0) {
+            return;
+        }
+        StringBuilder slowest = new StringBuilder();
+        for (WorkspaceTasks.Timing<UUID> timing : report.slowest()) {
+            slowest.append(slowest.isEmpty() ? "" : ", ")
+                .append(timing.workspace()).append('=').append(timing.nanos() / 1_000).append("us");
+        }
+        log.info("Policy {} covered {} workspaces in {} ms on {} threads; slowest: {}", type, report.workspaces(),
+            report.elapsedNanos() / 1_000_000, Math.min(WorkspaceTasks.parallelism(syncParallelism), report.workspaces()),
+            slowest);
+    }
+
+    /**
+     * {@code permission.policy.rebuild}: how long a startup load, full sync or reload took.
+     */
+    private Timer rebuildTimer(String type) {
+        return Timer.builder("permission.policy.rebuild")
+            .description("Duration of policy rebuilds and full syncs")
+            .tag("type", type)
+            .register(meterRegistry);
     }
 
-    public List<List<String>> getAllGroupingPolicies() {
-        return enforcer.getGroupingPolicy();
+    /**
+     * Every policy and grouping held in memory as Casbin rows, for the admin views. Built on
+     * demand from the snapshot enforcer; not for hot paths.
+     */
+    public SnapshotEnforcer.Rows getAllRules() {
+        return snapshotEnforcer.rows();
     }
 }
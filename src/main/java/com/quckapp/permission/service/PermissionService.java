@@ -10,6 +10,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
@@ -48,9 +49,11 @@ public class PermissionService {
 
         role = roleRepository.save(role);
         log.info("Created role {} in workspace {}", role.getName(), role.getWorkspaceId());
-        casbinPolicySyncService.syncRolePermissions(role);
-        eventPublisher.publishRoleCreated(role);
-        return mapToRoleResponse(role);
+        long generation = casbinPolicySyncService.syncRolePermissions(role);
+        eventPublisher.publishRoleCreated(role, generation);
+        RoleResponse response = mapToRoleResponse(role);
+        response.setPolicyGeneration(generation);
+        return response;
     }
 
     @Cacheable(value = "roles", key = "#id")
@@ -83,23 +86,25 @@ public class PermissionService {
         }
 
         role = roleRepository.save(role);
-        // Re-sync Casbin policies for the updated role
-        casbinPolicySyncService.removeRolePolicies(role.getId(), role.getWorkspaceId());
-        casbinPolicySyncService.syncRolePermissions(role);
-        eventPublisher.publishRoleUpdated(role);
-        return mapToRoleResponse(role);
+        // Re-sync Casbin policies for the updated role, keeping its user assignments
+        long generation = casbinPolicySyncService.replaceRolePermissions(role);
+        eventPublisher.publishRoleUpdated(role, generation);
+        RoleResponse response = mapToRoleResponse(role);
+        response.setPolicyGeneration(generation);
+        return response;
     }
 
     @CacheEvict(value = "roles", key = "#id")
-    public void deleteRole(UUID id) {
+    public long deleteRole(UUID id) {
         Role role = roleRepository.findById(id)
             .orElseThrow(() -> new ResourceNotFoundException("Role not found"));
         if (role.isSystem()) throw new IllegalStateException("Cannot delete system role");
         UUID workspaceId = role.getWorkspaceId();
         String roleName = role.getName();
-        casbinPolicySyncService.removeRolePolicies(id, workspaceId);
+        long generation = casbinPolicySyncService.removeRolePolicies(id, workspaceId);
         roleRepository.delete(role);
-        eventPublisher.publishRoleDeleted(id, workspaceId, roleName);
+        eventPublisher.publishRoleDeleted(id, workspaceId, roleName, generation);
+        return generation;
     }
 
     // ===== Permission Operations =====
@@ -135,8 +140,8 @@ public class PermissionService {
 
         userRole = userRoleRepository.save(userRole);
         log.info("Assigned role {} to user {} in workspace {}", role.getName(), request.getUserId(), request.getWorkspaceId());
-        casbinPolicySyncService.addUserRoleAssignment(request.getUserId(), request.getRoleId(), request.getWorkspaceId());
-        eventPublisher.publishUserRoleAssigned(userRole, role.getName());
+        long generation = casbinPolicySyncService.addUserRoleAssignment(request.getUserId(), request.getRoleId(), request.getWorkspaceId());
+        eventPublisher.publishUserRoleAssigned(userRole, role.getName(), generation);
 
         return UserRoleResponse.builder()
             .userId(userRole.getUserId())
@@ -146,20 +151,33 @@ public class PermissionService {
             .channelId(userRole.getChannelId())
             .grantedBy(userRole.getGrantedBy())
             .grantedAt(userRole.getGrantedAt())
+            .policyGeneration(generation)
             .build();
     }
 
     @CacheEvict(value = "userPermissions", key = "#userId + ':' + #workspaceId")
-    public void revokeRole(UUID userId, UUID roleId, UUID workspaceId) {
+    public long revokeRole(UUID userId, UUID roleId, UUID workspaceId) {
         userRoleRepository.deleteByUserIdAndRoleIdAndWorkspaceId(userId, roleId, workspaceId);
         log.info("Revoked role {} from user {} in workspace {}", roleId, userId, workspaceId);
-        casbinPolicySyncService.removeUserRoleAssignment(userId, roleId, workspaceId);
-        eventPublisher.publishUserRoleRevoked(userId, roleId, workspaceId);
+        long generation = casbinPolicySyncService.removeUserRoleAssignment(userId, roleId, workspaceId);
+        eventPublisher.publishUserRoleRevoked(userId, roleId, workspaceId, generation);
+        return generation;
     }
 
-    @Cacheable(value = "userPermissions", key = "#userId + ':' + #workspaceId")
+    @Cacheable(value = "userPermissions", key = "#userId + ':' + #workspaceId", unless = "#result.roles.isEmpty()")
     @Transactional(readOnly = true)
     public UserPermissionsResponse getUserPermissions(UUID userId, UUID workspaceId) {
+        // Users without any role here are answered without a query; not caching them keeps
+        // guests and stale links from crowding out members' entries
+        if (!casbinPolicySyncService.isMember(userId, workspaceId)) {
+            return UserPermissionsResponse.builder()
+                .userId(userId)
+                .workspaceId(workspaceId)
+                .roles(List.of())
+                .permissions(Set.of())
+                .build();
+        }
+
         List<UserRole> userRoles = userRoleRepository.findByUserIdAndWorkspaceIdWithRoleAndPermissions(userId, workspaceId);
 
         Set<String> allPermissions = new HashSet<>();
@@ -179,9 +197,13 @@ public class PermissionService {
             .build();
     }
 
-    @Transactional(readOnly = true)
+    // Answered from memory; without a transaction, waiting for a generation holds no pooled connection
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public PermissionCheckResponse checkPermission(CheckPermissionRequest request) {
-        // Use Casbin enforcer for permission check
+        if (request.getMinGeneration() != null) {
+            casbinPolicySyncService.awaitGeneration(request.getWorkspaceId(), request.getMinGeneration());
+        }
+        // A single evaluation resolves both the exact action and resource:* grants
         boolean allowed = casbinPolicySyncService.checkPermission(
             request.getUserId(),
             request.getWorkspaceId(),
@@ -189,22 +211,33 @@ public class PermissionService {
             request.getAction()
         );
 
-        // Fallback: also check for wildcard permission
-        if (!allowed) {
-            allowed = casbinPolicySyncService.checkPermission(
-                request.getUserId(),
-                request.getWorkspaceId(),
-                request.getResource(),
-                "*"
-            );
-        }
-
         return PermissionCheckResponse.builder()
             .allowed(allowed)
             .reason(allowed ? "Permission granted via Casbin" : "Permission denied")
             .build();
     }
 
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BatchPermissionCheckResponse checkPermissions(BatchCheckPermissionRequest request) {
+        Map<UUID, Long> minGenerations = new HashMap<>();
+        for (CheckPermissionRequest check : request.getChecks()) {
+            if (check.getMinGeneration() != null) {
+                minGenerations.merge(check.getWorkspaceId(), check.getMinGeneration(), Math::max);
+            }
+        }
+        minGenerations.forEach(casbinPolicySyncService::awaitGeneration);
+        boolean[] allowed = casbinPolicySyncService.checkPermissions(request.getChecks());
+
+        List<PermissionCheckResponse> results = new ArrayList<>(allowed.length);
+        for (boolean result : allowed) {
+            results.add(PermissionCheckResponse.builder()
+                .allowed(result)
+                .reason(result ? "Permission granted via Casbin" : "Permission denied")
+                .build());
+        }
+        return BatchPermissionCheckResponse.builder().results(results).build();
+    }
+
     // ===== Mappers =====
 
     private RoleResponse mapToRoleResponse(Role role) {
@@ -0,0 +1,114 @@
+package com.quckapp.permission.service;
+
+import com.quckapp.permission.exception.PolicyBehindException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Which policy changes this node has applied, by workspace, for read-your-writes checks. The
+ * generation of a change is the workspace's version in {@code workspace_policy_version} after
+ * it, which every node agrees on and which commits in order; a write returns it to the caller in
+ * the {@value #HEADER} header, who may pass it as {@code minGeneration} on a later check to any
+ * node. A node that has not applied the change yet waits for it for up to
+ * {@code app.permission.consistency.wait-timeout} and otherwise refuses the check with a
+ * {@link PolicyBehindException}.
+ *
+ * <p>Local changes advance their workspace once committed, replicated ones once applied, and a
+ * load from the tables to the versions read before it.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PolicyGenerations {
+
+    /**
+     * Response header carrying the policy generation of a write.
+     */
+    public static final String HEADER = "X-Policy-Generation";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.permission.consistency.wait-timeout:PT2S}")
+    private Duration waitTimeout;
+
+    private final Map<UUID, Long> applied = new ConcurrentHashMap<>();
+    private final Object monitor = new Object();
+    // Checks waiting on the monitor; writers only signal when there are any
+    private volatile int waiting;
+
+    /**
+     * The latest change of the workspace this node is known to have applied.
+     */
+    public long current(UUID workspaceId) {
+        return applied.getOrDefault(workspaceId, 0L);
+    }
+
+    /**
+     * Records that a change of the workspace has been applied locally.
+     */
+    public void advance(UUID workspaceId, long generation) {
+        applied.merge(workspaceId, generation, Math::max);
+        signal();
+    }
+
+    /**
+     * Records that every workspace's changes up to its version in {@code generations} have been
+     * applied, after loading the policy from the tables.
+     */
+    public void advanceAll(Map<UUID, Long> generations) {
+        generations.forEach((workspaceId, generation) -> applied.merge(workspaceId, generation, Math::max));
+        signal();
+    }
+
+    /**
+     * Returns once the workspace has reached {@code minGeneration}; throws
+     * {@link PolicyBehindException} if it has not within the wait timeout.
+     */
+    public void await(UUID workspaceId, long minGeneration) {
+        if (current(workspaceId) >= minGeneration) {
+            return;
+        }
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+        synchronized (monitor) {
+            waiting++;
+            try {
+                long remaining;
+                while (current(workspaceId) < minGeneration && (remaining = deadline - System.nanoTime()) > 0) {
+                    monitor.wait(remaining / 1_000_000, (int) (remaining % 1_000_000));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                waiting--;
+            }
+        }
+        long current = current(workspaceId);
+        boolean caughtUp = current >= minGeneration;
+        Counter.builder("permission.policy.consistency.waits")
+            .description("Checks that waited for this node to apply a change they require")
+            .tag("outcome", caughtUp ? "caught_up" : "timed_out")
+            .register(meterRegistry)
+            .increment();
+        if (!caughtUp) {
+            log.warn("Workspace {} is at generation {}, check requires {}", workspaceId, current, minGeneration);
+            throw new PolicyBehindException(workspaceId, minGeneration, current);
+        }
+    }
+
+    private void signal() {
+        if (waiting > 0) {
+            synchronized (monitor) {
+                monitor.notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.quckapp.permission.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@code policy} health: up once the policy is fully loaded, out of service while it loads and
+ * down after a failed attempt. It is part of the readiness group but not of liveness, so that a
+ * node is kept out of rotation without being restarted while it warms up.
+ */
+@Component
+@RequiredArgsConstructor
+public class PolicyHealthIndicator implements HealthIndicator {
+
+    private final PolicyWarmup warmup;
+
+    @Override
+    public Health health() {
+        Health.Builder builder = switch (warmup.phase()) {
+            case READY -> Health.up();
+            case PENDING, LOADING -> Health.outOfService();
+            case FAILED -> Health.down(warmup.failure());
+        };
+        return builder
+            .withDetail("phase", warmup.phase())
+            .withDetail("attempts", warmup.attempts())
+            .withDetail("rowsRead", warmup.rowsRead())
+            .withDetail("bytesRead", warmup.bytesRead())
+            .withDetail("elapsedMs", warmup.elapsed().toMillis())
+            .build();
+    }
+}
@@ -0,0 +1,124 @@
+package com.quckapp.permission.service;
+
+import com.quckapp.permission.domain.entity.PolicyChange;
+import com.quckapp.permission.domain.repository.PolicyChangeRepository;
+import com.quckapp.permission.policy.PolicySnapshotFile;
+import com.quckapp.permission.policy.SnapshotEnforcer;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keeps a {@link PolicySnapshotFile} of the in-memory policy on local disk, so that a restarting
+ * node serves from it at once and only replays the {@code policy_change_log} entries written
+ * since. Disabled when {@code app.permission.snapshot.path} is empty.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PolicySnapshotService {
+
+    /**
+     * Changes are replayed from this long before the snapshot was written as well: a change
+     * committed just after the position was read may carry a lower id, and replay is idempotent.
+     */
+    private static final Duration CATCH_UP_SLACK = Duration.ofMinutes(1);
+
+    private final SnapshotEnforcer snapshotEnforcer;
+    private final PolicyChangeRepository policyChangeRepository;
+
+    @Value("${app.permission.snapshot.path:}")
+    private String path;
+
+    @Value("${app.permission.snapshot.change-log-retention:7d}")
+    private Duration changeLogRetention;
+
+    // Set once the in-memory policy is known to match the tables; never write an image before
+    private volatile boolean current;
+
+    public boolean isEnabled() {
+        return !path.isBlank();
+    }
+
+    /**
+     * Loads the snapshot into the snapshot enforcer. Returns empty if there is no usable snapshot
+     * or it is older than the change log reaches back; the policy must then be loaded in full.
+     */
+    public Optional<PolicySnapshotFile.Image> restore() {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        Optional<PolicySnapshotFile.Image> image = PolicySnapshotFile.read(Path.of(path), snapshotEnforcer);
+        if (image.isPresent() && catchUpFrom(image.get()).isBefore(Instant.now().minus(changeLogRetention))) {
+            // The changes it would need may already be purged; the caller falls back to a full sync
+            log.warn("Policy snapshot {} is older than the change log retention of {}", path, changeLogRetention);
+            return Optional.empty();
+        }
+        image.ifPresent(restored -> log.info("Restored policy snapshot {} at position {} ({} workspaces)",
+            path, restored.position(), restored.domains()));
+        return image;
+    }
+
+    /**
+     * The changes a restored snapshot may not reflect yet, oldest first.
+     */
+    public List<PolicyChange> changesSince(PolicySnapshotFile.Image image) {
+        return policyChangeRepository.findSince(image.position(), catchUpFrom(image));
+    }
+
+    /**
+     * Allows snapshots to be written, once the in-memory policy has been loaded.
+     */
+    public void markCurrent() {
+        current = true;
+    }
+
+    @Scheduled(fixedDelayString = "${app.permission.snapshot.write-interval:PT5M}",
+        initialDelayString = "${app.permission.snapshot.write-interval:PT5M}")
+    public void writeSnapshot() {
+        if (!isEnabled() || !current) {
+            return;
+        }
+        // Read the position before capturing, so the image reflects at least every change up to it
+        long position = policyChangeRepository.findLatestPosition();
+        try {
+            PolicySnapshotFile.write(snapshotEnforcer, position, Path.of(path));
+            log.debug("Wrote policy snapshot {} at position {}", path, position);
+        } catch (IOException e) {
+            log.warn("Failed to write policy snapshot {}", path, e);
+        }
+    }
+
+    @PreDestroy
+    public void writeSnapshotOnShutdown() {
+        try {
+            writeSnapshot();
+        } catch (Exception e) {
+            log.warn("Failed to write policy snapshot on shutdown", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "PT1H", initialDelayString = "PT10M")
+    @Transactional
+    public void purgeChangeLog() {
+        int purged = policyChangeRepository.deleteOlderThan(Instant.now().minus(changeLogRetention));
+        if (purged > 0) {
+            log.debug("Purged {} policy change log entries", purged);
+        }
+    }
+
+    private static Instant catchUpFrom(PolicySnapshotFile.Image image) {
+        return Instant.ofEpochMilli(image.writtenAt()).minus(CATCH_UP_SLACK);
+    }
+}
@@ -0,0 +1,139 @@
+package com.quckapp.permission.service;
+
+import com.quckapp.permission.policy.DomainTableAdapter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads the policy on a background thread once the application is up, so that the web server
+ * and the liveness probe come up at once while {@link PolicyHealthIndicator} keeps readiness down
+ * until checks are answered from the complete policy. A failed load is retried after
+ * {@code app.permission.warmup.retry-interval}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PolicyWarmup {
+
+    public enum Phase {
+        PENDING, LOADING, READY, FAILED
+    }
+
+    private final CasbinPolicySyncService syncService;
+    private final DomainTableAdapter adapter;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.permission.warmup.retry-interval:PT30S}")
+    private Duration retryInterval;
+
+    private volatile Phase phase = Phase.PENDING;
+    private volatile long startedAt;
+    // Set when an attempt ends; while loading the elapsed time is measured from startedAt
+    private volatile long elapsedNanos = -1;
+    private volatile RuntimeException failure;
+    private volatile int attempts;
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("permission.policy.warmup.ready", this, warmup -> warmup.phase == Phase.READY ? 1 : 0)
+            .description("Whether the policy is fully loaded and the service ready for checks")
+            .register(meterRegistry);
+        Gauge.builder("permission.policy.warmup.rows", adapter, DomainTableAdapter::rowsRead)
+            .description("Policy rows read from the domain tables")
+            .register(meterRegistry);
+        Gauge.builder("permission.policy.warmup.bytes", adapter, DomainTableAdapter::bytesRead)
+            .description("Approximate bytes of policy rows read from the domain tables")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        TimeGauge.builder("permission.policy.warmup.elapsed", this, TimeUnit.NANOSECONDS, warmup -> warmup.elapsed().toNanos())
+            .description("Time spent on the current or last policy load")
+            .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread.ofPlatform().name("policy-warmup").daemon(true).start(this::run);
+    }
+
+    /**
+     * Loads until an attempt succeeds or the thread is interrupted.
+     */
+    void run() {
+        while (!attempt()) {
+            try {
+                Thread.sleep(retryInterval);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * One load of the policy; returns whether it succeeded.
+     */
+    boolean attempt() {
+        attempts++;
+        startedAt = System.nanoTime();
+        elapsedNanos = -1;
+        phase = Phase.LOADING;
+        try {
+            syncService.syncPoliciesOnStartup();
+            elapsedNanos = System.nanoTime() - startedAt;
+            failure = null;
+            phase = Phase.READY;
+            log.info("Policy warm-up finished in {} ms: {} rows, {} bytes read", elapsedNanos / 1_000_000,
+                adapter.rowsRead(), adapter.bytesRead());
+            return true;
+        } catch (RuntimeException e) {
+            elapsedNanos = System.nanoTime() - startedAt;
+            failure = e;
+            phase = Phase.FAILED;
+            log.error("Policy warm-up attempt {} failed; retrying in {}", attempts, retryInterval, e);
+            return false;
+        }
+    }
+
+    public Phase phase() {
+        return phase;
+    }
+
+    public boolean isReady() {
+        return phase == Phase.READY;
+    }
+
+    public int attempts() {
+        return attempts;
+    }
+
+    public RuntimeException failure() {
+        return failure;
+    }
+
+    public long rowsRead() {
+        return adapter.rowsRead();
+    }
+
+    public long bytesRead() {
+        return adapter.bytesRead();
+    }
+
+    public Duration elapsed() {
+        if (phase == Phase.PENDING) {
+            return Duration.ZERO;
+        }
+        long elapsed = elapsedNanos;
+        return Duration.ofNanos(elapsed >= 0 ? elapsed : System.nanoTime() - startedAt);
+    }
+}
@@ -0,0 +1,216 @@
+package com.quckapp.permission.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.quckapp.permission.domain.repository.WorkspacePolicyVersionRepository;
+import com.quckapp.permission.policy.DomainPolicy;
+import com.quckapp.permission.policy.DomainTableAdapter;
+import com.quckapp.permission.policy.SnapshotEnforcer;
+import com.quckapp.permission.policy.WorkspaceTasks;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Lazy loading mode: keeps only the active workspaces' policies in memory. A workspace is loaded
+ * from the domain tables on its first check, concurrent checks of it waiting for the one load.
+ * Loaded workspaces are evicted least recently checked first once their policy entries exceed
+ * the budget; pinned workspaces are loaded at startup and never evicted.
+ *
+ * <p>Disabled unless {@code app.permission.lazy-loading.enabled}; every method is then a no-op
+ * and the snapshot enforcer holds every workspace.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WorkspacePolicyLoader {
+
+    private final SnapshotEnforcer snapshotEnforcer;
+    private final DomainTableAdapter adapter;
+    private final WorkspacePolicyVersionRepository versionRepository;
+    private final PolicyGenerations policyGenerations;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.permission.lazy-loading.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.permission.lazy-loading.max-resident-entries:1000000}")
+    private long maxResidentEntries;
+
+    @Value("${app.permission.lazy-loading.pinned-workspaces:}")
+    private List<UUID> pinnedWorkspaces;
+
+    @Value("${app.permission.sync.parallelism:0}")
+    private int loadParallelism;
+
+    private final ConcurrentHashMap<UUID, CompletableFuture<DomainPolicy>> inFlight = new ConcurrentHashMap<>();
+    private Set<UUID> pinned = Set.of();
+    // Reads a workspace in a transaction of its own, see loadFromTables
+    private TransactionTemplate loadTransaction;
+    // Loaded, unpinned workspaces weighted by their policy entries; evicting one unloads it
+    private Cache<UUID, Integer> resident;
+    private Counter loads;
+    private Counter evictions;
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        snapshotEnforcer.enableLazyLoading();
+        pinned = Set.copyOf(pinnedWorkspaces);
+        loadTransaction = new TransactionTemplate(transactionManager);
+        loadTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        loadTransaction.setReadOnly(true);
+        resident = Caffeine.newBuilder()
+            .maximumWeight(maxResidentEntries)
+            .weigher((UUID workspaceId, Integer entries) -> entries)
+            // Unload on the thread that caused the eviction rather than in the background
+            .executor(Runnable::run)
+            .removalListener((UUID workspaceId, Integer entries, RemovalCause cause) -> {
+                if (cause.wasEvicted()) {
+                    unload(workspaceId);
+                }
+            })
+            .build();
+        loads = Counter.builder("permission.policy.workspace.loads")
+            .description("Workspaces loaded on demand")
+            .register(meterRegistry);
+        evictions = Counter.builder("permission.policy.workspace.evictions")
+            .description("Cold workspaces evicted from memory")
+            .register(meterRegistry);
+        Gauge.builder("permission.policy.workspace.resident", this, loader -> loader.residentCount())
+            .description("Workspaces whose policy is held in memory")
+            .register(meterRegistry);
+        log.info("Lazy policy loading enabled: {} pinned workspaces, budget of {} policy entries",
+            pinned.size(), maxResidentEntries);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * The workspace's policy to check against, loading it if it is not in memory. Read in one
+     * step with its residency, so an eviction racing the check cannot hand it an emptied policy.
+     */
+    public DomainPolicy ensureLoaded(UUID workspaceId) {
+        if (!enabled) {
+            return snapshotEnforcer.domain(workspaceId);
+        }
+        DomainPolicy policy = snapshotEnforcer.residentDomain(workspaceId);
+        if (policy != null) {
+            // Records the access for the eviction order
+            resident.getIfPresent(workspaceId);
+            return policy;
+        }
+        return load(workspaceId, false);
+    }
+
+    /**
+     * Loads the pinned workspaces, in parallel.
+     */
+    public WorkspaceTasks.Report<UUID> loadPinned() {
+        return WorkspaceTasks.run("Pinned workspace load", loadParallelism, pinned, Function.identity(),
+            workspaceId -> load(workspaceId, true));
+    }
+
+    /**
+     * Reloads every resident workspace from the tables, in parallel; the lazy counterpart of a
+     * full sync. Workspaces that are not resident are read afresh on their next check anyway.
+     */
+    public WorkspaceTasks.Report<UUID> reloadResident() {
+        Set<UUID> workspaces = new LinkedHashSet<>(pinned);
+        workspaces.addAll(resident.asMap().keySet());
+        return WorkspaceTasks.run("Resident workspace reload", loadParallelism, workspaces, Function.identity(),
+            workspaceId -> load(workspaceId, true));
+    }
+
+    /**
+     * Loads a workspace unless another thread already is, in which case this waits for that load.
+     * Returns the policy as loaded, even if the workspace has been evicted again since.
+     */
+    private DomainPolicy load(UUID workspaceId, boolean reload) {
+        CompletableFuture<DomainPolicy> mine = new CompletableFuture<>();
+        CompletableFuture<DomainPolicy> running = inFlight.putIfAbsent(workspaceId, mine);
+        if (running != null) {
+            return running.join();
+        }
+        try {
+            // A load may have finished between the residency check and claiming the workspace
+            DomainPolicy policy = reload ? null : snapshotEnforcer.residentDomain(workspaceId);
+            if (policy == null) {
+                policy = loadFromTables(workspaceId);
+            }
+            mine.complete(policy);
+            return policy;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(workspaceId, mine);
+        }
+    }
+
+    /**
+     * Reads a workspace and publishes it, starting over if it was evicted meanwhile. The reads run
+     * in a new transaction, begun after the load: in the caller's, they could see a snapshot
+     * older than the load, missing writes that were applied before it and so not queued.
+     */
+    private DomainPolicy loadFromTables(UUID workspaceId) {
+        long start = System.nanoTime();
+        DomainPolicy policy;
+        long[] version = new long[1];
+        do {
+            long load = snapshotEnforcer.beginLoad(workspaceId);
+            try {
+                SnapshotEnforcer.Rows rows = loadTransaction.execute(status -> {
+                    // Every change of the workspace up to this version is in the rows read below
+                    version[0] = versionRepository.findVersion(workspaceId).orElse(0L);
+                    return adapter.loadWorkspaces(List.of(workspaceId));
+                });
+                policy = snapshotEnforcer.completeLoad(workspaceId, load, rows);
+            } catch (RuntimeException e) {
+                // Back to not resident, so that the next check retries
+                snapshotEnforcer.evict(workspaceId);
+                throw e;
+            }
+        } while (policy == null);
+        policyGenerations.advance(workspaceId, version[0]);
+        if (!pinned.contains(workspaceId)) {
+            resident.put(workspaceId, Math.max(1, policy.policyCount() + policy.groupingCount()));
+        }
+        loads.increment();
+        log.debug("Loaded workspace {} with {} policies and {} groupings in {} us", workspaceId,
+            policy.policyCount(), policy.groupingCount(), (System.nanoTime() - start) / 1_000);
+        return policy;
+    }
+
+    private void unload(UUID workspaceId) {
+        snapshotEnforcer.evict(workspaceId);
+        evictions.increment();
+        log.debug("Evicted workspace {}", workspaceId);
+    }
+
+    private double residentCount() {
+        return resident.estimatedSize() + pinned.size();
+    }
+}
@@ -0,0 +1,10 @@
+-- Append-only log of policy changes; its ids order the changes a policy snapshot has not seen yet
+CREATE TABLE policy_change_log (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    kind VARCHAR(16) NOT NULL,
+    role_id BINARY(16) NOT NULL,
+    workspace_id BINARY(16) NOT NULL,
+    user_id BINARY(16),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_policy_change_created (created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,8 @@
+-- Permission events written with the change that caused them and relayed to Kafka once committed
+CREATE TABLE permission_event_outbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    workspace_id BINARY(16) NOT NULL,
+    event_type VARCHAR(32) NOT NULL,
+    payload TEXT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,2 @@
+-- Outbox payloads are encoded events, JSON or binary depending on app.kafka.event-format
+ALTER TABLE permission_event_outbox MODIFY payload MEDIUMBLOB NOT NULL;
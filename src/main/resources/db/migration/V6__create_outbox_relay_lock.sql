@@ -0,0 +1,6 @@
+-- One row, locked by the outbox relay for the duration of a run so that one node relays at a time
+CREATE TABLE permission_event_outbox_relay_lock (
+    id INT PRIMARY KEY
+) ENGINE=InnoDB;
+
+INSERT INTO permission_event_outbox_relay_lock (id) VALUES (1);
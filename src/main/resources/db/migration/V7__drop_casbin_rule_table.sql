@@ -0,0 +1,2 @@
+-- Policies are read from the domain tables; nothing has written casbin_rule since the JDBC adapter went
+DROP TABLE IF EXISTS casbin_rule;
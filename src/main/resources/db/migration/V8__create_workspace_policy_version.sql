@@ -0,0 +1,10 @@
+-- Per-workspace policy version, the generation returned by writes; bumped under the row lock so
+-- that the versions of a workspace commit in order
+CREATE TABLE workspace_policy_version (
+    workspace_id BINARY(16) PRIMARY KEY,
+    version BIGINT NOT NULL
+) ENGINE=InnoDB;
+
+-- Start above the change log ids handed out as generations so far, so no workspace moves back
+INSERT INTO workspace_policy_version (workspace_id, version)
+SELECT workspace_id, MAX(id) FROM policy_change_log GROUP BY workspace_id;
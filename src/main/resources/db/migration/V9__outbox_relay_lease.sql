@@ -0,0 +1,4 @@
+-- The relay lock becomes a lease, so that a run need not keep a transaction open while it sends
+ALTER TABLE permission_event_outbox_relay_lock
+    ADD COLUMN owner VARCHAR(36) NULL,
+    ADD COLUMN lease_until TIMESTAMP(3) NULL;
@@ -0,0 +1,108 @@
+package com.quckapp.permission.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quckapp.permission.kafka.BinaryEventCodec;
+import com.quckapp.permission.kafka.JsonEventCodec;
+import com.quckapp.permission.kafka.PermissionEvent;
+import com.quckapp.permission.policy.PolicyRule;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of encoding and decoding a permission event as JSON, through the nested maps the publisher
+ * has always built ({@link JsonEventCodec}), and in the {@link BinaryEventCodec} format.
+ * {@link #main} prints the bytes per event of both first; run with {@code -prof gc} for the
+ * allocation per operation.
+ *
+ * <p>Run from the IDE, or with
+ * {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.quckapp.permission.benchmark.EventCodecBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventCodecBenchmark {
+
+    /**
+     * A grant, the most frequent event, or a role update carrying its permissions.
+     */
+    @Param({"USER_ROLE_ASSIGNED", "ROLE_UPDATED"})
+    public PermissionEvent.Type type;
+
+    private PermissionEvent event;
+    private JsonEventCodec json;
+    private BinaryEventCodec binary;
+    private byte[] jsonPayload;
+    private byte[] binaryPayload;
+
+    @Setup
+    public void setUp() {
+        event = event(type);
+        json = new JsonEventCodec(new ObjectMapper());
+        binary = new BinaryEventCodec();
+        jsonPayload = json.encode(event);
+        binaryPayload = binary.encode(event);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return json.encode(event);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return binary.encode(event);
+    }
+
+    @Benchmark
+    public PermissionEvent decodeJson() {
+        return json.decode(jsonPayload);
+    }
+
+    @Benchmark
+    public PermissionEvent decodeBinary() {
+        return binary.decode(binaryPayload);
+    }
+
+    static PermissionEvent event(PermissionEvent.Type type) {
+        PermissionEvent.PermissionEventBuilder event = PermissionEvent.builder()
+            .type(type)
+            .workspaceId(UUID.randomUUID())
+            .timestamp(System.currentTimeMillis())
+            .origin(UUID.randomUUID())
+            .generation(1_234_567)
+            .roleId(UUID.randomUUID())
+            .roleName("Member");
+        if (type == PermissionEvent.Type.USER_ROLE_ASSIGNED) {
+            return event.userId(UUID.randomUUID()).grantedBy(UUID.randomUUID()).build();
+        }
+        List<PolicyRule> permissions = new ArrayList<>();
+        for (String resource : List.of("message", "channel", "file", "thread", "reaction", "member")) {
+            permissions.add(new PolicyRule(resource, "read"));
+            permissions.add(new PolicyRule(resource, "create"));
+        }
+        return event.description("Regular workspace members").priority(10).permissions(permissions).build();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        JsonEventCodec json = new JsonEventCodec(new ObjectMapper());
+        BinaryEventCodec binary = new BinaryEventCodec();
+        for (PermissionEvent.Type type : List.of(PermissionEvent.Type.USER_ROLE_ASSIGNED, PermissionEvent.Type.ROLE_UPDATED)) {
+            PermissionEvent event = event(type);
+            System.out.printf("%-20s JSON %4d bytes, binary %4d bytes%n",
+                type, json.encode(event).length, binary.encode(event).length);
+        }
+        new Runner(new OptionsBuilder()
+            .include(EventCodecBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
@@ -0,0 +1,68 @@
+package com.quckapp.permission.benchmark;
+
+import com.quckapp.permission.policy.SnapshotEnforcer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Retained heap of one million groupings, as Casbin's {@code List<List<String>>} rows (what the
+ * JDBC adapter loads) and as the dictionary-encoded {@link SnapshotEnforcer}.
+ *
+ * <p>Not a JMH benchmark: run {@link #main} with a fixed heap, e.g.
+ * {@code java -Xms4g -Xmx4g -cp ... com.quckapp.permission.benchmark.GroupingFootprint}.
+ */
+public final class GroupingFootprint {
+
+    private static final int WORKSPACES = 1_000;
+    private static final int USERS_PER_WORKSPACE = 1_000;
+    private static final int ROLES_PER_WORKSPACE = 8;
+
+    private GroupingFootprint() {
+    }
+
+    public static void main(String[] args) {
+        long baseline = usedHeap();
+        List<List<String>> rows = groupingRows();
+        long rowsHeap = usedHeap() - baseline;
+
+        SnapshotEnforcer enforcer = new SnapshotEnforcer();
+        enforcer.load(List.of(), rows);
+        rows = null;
+        long snapshotHeap = usedHeap() - baseline;
+
+        System.out.printf("groupings:                %,d%n", WORKSPACES * USERS_PER_WORKSPACE);
+        System.out.printf("List<List<String>> rows:  %,d MB%n", rowsHeap >> 20);
+        System.out.printf("SnapshotEnforcer:         %,d MB (%d domains)%n",
+            snapshotHeap >> 20, enforcer.domainCount());
+    }
+
+    private static List<List<String>> groupingRows() {
+        List<List<String>> rows = new ArrayList<>(WORKSPACES * USERS_PER_WORKSPACE);
+        for (int w = 0; w < WORKSPACES; w++) {
+            UUID workspace = UUID.randomUUID();
+            UUID[] roles = new UUID[ROLES_PER_WORKSPACE];
+            for (int r = 0; r < roles.length; r++) {
+                roles[r] = UUID.randomUUID();
+            }
+            for (int u = 0; u < USERS_PER_WORKSPACE; u++) {
+                // Fresh strings per row, as materialized from a JDBC result set
+                List<String> row = new ArrayList<>(3);
+                row.add(UUID.randomUUID().toString());
+                row.add(roles[u % roles.length].toString());
+                row.add(workspace.toString());
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,117 @@
+package com.quckapp.permission.benchmark;
+
+import com.quckapp.permission.policy.PatternMatcher;
+import com.quckapp.permission.policy.PolicyRule;
+import org.casbin.jcasbin.main.Enforcer;
+import org.casbin.jcasbin.model.Model;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of matching a request against a role's path-pattern rules: jcasbin's enforcer, a scan of
+ * the rules with jcasbin's {@code keyMatch2}/{@code keyMatch}, and the compiled {@link PatternMatcher}.
+ *
+ * <p>Run from the IDE, or with
+ * {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.quckapp.permission.benchmark.PatternMatcherBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PatternMatcherBenchmark {
+
+    private static final String MATCHED_RESOURCE = "/workspaces/42/resource%d/7";
+    private static final String MISSED_RESOURCE = "/projects/42/settings";
+
+    @Param({"10", "100"})
+    public int rules;
+
+    private Enforcer enforcer;
+    private List<PolicyRule> policyRules;
+    private PatternMatcher matcher;
+    private String user;
+    private String domain;
+    private String matchedResource;
+
+    @Setup
+    public void setUp() throws IOException {
+        Model model = new Model();
+        try (InputStream in = getClass().getResourceAsStream("/casbin/rbac_model.conf")) {
+            model.loadModelFromText(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        enforcer = new Enforcer(model);
+        user = UUID.randomUUID().toString();
+        domain = UUID.randomUUID().toString();
+        String role = UUID.randomUUID().toString();
+        enforcer.addGroupingPolicy(user, role, domain);
+
+        policyRules = new ArrayList<>(rules);
+        for (int i = 0; i < rules; i++) {
+            PolicyRule rule = i % 2 == 0
+                ? new PolicyRule("/workspaces/:id/resource" + i + "/:item", "read")
+                : new PolicyRule("/workspaces/:id/resource" + i + "/*", "manage_*");
+            policyRules.add(rule);
+            enforcer.addPolicy(role, domain, rule.resource(), rule.action());
+        }
+        matcher = PatternMatcher.compile(policyRules);
+        // The last rule, so that a scan has to go through all of them
+        matchedResource = String.format(MATCHED_RESOURCE, rules - 1);
+    }
+
+    @Benchmark
+    public boolean casbinEnforcerMatched() {
+        return enforcer.enforce(user, domain, matchedResource, "manage_members");
+    }
+
+    @Benchmark
+    public boolean casbinEnforcerMissed() {
+        return enforcer.enforce(user, domain, MISSED_RESOURCE, "read");
+    }
+
+    @Benchmark
+    public boolean ruleScanMatched() {
+        return scan(matchedResource, "manage_members");
+    }
+
+    @Benchmark
+    public boolean ruleScanMissed() {
+        return scan(MISSED_RESOURCE, "read");
+    }
+
+    @Benchmark
+    public boolean compiledMatched() {
+        return matcher.matches(matchedResource, "manage_members");
+    }
+
+    @Benchmark
+    public boolean compiledMissed() {
+        return matcher.matches(MISSED_RESOURCE, "read");
+    }
+
+    private boolean scan(String resource, String action) {
+        for (PolicyRule rule : policyRules) {
+            if (rule.matches(resource, action)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(PatternMatcherBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
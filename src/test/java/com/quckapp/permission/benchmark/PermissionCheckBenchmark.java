@@ -0,0 +1,84 @@
+package com.quckapp.permission.benchmark;
+
+import com.quckapp.permission.policy.SnapshotEnforcer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of allowed vs denied checks through the snapshot enforcer, and of the former two-pass
+ * denial path ({@code enforce(action) || enforce("*")}).
+ *
+ * <p>Run from the IDE, or with
+ * {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.quckapp.permission.benchmark.PermissionCheckBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PermissionCheckBenchmark {
+
+    static final String[][] CATALOG = {
+        {"workspace", "read"}, {"workspace", "update"}, {"workspace", "manage_members"},
+        {"channel", "create"}, {"channel", "read"}, {"channel", "update"}, {"channel", "delete"},
+        {"message", "create"}, {"message", "read"}, {"message", "update"}, {"message", "pin"},
+        {"file", "upload"}, {"file", "download"}, {"user", "read"}, {"role", "read"},
+    };
+
+    @Param({"100", "10000"})
+    public int workspaces;
+
+    private SnapshotEnforcer enforcer;
+    private UUID userId;
+    private UUID workspaceId;
+
+    @Setup
+    public void setUp() {
+        enforcer = new SnapshotEnforcer();
+        for (int w = 0; w < workspaces; w++) {
+            UUID workspace = UUID.randomUUID();
+            UUID[] roles = new UUID[4];
+            for (int r = 0; r < roles.length; r++) {
+                roles[r] = UUID.randomUUID();
+                for (int p = r; p < CATALOG.length; p += 2) {
+                    enforcer.addPolicy(roles[r], workspace, CATALOG[p][0], CATALOG[p][1]);
+                }
+            }
+            for (int u = 0; u < 50; u++) {
+                UUID user = UUID.randomUUID();
+                enforcer.addGroupingPolicy(user, roles[u % roles.length], workspace);
+                enforcer.addGroupingPolicy(user, roles[(u + 1) % roles.length], workspace);
+                userId = user;
+                workspaceId = workspace;
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean allowedCheck() {
+        return enforcer.enforce(userId, workspaceId, "message", "read");
+    }
+
+    @Benchmark
+    public boolean deniedCheck() {
+        return enforcer.enforce(userId, workspaceId, "admin", "manage_settings");
+    }
+
+    @Benchmark
+    public boolean deniedCheckTwoPass() {
+        return enforcer.enforce(userId, workspaceId, "admin", "manage_settings")
+            || enforcer.enforce(userId, workspaceId, "admin", "*");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(PermissionCheckBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
@@ -0,0 +1,179 @@
+package com.quckapp.permission.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.quckapp.permission.dto.PermissionDtos;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TwoLevelCache Tests")
+class TwoLevelCacheTest {
+
+    private static final String CHANNEL = "cache-invalidation";
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    private Cache remote;
+    private CacheInvalidationBus bus;
+    private TwoLevelCache cache;
+
+    @BeforeEach
+    void setUp() {
+        remote = spy(new ConcurrentMapCache("roles"));
+        bus = new CacheInvalidationBus(redisTemplate, new ObjectMapper(), CHANNEL);
+        cache = new TwoLevelCache("roles", Caffeine.newBuilder().maximumSize(100).build(), remote, bus);
+        bus.register(cache);
+    }
+
+    @Nested
+    @DisplayName("Read Tests")
+    class ReadTests {
+
+        @Test
+        @DisplayName("should serve repeated reads from the local tier")
+        void shouldServeFromLocalTier() {
+            UUID key = UUID.randomUUID();
+            remote.put(key, "role");
+
+            assertThat(cache.get(key, String.class)).isEqualTo("role");
+            assertThat(cache.get(key, String.class)).isEqualTo("role");
+
+            verify(remote, times(1)).get(key);
+        }
+
+        @Test
+        @DisplayName("should load through both tiers on a miss")
+        void shouldLoadThroughBothTiers() {
+            UUID key = UUID.randomUUID();
+
+            assertThat(cache.get(key, () -> "loaded")).isEqualTo("loaded");
+            assertThat(remote.get(key).get()).isEqualTo("loaded");
+            assertThat(cache.get(key, () -> "reloaded")).isEqualTo("loaded");
+        }
+
+        @Test
+        @DisplayName("should serve local hits as the value itself, without a copy")
+        void shouldServeLocalValuesAsIs() {
+            UUID key = UUID.randomUUID();
+            PermissionDtos.PermissionResponse value =
+                    PermissionDtos.PermissionResponse.builder().resource("message").action("read").build();
+            remote.put(key, value);
+            cache.get(key);
+
+            assertThat(cache.get(key, PermissionDtos.PermissionResponse.class)).isSameAs(value);
+            verify(remote, times(1)).get(key);
+        }
+
+        @Test
+        @DisplayName("should return null when neither tier has the key")
+        void shouldReturnNullOnMiss() {
+            assertThat(cache.get(UUID.randomUUID())).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("Invalidation Tests")
+    class InvalidationTests {
+
+        @Test
+        @DisplayName("should evict both tiers and announce the key")
+        void shouldEvictAndPublish() {
+            UUID key = UUID.randomUUID();
+            cache.put(key, "role");
+            reset(redisTemplate);
+
+            cache.evict(key);
+
+            assertThat(remote.get(key)).isNull();
+            assertThat(cache.get(key)).isNull();
+            ArgumentCaptor<String> message = ArgumentCaptor.forClass(String.class);
+            verify(redisTemplate).convertAndSend(eq(CHANNEL), message.capture());
+            assertThat(message.getValue()).contains("\"cache\":\"roles\"").contains(key.toString());
+        }
+
+        @Test
+        @DisplayName("should drop the local entry when another node evicts it")
+        void shouldApplyRemoteInvalidation() {
+            UUID key = UUID.randomUUID();
+            remote.put(key, "stale");
+            cache.get(key);
+            remote.put(key, "fresh");
+
+            bus.onMessage(message("{\"origin\":\"other-node\",\"cache\":\"roles\",\"key\":\"" + key + "\"}"), null);
+
+            assertThat(cache.get(key, String.class)).isEqualTo("fresh");
+        }
+
+        @Test
+        @DisplayName("should not keep a remote read locally when an invalidation arrived during it")
+        void shouldNotCacheReadRacingInvalidation() {
+            UUID key = UUID.randomUUID();
+            remote.put(key, "stale");
+            doAnswer(invocation -> {
+                Object read = invocation.callRealMethod();
+                // Another node changes the entry while this read is in flight
+                remote.put(key, "fresh");
+                bus.onMessage(message("{\"origin\":\"other-node\",\"cache\":\"roles\",\"key\":\"" + key + "\"}"), null);
+                return read;
+            }).doCallRealMethod().when(remote).get(key);
+
+            assertThat(cache.get(key, String.class)).isEqualTo("stale");
+            assertThat(cache.get(key, String.class)).isEqualTo("fresh");
+        }
+
+        @Test
+        @DisplayName("should clear the local tier when another node clears the cache")
+        void shouldApplyRemoteClear() {
+            UUID key = UUID.randomUUID();
+            remote.put(key, "stale");
+            cache.get(key);
+            remote.put(key, "fresh");
+
+            bus.onMessage(message("{\"origin\":\"other-node\",\"cache\":\"roles\",\"key\":null}"), null);
+
+            assertThat(cache.get(key, String.class)).isEqualTo("fresh");
+        }
+
+        @Test
+        @DisplayName("should keep serving when the invalidation cannot be published")
+        void shouldToleratePublishFailure() {
+            doThrow(new IllegalStateException("redis down")).when(redisTemplate).convertAndSend(anyString(), anyString());
+            UUID key = UUID.randomUUID();
+
+            cache.put(key, "role");
+            cache.evict(key);
+
+            assertThat(cache.get(key)).isNull();
+        }
+
+        @Test
+        @DisplayName("should ignore malformed messages")
+        void shouldIgnoreMalformedMessage() {
+            assertThatCode(() -> bus.onMessage(message("not-json"), null)).doesNotThrowAnyException();
+        }
+
+        private DefaultMessage message(String body) {
+            return new DefaultMessage(CHANNEL.getBytes(StandardCharsets.UTF_8), body.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
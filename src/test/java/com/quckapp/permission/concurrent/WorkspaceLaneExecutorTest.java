@@ -0,0 +1,157 @@
+package com.quckapp.permission.concurrent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("WorkspaceLaneExecutor Tests")
+class WorkspaceLaneExecutorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private WorkspaceLaneExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    private WorkspaceLaneExecutor executor(int capacity, WorkspaceLaneExecutor.Overflow overflow) {
+        executor = new WorkspaceLaneExecutor("test", capacity, overflow, Duration.ofMillis(200), meterRegistry);
+        return executor;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void drain(Object key) throws Exception {
+        CompletableFuture.runAsync(() -> { }, executor.lane(key)).get(5, TimeUnit.SECONDS);
+    }
+
+    @Nested
+    @DisplayName("Ordering Tests")
+    class OrderingTests {
+
+        @Test
+        @DisplayName("should run the tasks of a key one at a time in submission order")
+        void shouldRunKeyInOrder() throws Exception {
+            executor(1000, WorkspaceLaneExecutor.Overflow.ABORT);
+            List<Integer> ran = new CopyOnWriteArrayList<>();
+
+            for (int i = 0; i < 500; i++) {
+                int task = i;
+                executor.execute("workspace", () -> ran.add(task));
+            }
+            drain("workspace");
+
+            assertThat(ran).hasSize(500).isSorted();
+        }
+
+        @Test
+        @DisplayName("should run different keys concurrently")
+        void shouldRunKeysConcurrently() throws Exception {
+            executor(10, WorkspaceLaneExecutor.Overflow.ABORT);
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch otherRan = new CountDownLatch(1);
+
+            executor.execute("a", () -> await(release));
+            executor.execute("b", otherRan::countDown);
+
+            await(otherRan);
+            release.countDown();
+            drain("a");
+        }
+
+        @Test
+        @DisplayName("should keep running a lane after one of its tasks fails")
+        void shouldSurviveFailingTask() throws Exception {
+            executor(10, WorkspaceLaneExecutor.Overflow.ABORT);
+            List<String> ran = new CopyOnWriteArrayList<>();
+
+            executor.execute("workspace", () -> {
+                throw new IllegalStateException("Boom");
+            });
+            executor.execute("workspace", () -> ran.add("after"));
+            drain("workspace");
+
+            assertThat(ran).containsExactly("after");
+        }
+    }
+
+    @Nested
+    @DisplayName("Overflow Tests")
+    class OverflowTests {
+
+        @Test
+        @DisplayName("should reject at once when full and aborting")
+        void shouldAbortWhenFull() throws Exception {
+            executor(2, WorkspaceLaneExecutor.Overflow.ABORT);
+            CountDownLatch release = new CountDownLatch(1);
+            executor.execute("workspace", () -> await(release));
+            executor.execute("workspace", () -> { });
+
+            assertThatThrownBy(() -> executor.execute(() -> { }))
+                    .isInstanceOf(RejectedExecutionException.class);
+            assertThat(meterRegistry.get("permission.executor.queue.depth").gauge().value()).isEqualTo(2);
+            assertThat(meterRegistry.get("permission.executor.rejections").counter().count()).isEqualTo(1);
+
+            release.countDown();
+            // No room for a marker task until both have finished
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (executor.depth() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(executor.depth()).isZero();
+        }
+
+        @Test
+        @DisplayName("should hold the caller back until there is room, then reject after the timeout")
+        void shouldBlockWhenFull() throws Exception {
+            executor(1, WorkspaceLaneExecutor.Overflow.BLOCK);
+            CountDownLatch release = new CountDownLatch(1);
+            executor.execute("workspace", () -> await(release));
+
+            long start = System.nanoTime();
+            assertThatThrownBy(() -> executor.execute(() -> { }))
+                    .isInstanceOf(RejectedExecutionException.class);
+            assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(Duration.ofMillis(200).toNanos());
+
+            CompletableFuture<Void> blocked = CompletableFuture.runAsync(() -> executor.execute("workspace", () -> { }));
+            Thread.sleep(50);
+            assertThat(blocked).isNotDone();
+            release.countDown();
+            blocked.get(5, TimeUnit.SECONDS);
+            drain("workspace");
+            assertThat(meterRegistry.get("permission.executor.wait").timer().count()).isEqualTo(3);
+        }
+
+        @Test
+        @DisplayName("should reject keyed tasks after shutdown and leave no lane or room behind")
+        void shouldRejectAfterShutdown() {
+            executor(10, WorkspaceLaneExecutor.Overflow.ABORT);
+            executor.close();
+
+            assertThatThrownBy(() -> executor.execute("workspace", () -> { }))
+                    .isInstanceOf(RejectedExecutionException.class);
+
+            assertThat(executor.depth()).isZero();
+            assertThat(meterRegistry.get("permission.executor.lanes").gauge().value()).isZero();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.quckapp.permission.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.quckapp.permission.exception.GlobalExceptionHandler;
+import com.quckapp.permission.policy.SnapshotEnforcer;
 import com.quckapp.permission.service.CasbinPolicySyncService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -41,14 +42,14 @@ class AdminControllerTest {
     class CasbinPolicyManagementTests {
 
         @Test
-        @DisplayName("should reload Casbin policies")
+        @DisplayName("should start a Casbin policy reload")
         void shouldReloadCasbinPolicies() throws Exception {
             doNothing().when(casbinPolicySyncService).reloadPolicies();
 
             mockMvc.perform(post("/api/admin/casbin/reload"))
-                    .andExpect(status().isOk())
+                    .andExpect(status().isAccepted())
                     .andExpect(jsonPath("$.success").value(true))
-                    .andExpect(jsonPath("$.message").value("Casbin policies reloaded"));
+                    .andExpect(jsonPath("$.message").value("Casbin policy reload started"));
 
             verify(casbinPolicySyncService).reloadPolicies();
         }
@@ -76,8 +77,7 @@ class AdminControllerTest {
                     List.of("user1", "role1", "workspace1")
             );
 
-            when(casbinPolicySyncService.getAllPolicies()).thenReturn(policies);
-            when(casbinPolicySyncService.getAllGroupingPolicies()).thenReturn(groupings);
+            when(casbinPolicySyncService.getAllRules()).thenReturn(new SnapshotEnforcer.Rows(policies, groupings));
 
             mockMvc.perform(get("/api/admin/casbin/policies"))
                     .andExpect(status().isOk())
@@ -85,8 +85,7 @@ class AdminControllerTest {
                     .andExpect(jsonPath("$.data.policies").isArray())
                     .andExpect(jsonPath("$.data.groupings").isArray());
 
-            verify(casbinPolicySyncService).getAllPolicies();
-            verify(casbinPolicySyncService).getAllGroupingPolicies();
+            verify(casbinPolicySyncService).getAllRules();
         }
     }
 }
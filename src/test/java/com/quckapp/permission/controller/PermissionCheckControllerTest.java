@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.quckapp.permission.TestDataFactory;
 import com.quckapp.permission.dto.PermissionDtos.*;
 import com.quckapp.permission.exception.GlobalExceptionHandler;
+import com.quckapp.permission.exception.PolicyBehindException;
 import com.quckapp.permission.service.PermissionService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -16,6 +17,9 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.util.List;
+import java.util.UUID;
+
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -94,5 +98,79 @@ class PermissionCheckControllerTest {
                             .content(objectMapper.writeValueAsString(request)))
                     .andExpect(status().isBadRequest());
         }
+
+        @Test
+        @DisplayName("should return 503 with Retry-After when the node is behind the required generation")
+        void shouldReturn503WhenPolicyBehind() throws Exception {
+            CheckPermissionRequest request = TestDataFactory.checkPermissionRequest("message", "read");
+            request.setMinGeneration(12L);
+
+            when(permissionService.checkPermission(any(CheckPermissionRequest.class)))
+                    .thenThrow(new PolicyBehindException(UUID.randomUUID(), 12L, 10L));
+
+            mockMvc.perform(post("/api/permissions/check")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "1"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Batch Check Permission Tests")
+    class BatchCheckPermissionTests {
+
+        @Test
+        @DisplayName("should return positional results for a batch")
+        void shouldReturnPositionalResults() throws Exception {
+            BatchCheckPermissionRequest request = BatchCheckPermissionRequest.builder()
+                    .checks(List.of(
+                            TestDataFactory.checkPermissionRequest("message", "read"),
+                            TestDataFactory.checkPermissionRequest("admin", "access")))
+                    .build();
+            BatchPermissionCheckResponse response = BatchPermissionCheckResponse.builder()
+                    .results(List.of(
+                            TestDataFactory.createPermissionCheckResponse(true),
+                            TestDataFactory.createPermissionCheckResponse(false)))
+                    .build();
+
+            when(permissionService.checkPermissions(any(BatchCheckPermissionRequest.class))).thenReturn(response);
+
+            mockMvc.perform(post("/api/permissions/check/batch")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.success").value(true))
+                    .andExpect(jsonPath("$.data.results[0].allowed").value(true))
+                    .andExpect(jsonPath("$.data.results[1].allowed").value(false));
+        }
+
+        @Test
+        @DisplayName("should return 400 for an empty batch")
+        void shouldReturn400ForEmptyBatch() throws Exception {
+            BatchCheckPermissionRequest request = BatchCheckPermissionRequest.builder()
+                    .checks(List.of())
+                    .build();
+
+            mockMvc.perform(post("/api/permissions/check/batch")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isBadRequest());
+
+            verify(permissionService, never()).checkPermissions(any());
+        }
+
+        @Test
+        @DisplayName("should return 400 for an invalid check inside a batch")
+        void shouldReturn400ForInvalidCheck() throws Exception {
+            BatchCheckPermissionRequest request = BatchCheckPermissionRequest.builder()
+                    .checks(List.of(CheckPermissionRequest.builder().resource("message").build()))
+                    .build();
+
+            mockMvc.perform(post("/api/permissions/check/batch")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isBadRequest());
+        }
     }
 }
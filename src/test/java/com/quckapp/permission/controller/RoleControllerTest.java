@@ -200,10 +200,11 @@ class RoleControllerTest {
         @Test
         @DisplayName("should delete role successfully")
         void shouldDeleteRoleSuccessfully() throws Exception {
-            doNothing().when(permissionService).deleteRole(roleId);
+            when(permissionService.deleteRole(roleId)).thenReturn(42L);
 
             mockMvc.perform(delete("/api/roles/{id}", roleId))
                     .andExpect(status().isOk())
+                    .andExpect(header().string("X-Policy-Generation", "42"))
                     .andExpect(jsonPath("$.success").value(true))
                     .andExpect(jsonPath("$.message").value("Role deleted"));
 
@@ -122,11 +122,12 @@ class UserRoleControllerTest {
         @Test
         @DisplayName("should revoke role from user")
         void shouldRevokeRoleFromUser() throws Exception {
-            doNothing().when(permissionService).revokeRole(userId, roleId, workspaceId);
+            when(permissionService.revokeRole(userId, roleId, workspaceId)).thenReturn(42L);
 
             mockMvc.perform(delete("/api/user-roles/user/{userId}/role/{roleId}/workspace/{workspaceId}",
                             userId, roleId, workspaceId))
                     .andExpect(status().isOk())
+                    .andExpect(header().string("X-Policy-Generation", "42"))
                     .andExpect(jsonPath("$.success").value(true))
                     .andExpect(jsonPath("$.message").value("Role revoked"));
 
@@ -0,0 +1,203 @@
+package com.quckapp.permission.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quckapp.permission.domain.entity.OutboxEvent;
+import com.quckapp.permission.domain.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.mapping.AbstractJavaTypeMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("OutboxRelay Tests")
+class OutboxRelayTest {
+
+    private static final String TOPIC = "quckapp.permissions.events";
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private OutboxRelay relay;
+
+    private UUID workspaceA;
+    private UUID workspaceB;
+
+    @BeforeEach
+    void setUp() {
+        relay = new OutboxRelay(outboxEventRepository, kafkaTemplate, new PermissionEventSerde(new ObjectMapper()),
+                transactionManager, meterRegistry);
+        ReflectionTestUtils.setField(relay, "permissionEventsTopic", TOPIC);
+        ReflectionTestUtils.setField(relay, "batchSize", 100);
+        ReflectionTestUtils.setField(relay, "sendTimeout", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(relay, "lease", Duration.ofSeconds(30));
+        lenient().when(outboxEventRepository.claimRelay(anyString(), eq(30_000_000L))).thenReturn(1);
+        workspaceA = UUID.randomUUID();
+        workspaceB = UUID.randomUUID();
+    }
+
+    private static OutboxEvent event(long id, UUID workspaceId, String eventType) {
+        return OutboxEvent.builder()
+                .id(id)
+                .workspaceId(workspaceId)
+                .eventType(eventType)
+                .payload(new byte[]{BinaryEventCodec.VERSION, (byte) id})
+                .build();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void mockSends(CompletableFuture... results) {
+        CompletableFuture first = results[0];
+        CompletableFuture[] rest = new CompletableFuture[results.length - 1];
+        System.arraycopy(results, 1, rest, 0, rest.length);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(first, rest);
+    }
+
+    private static CompletableFuture<Void> acked() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private static CompletableFuture<Void> failed() {
+        return CompletableFuture.failedFuture(new RuntimeException("Broker unavailable"));
+    }
+
+    @Nested
+    @DisplayName("Relay Tests")
+    class RelayTests {
+
+        @Test
+        @DisplayName("should send a batch in order, keyed by workspace, and delete it once acknowledged")
+        @SuppressWarnings("unchecked")
+        void shouldRelayBatch() {
+            when(outboxEventRepository.findNextBatch(any())).thenReturn(List.of(
+                    event(1, workspaceA, "ROLE_CREATED"), event(2, workspaceB, "USER_ROLE_ASSIGNED")));
+            mockSends(acked(), acked());
+
+            relay.relay();
+
+            ArgumentCaptor<ProducerRecord<String, byte[]>> records = ArgumentCaptor.forClass(ProducerRecord.class);
+            InOrder order = inOrder(kafkaTemplate, outboxEventRepository);
+            order.verify(kafkaTemplate, times(2)).send(records.capture());
+            order.verify(kafkaTemplate).flush();
+            order.verify(outboxEventRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+            assertThat(records.getAllValues()).extracting(ProducerRecord::topic).containsOnly(TOPIC);
+            assertThat(records.getAllValues()).extracting(ProducerRecord::key)
+                    .containsExactly(workspaceA.toString(), workspaceB.toString());
+            assertThat(records.getAllValues().get(0).value()).containsExactly(BinaryEventCodec.VERSION, 1);
+            assertThat(meterRegistry.get("permission.events.outbox.relayed").tag("outcome", "delivered")
+                    .counter().count()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("should send outside the transactions that read and delete the batch")
+        void shouldSendOutsideTransactions() {
+            when(outboxEventRepository.findNextBatch(any())).thenReturn(List.of(event(1, workspaceA, "ROLE_CREATED")));
+            mockSends(acked());
+
+            relay.relay();
+
+            InOrder order = inOrder(transactionManager, outboxEventRepository, kafkaTemplate);
+            order.verify(transactionManager).getTransaction(any());
+            order.verify(outboxEventRepository).findNextBatch(any());
+            order.verify(transactionManager).commit(any());
+            order.verify(kafkaTemplate).send(any(ProducerRecord.class));
+            order.verify(transactionManager).getTransaction(any());
+            order.verify(outboxEventRepository).deleteAllByIdInBatch(List.of(1L));
+            order.verify(transactionManager).commit(any());
+        }
+
+        @Test
+        @DisplayName("should name each record's codec and version, and keep the JSON type header")
+        @SuppressWarnings("unchecked")
+        void shouldSendFormatHeaders() {
+            OutboxEvent json = event(2, workspaceA, "ROLE_UPDATED");
+            json.setPayload("{\"eventType\":\"ROLE_UPDATED\"}".getBytes(StandardCharsets.UTF_8));
+            when(outboxEventRepository.findNextBatch(any())).thenReturn(List.of(event(1, workspaceA, "ROLE_CREATED"), json));
+            mockSends(acked(), acked());
+
+            relay.relay();
+
+            ArgumentCaptor<ProducerRecord<String, byte[]>> records = ArgumentCaptor.forClass(ProducerRecord.class);
+            verify(kafkaTemplate, times(2)).send(records.capture());
+            Headers binaryHeaders = records.getAllValues().get(0).headers();
+            assertThat(header(binaryHeaders, PermissionEventSerde.CODEC_HEADER)).isEqualTo("binary");
+            assertThat(header(binaryHeaders, PermissionEventSerde.VERSION_HEADER)).isEqualTo("1");
+            assertThat(binaryHeaders.lastHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME)).isNull();
+            Headers jsonHeaders = records.getAllValues().get(1).headers();
+            assertThat(header(jsonHeaders, PermissionEventSerde.CODEC_HEADER)).isEqualTo("json");
+            assertThat(header(jsonHeaders, AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME))
+                    .isEqualTo("java.util.HashMap");
+        }
+
+        private static String header(Headers headers, String key) {
+            return new String(headers.lastHeader(key).value(), StandardCharsets.UTF_8);
+        }
+
+        @Test
+        @DisplayName("should keep a failed event and the later events of its workspace only")
+        void shouldKeepFailedWorkspaceTail() {
+            when(outboxEventRepository.findNextBatch(any())).thenReturn(List.of(
+                    event(1, workspaceA, "ROLE_CREATED"),
+                    event(2, workspaceA, "ROLE_UPDATED"),
+                    event(3, workspaceB, "ROLE_CREATED"),
+                    event(4, workspaceA, "ROLE_DELETED")));
+            mockSends(acked(), failed(), acked(), acked());
+
+            relay.relay();
+
+            verify(outboxEventRepository).deleteAllByIdInBatch(List.of(1L, 3L));
+            assertThat(meterRegistry.get("permission.events.outbox.relayed").tag("outcome", "retried")
+                    .counter().count()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("should skip the run while another node relays")
+        void shouldSkipWhileAnotherNodeRelays() {
+            when(outboxEventRepository.claimRelay(anyString(), anyLong())).thenReturn(0);
+
+            relay.relay();
+
+            verify(outboxEventRepository, never()).findNextBatch(any());
+            verifyNoInteractions(kafkaTemplate);
+        }
+
+        @Test
+        @DisplayName("should do nothing when the outbox is empty")
+        void shouldSkipEmptyOutbox() {
+            when(outboxEventRepository.findNextBatch(any())).thenReturn(List.of());
+
+            relay.relay();
+
+            verifyNoInteractions(kafkaTemplate);
+            verify(outboxEventRepository, never()).deleteAllByIdInBatch(any());
+        }
+    }
+}
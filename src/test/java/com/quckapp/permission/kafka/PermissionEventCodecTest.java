@@ -0,0 +1,154 @@
+package com.quckapp.permission.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quckapp.permission.policy.PolicyRule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("PermissionEventCodec Tests")
+class PermissionEventCodecTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BinaryEventCodec binary = new BinaryEventCodec();
+    private JsonEventCodec json;
+
+    private UUID workspaceId;
+    private UUID origin;
+
+    @BeforeEach
+    void setUp() {
+        json = new JsonEventCodec(objectMapper);
+        workspaceId = UUID.randomUUID();
+        origin = UUID.randomUUID();
+    }
+
+    private PermissionEvent.PermissionEventBuilder event(PermissionEvent.Type type) {
+        return PermissionEvent.builder()
+                .type(type)
+                .workspaceId(workspaceId)
+                // Whole millis, as both formats carry
+                .timestamp(1_700_000_000_123L)
+                .origin(origin)
+                .generation(981);
+    }
+
+    private List<PermissionEvent> allTypes() {
+        return List.of(
+                event(PermissionEvent.Type.ROLE_CREATED).roleId(UUID.randomUUID()).roleName("Admin")
+                        .description("Workspace admins").system(true).priority(100)
+                        .permissions(List.of(new PolicyRule("message", "*"), new PolicyRule("/channels/:id", "manage_*")))
+                        .build(),
+                event(PermissionEvent.Type.ROLE_UPDATED).roleId(UUID.randomUUID()).roleName("Gäste")
+                        .priority(-1).permissions(List.of()).build(),
+                event(PermissionEvent.Type.ROLE_DELETED).roleId(UUID.randomUUID()).roleName("Member").build(),
+                event(PermissionEvent.Type.USER_ROLE_ASSIGNED).userId(UUID.randomUUID()).roleId(UUID.randomUUID())
+                        .roleName("Member").channelId(UUID.randomUUID()).build(),
+                event(PermissionEvent.Type.USER_ROLE_ASSIGNED).userId(UUID.randomUUID()).roleId(UUID.randomUUID())
+                        .roleName("Member").grantedBy(UUID.randomUUID()).build(),
+                event(PermissionEvent.Type.USER_ROLE_REVOKED).userId(UUID.randomUUID()).roleId(UUID.randomUUID()).build());
+    }
+
+    @Nested
+    @DisplayName("Binary Format Tests")
+    class BinaryFormatTests {
+
+        @Test
+        @DisplayName("should round-trip every event type")
+        void shouldRoundTrip() {
+            for (PermissionEvent event : allTypes()) {
+                assertThat(binary.decode(binary.encode(event))).isEqualTo(event);
+            }
+        }
+
+        @Test
+        @DisplayName("should be told apart from JSON by its first byte")
+        void shouldDetectFormat() {
+            PermissionEvent event = allTypes().get(0);
+
+            assertThat(BinaryEventCodec.isBinary(binary.encode(event))).isTrue();
+            assertThat(BinaryEventCodec.isBinary(json.encode(event))).isFalse();
+        }
+
+        @Test
+        @DisplayName("should encode a grant in a fraction of the JSON size")
+        void shouldBeCompact() {
+            PermissionEvent revoke = allTypes().get(5);
+
+            // Header of 51 bytes and two UUIDs
+            assertThat(binary.encode(revoke)).hasSize(83);
+            assertThat(json.encode(revoke).length).isGreaterThan(3 * 83);
+        }
+
+        @Test
+        @DisplayName("should reject truncated payloads and unknown versions")
+        void shouldRejectMalformed() {
+            byte[] payload = binary.encode(allTypes().get(0));
+
+            assertThatThrownBy(() -> binary.decode(Arrays.copyOf(payload, payload.length - 3)))
+                    .isInstanceOf(IllegalArgumentException.class);
+            payload[0] = 2;
+            assertThatThrownBy(() -> binary.decode(payload))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("version");
+        }
+    }
+
+    @Nested
+    @DisplayName("JSON Format Tests")
+    class JsonFormatTests {
+
+        @Test
+        @DisplayName("should round-trip every event type")
+        void shouldRoundTrip() {
+            for (PermissionEvent event : allTypes()) {
+                PermissionEvent decoded = json.decode(json.encode(event));
+                // isSystem is only published on creation
+                PermissionEvent expected = event.type() == PermissionEvent.Type.ROLE_CREATED ? event
+                        : event(event.type()).roleId(event.roleId()).userId(event.userId()).roleName(event.roleName())
+                                .description(event.description()).priority(event.priority())
+                                .channelId(event.channelId()).grantedBy(event.grantedBy())
+                                .permissions(event.permissions()).build();
+                assertThat(decoded).isEqualTo(expected);
+            }
+        }
+
+        @Test
+        @DisplayName("should reject payloads that are not events")
+        void shouldRejectMalformed() {
+            assertThatThrownBy(() -> json.decode("{not json".getBytes()))
+                    .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> json.decode("{\"eventType\":\"ROLE_RENAMED\"}".getBytes()))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Serde Tests")
+    class SerdeTests {
+
+        @Test
+        @DisplayName("should write the configured format and read both")
+        void shouldSwitchFormat() {
+            PermissionEventSerde serde = new PermissionEventSerde(objectMapper);
+            PermissionEvent event = allTypes().get(3);
+            byte[] asJson = serde.encode(event);
+
+            ReflectionTestUtils.setField(serde, "format", PermissionEventSerde.Format.BINARY);
+            byte[] asBinary = serde.encode(event);
+
+            assertThat(BinaryEventCodec.isBinary(asJson)).isFalse();
+            assertThat(BinaryEventCodec.isBinary(asBinary)).isTrue();
+            assertThat(serde.decode(asJson)).isEqualTo(event);
+            assertThat(serde.decode(asBinary)).isEqualTo(event);
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package com.quckapp.permission.kafka;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.quckapp.permission.TestDataFactory;
+import com.quckapp.permission.domain.entity.OutboxEvent;
 import com.quckapp.permission.domain.entity.Role;
 import com.quckapp.permission.domain.entity.UserRole;
+import com.quckapp.permission.domain.repository.OutboxEventRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -11,12 +15,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -28,8 +33,9 @@ import static org.mockito.Mockito.*;
 class PermissionEventPublisherTest {
 
     @Mock
-    private KafkaTemplate<String, Object> kafkaTemplate;
+    private OutboxEventRepository outboxEventRepository;
 
+    private final ObjectMapper objectMapper = new ObjectMapper();
     private PermissionEventPublisher eventPublisher;
 
     private Role testRole;
@@ -40,8 +46,7 @@ class PermissionEventPublisherTest {
 
     @BeforeEach
     void setUp() {
-        eventPublisher = new PermissionEventPublisher(kafkaTemplate);
-        ReflectionTestUtils.setField(eventPublisher, "permissionEventsTopic", "quckapp.permissions.events");
+        eventPublisher = new PermissionEventPublisher(outboxEventRepository, new PermissionEventSerde(objectMapper));
 
         workspaceId = UUID.randomUUID();
         roleId = UUID.randomUUID();
@@ -53,18 +58,18 @@ class PermissionEventPublisherTest {
         testUserRole = TestDataFactory.createUserRole(userId, roleId, workspaceId);
     }
 
-    @SuppressWarnings({"unchecked", "rawtypes"})
-    private void mockKafkaSendSuccess() {
-        CompletableFuture future = new CompletableFuture();
-        future.complete(null);
-        given(kafkaTemplate.send(anyString(), anyString(), any())).willReturn(future);
+    private OutboxEvent queuedOutboxEvent() {
+        ArgumentCaptor<OutboxEvent> outboxCaptor = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(outboxEventRepository).save(outboxCaptor.capture());
+        return outboxCaptor.getValue();
     }
 
-    @SuppressWarnings({"unchecked", "rawtypes"})
-    private void mockKafkaSendFailure() {
-        CompletableFuture future = new CompletableFuture();
-        future.completeExceptionally(new RuntimeException("Kafka send failed"));
-        given(kafkaTemplate.send(anyString(), anyString(), any())).willReturn(future);
+    private Map<String, Object> queuedEvent() {
+        try {
+            return objectMapper.readValue(queuedOutboxEvent().getPayload(), new TypeReference<>() {});
+        } catch (IOException e) {
+            throw new AssertionError("Queued event is not JSON", e);
+        }
     }
 
     @Nested
@@ -74,13 +79,9 @@ class PermissionEventPublisherTest {
         @Test
         @DisplayName("should publish ROLE_CREATED event with correct data")
         void shouldPublishRoleCreatedEvent() {
-            mockKafkaSendSuccess();
-            ArgumentCaptor<Map<String, Object>> eventCaptor = ArgumentCaptor.forClass(Map.class);
-
-            eventPublisher.publishRoleCreated(testRole);
+            eventPublisher.publishRoleCreated(testRole, 1L);
 
-            verify(kafkaTemplate).send(eq("quckapp.permissions.events"), eq(workspaceId.toString()), eventCaptor.capture());
-            Map<String, Object> event = eventCaptor.getValue();
+            Map<String, Object> event = queuedEvent();
 
             assertThat(event.get("eventType")).isEqualTo("ROLE_CREATED");
             assertThat(event.get("workspaceId")).isEqualTo(workspaceId.toString());
@@ -95,17 +96,6 @@ class PermissionEventPublisherTest {
             assertThat(data.get("isSystem")).isEqualTo(false);
             assertThat(data.get("priority")).isEqualTo(10);
         }
-
-        @Test
-        @DisplayName("should handle send failure gracefully")
-        void shouldHandleSendFailureGracefully() {
-            mockKafkaSendFailure();
-
-            assertThatCode(() -> eventPublisher.publishRoleCreated(testRole))
-                    .doesNotThrowAnyException();
-
-            verify(kafkaTemplate).send(anyString(), anyString(), any());
-        }
     }
 
     @Nested
@@ -115,13 +105,9 @@ class PermissionEventPublisherTest {
         @Test
         @DisplayName("should publish ROLE_UPDATED event with correct data")
         void shouldPublishRoleUpdatedEvent() {
-            mockKafkaSendSuccess();
-            ArgumentCaptor<Map<String, Object>> eventCaptor = ArgumentCaptor.forClass(Map.class);
+            eventPublisher.publishRoleUpdated(testRole, 1L);
 
-            eventPublisher.publishRoleUpdated(testRole);
-
-            verify(kafkaTemplate).send(eq("quckapp.permissions.events"), eq(workspaceId.toString()), eventCaptor.capture());
-            Map<String, Object> event = eventCaptor.getValue();
+            Map<String, Object> event = queuedEvent();
 
             assertThat(event.get("eventType")).isEqualTo("ROLE_UPDATED");
 
@@ -132,12 +118,15 @@ class PermissionEventPublisherTest {
         }
 
         @Test
-        @DisplayName("should handle send failure gracefully")
-        void shouldHandleSendFailureGracefully() {
-            mockKafkaSendFailure();
+        @DisplayName("should carry the role's permissions for other nodes to apply")
+        void shouldIncludePermissions() {
+            testRole.setPermissions(new HashSet<>(Set.of(TestDataFactory.createPermission("message", "read", null))));
+
+            eventPublisher.publishRoleUpdated(testRole, 1L);
 
-            assertThatCode(() -> eventPublisher.publishRoleUpdated(testRole))
-                    .doesNotThrowAnyException();
+            @SuppressWarnings("unchecked")
+            Map<String, Object> data = (Map<String, Object>) queuedEvent().get("data");
+            assertThat(data.get("permissions")).isEqualTo(List.of(Map.of("resource", "message", "action", "read")));
         }
     }
 
@@ -148,13 +137,9 @@ class PermissionEventPublisherTest {
         @Test
         @DisplayName("should publish ROLE_DELETED event with correct data")
         void shouldPublishRoleDeletedEvent() {
-            mockKafkaSendSuccess();
-            ArgumentCaptor<Map<String, Object>> eventCaptor = ArgumentCaptor.forClass(Map.class);
-
-            eventPublisher.publishRoleDeleted(roleId, workspaceId, "Member");
+            eventPublisher.publishRoleDeleted(roleId, workspaceId, "Member", 1L);
 
-            verify(kafkaTemplate).send(eq("quckapp.permissions.events"), eq(workspaceId.toString()), eventCaptor.capture());
-            Map<String, Object> event = eventCaptor.getValue();
+            Map<String, Object> event = queuedEvent();
 
             assertThat(event.get("eventType")).isEqualTo("ROLE_DELETED");
 
@@ -164,15 +149,6 @@ class PermissionEventPublisherTest {
             assertThat(data.get("workspaceId")).isEqualTo(workspaceId.toString());
             assertThat(data.get("roleName")).isEqualTo("Member");
         }
-
-        @Test
-        @DisplayName("should handle send failure gracefully")
-        void shouldHandleSendFailureGracefully() {
-            mockKafkaSendFailure();
-
-            assertThatCode(() -> eventPublisher.publishRoleDeleted(roleId, workspaceId, "Member"))
-                    .doesNotThrowAnyException();
-        }
     }
 
     @Nested
@@ -182,13 +158,9 @@ class PermissionEventPublisherTest {
         @Test
         @DisplayName("should publish USER_ROLE_ASSIGNED event with correct data")
         void shouldPublishUserRoleAssignedEvent() {
-            mockKafkaSendSuccess();
-            ArgumentCaptor<Map<String, Object>> eventCaptor = ArgumentCaptor.forClass(Map.class);
-
-            eventPublisher.publishUserRoleAssigned(testUserRole, "Member");
+            eventPublisher.publishUserRoleAssigned(testUserRole, "Member", 1L);
 
-            verify(kafkaTemplate).send(eq("quckapp.permissions.events"), eq(workspaceId.toString()), eventCaptor.capture());
-            Map<String, Object> event = eventCaptor.getValue();
+            Map<String, Object> event = queuedEvent();
 
             assertThat(event.get("eventType")).isEqualTo("USER_ROLE_ASSIGNED");
 
@@ -203,50 +175,31 @@ class PermissionEventPublisherTest {
         @Test
         @DisplayName("should include channelId when present")
         void shouldIncludeChannelIdWhenPresent() {
-            mockKafkaSendSuccess();
             UUID channelId = UUID.randomUUID();
             UserRole userRoleWithChannel = TestDataFactory.createUserRoleWithChannel(channelId);
             userRoleWithChannel.setUserId(userId);
             userRoleWithChannel.setRoleId(roleId);
             userRoleWithChannel.setWorkspaceId(workspaceId);
 
-            ArgumentCaptor<Map<String, Object>> eventCaptor = ArgumentCaptor.forClass(Map.class);
-
-            eventPublisher.publishUserRoleAssigned(userRoleWithChannel, "Member");
-
-            verify(kafkaTemplate).send(anyString(), anyString(), eventCaptor.capture());
+            eventPublisher.publishUserRoleAssigned(userRoleWithChannel, "Member", 1L);
 
             @SuppressWarnings("unchecked")
-            Map<String, Object> data = (Map<String, Object>) eventCaptor.getValue().get("data");
+            Map<String, Object> data = (Map<String, Object>) queuedEvent().get("data");
             assertThat(data.get("channelId")).isEqualTo(channelId.toString());
         }
 
         @Test
         @DisplayName("should include grantedBy when present")
         void shouldIncludeGrantedByWhenPresent() {
-            mockKafkaSendSuccess();
             UUID grantedBy = UUID.randomUUID();
             testUserRole.setGrantedBy(grantedBy);
 
-            ArgumentCaptor<Map<String, Object>> eventCaptor = ArgumentCaptor.forClass(Map.class);
-
-            eventPublisher.publishUserRoleAssigned(testUserRole, "Member");
-
-            verify(kafkaTemplate).send(anyString(), anyString(), eventCaptor.capture());
+            eventPublisher.publishUserRoleAssigned(testUserRole, "Member", 1L);
 
             @SuppressWarnings("unchecked")
-            Map<String, Object> data = (Map<String, Object>) eventCaptor.getValue().get("data");
+            Map<String, Object> data = (Map<String, Object>) queuedEvent().get("data");
             assertThat(data.get("grantedBy")).isEqualTo(grantedBy.toString());
         }
-
-        @Test
-        @DisplayName("should handle send failure gracefully")
-        void shouldHandleSendFailureGracefully() {
-            mockKafkaSendFailure();
-
-            assertThatCode(() -> eventPublisher.publishUserRoleAssigned(testUserRole, "Member"))
-                    .doesNotThrowAnyException();
-        }
     }
 
     @Nested
@@ -256,13 +209,9 @@ class PermissionEventPublisherTest {
         @Test
         @DisplayName("should publish USER_ROLE_REVOKED event with correct data")
         void shouldPublishUserRoleRevokedEvent() {
-            mockKafkaSendSuccess();
-            ArgumentCaptor<Map<String, Object>> eventCaptor = ArgumentCaptor.forClass(Map.class);
-
-            eventPublisher.publishUserRoleRevoked(userId, roleId, workspaceId);
+            eventPublisher.publishUserRoleRevoked(userId, roleId, workspaceId, 1L);
 
-            verify(kafkaTemplate).send(eq("quckapp.permissions.events"), eq(workspaceId.toString()), eventCaptor.capture());
-            Map<String, Object> event = eventCaptor.getValue();
+            Map<String, Object> event = queuedEvent();
 
             assertThat(event.get("eventType")).isEqualTo("USER_ROLE_REVOKED");
 
@@ -272,15 +221,6 @@ class PermissionEventPublisherTest {
             assertThat(data.get("roleId")).isEqualTo(roleId.toString());
             assertThat(data.get("workspaceId")).isEqualTo(workspaceId.toString());
         }
-
-        @Test
-        @DisplayName("should handle send failure gracefully")
-        void shouldHandleSendFailureGracefully() {
-            mockKafkaSendFailure();
-
-            assertThatCode(() -> eventPublisher.publishUserRoleRevoked(userId, roleId, workspaceId))
-                    .doesNotThrowAnyException();
-        }
     }
 
     @Nested
@@ -290,13 +230,9 @@ class PermissionEventPublisherTest {
         @Test
         @DisplayName("should include timestamp in all events")
         void shouldIncludeTimestampInAllEvents() {
-            mockKafkaSendSuccess();
-            ArgumentCaptor<Map<String, Object>> eventCaptor = ArgumentCaptor.forClass(Map.class);
+            eventPublisher.publishRoleCreated(testRole, 1L);
 
-            eventPublisher.publishRoleCreated(testRole);
-
-            verify(kafkaTemplate).send(anyString(), anyString(), eventCaptor.capture());
-            Map<String, Object> event = eventCaptor.getValue();
+            Map<String, Object> event = queuedEvent();
 
             assertThat(event.get("timestamp")).isNotNull();
             assertThat(event.get("timestamp").toString()).isNotEmpty();
@@ -305,25 +241,23 @@ class PermissionEventPublisherTest {
         @Test
         @DisplayName("should include source in all events")
         void shouldIncludeSourceInAllEvents() {
-            mockKafkaSendSuccess();
-            ArgumentCaptor<Map<String, Object>> eventCaptor = ArgumentCaptor.forClass(Map.class);
-
-            eventPublisher.publishRoleUpdated(testRole);
+            eventPublisher.publishRoleUpdated(testRole, 1L);
 
-            verify(kafkaTemplate).send(anyString(), anyString(), eventCaptor.capture());
-            Map<String, Object> event = eventCaptor.getValue();
+            Map<String, Object> event = queuedEvent();
 
             assertThat(event.get("source")).isEqualTo("permission-service");
+            assertThat(event.get("origin")).isEqualTo(eventPublisher.getNodeId());
+            assertThat(((Number) event.get("generation")).longValue()).isEqualTo(1L);
         }
 
         @Test
-        @DisplayName("should use workspaceId as Kafka key")
-        void shouldUseWorkspaceIdAsKafkaKey() {
-            mockKafkaSendSuccess();
+        @DisplayName("should queue the event under its workspace, the Kafka key")
+        void shouldQueueUnderWorkspace() {
+            eventPublisher.publishRoleDeleted(roleId, workspaceId, "Member", 1L);
 
-            eventPublisher.publishRoleDeleted(roleId, workspaceId, "Member");
-
-            verify(kafkaTemplate).send(eq("quckapp.permissions.events"), eq(workspaceId.toString()), any());
+            OutboxEvent outboxEvent = queuedOutboxEvent();
+            assertThat(outboxEvent.getWorkspaceId()).isEqualTo(workspaceId);
+            assertThat(outboxEvent.getEventType()).isEqualTo("ROLE_DELETED");
         }
     }
 
@@ -332,28 +266,12 @@ class PermissionEventPublisherTest {
     class ErrorHandlingTests {
 
         @Test
-        @DisplayName("should handle KafkaTemplate exception gracefully")
-        void shouldHandleKafkaTemplateExceptionGracefully() {
-            given(kafkaTemplate.send(anyString(), anyString(), any()))
-                    .willThrow(new RuntimeException("Kafka unavailable"));
-
-            assertThatCode(() -> eventPublisher.publishRoleCreated(testRole))
-                    .doesNotThrowAnyException();
-        }
+        @DisplayName("should fail the change when its event cannot be queued")
+        void shouldPropagateOutboxFailure() {
+            given(outboxEventRepository.save(any())).willThrow(new RuntimeException("Database unavailable"));
 
-        @Test
-        @DisplayName("should handle multiple consecutive failures")
-        void shouldHandleMultipleConsecutiveFailures() {
-            given(kafkaTemplate.send(anyString(), anyString(), any()))
-                    .willThrow(new RuntimeException("Kafka unavailable"));
-
-            assertThatCode(() -> {
-                eventPublisher.publishRoleCreated(testRole);
-                eventPublisher.publishRoleUpdated(testRole);
-                eventPublisher.publishRoleDeleted(roleId, workspaceId, "Member");
-            }).doesNotThrowAnyException();
-
-            verify(kafkaTemplate, times(3)).send(anyString(), anyString(), any());
+            assertThatThrownBy(() -> eventPublisher.publishRoleCreated(testRole, 1L))
+                    .hasMessage("Database unavailable");
         }
     }
 }
@@ -0,0 +1,303 @@
+package com.quckapp.permission.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quckapp.permission.concurrent.WorkspaceLaneExecutor;
+import com.quckapp.permission.policy.PolicyRule;
+import com.quckapp.permission.service.CasbinPolicySyncService;
+import com.quckapp.permission.service.PolicyGenerations;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.ConsumerSeekAware.ConsumerSeekCallback;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PolicyChangeConsumer Tests")
+class PolicyChangeConsumerTest {
+
+    private static final String TOPIC = "quckapp.permissions.events";
+    private static final String THIS_NODE = UUID.randomUUID().toString();
+    private static final String OTHER_NODE = UUID.randomUUID().toString();
+
+    @Mock
+    private CasbinPolicySyncService syncService;
+
+    @Mock
+    private PermissionEventPublisher eventPublisher;
+
+    @Mock
+    private Consumer<?, ?> consumer;
+
+    @Mock
+    private KafkaListenerEndpointRegistry listenerRegistry;
+
+    @Mock
+    private MessageListenerContainer container;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PolicyGenerations policyGenerations;
+    private WorkspaceLaneExecutor workspaceLaneExecutor;
+    private PolicyChangeConsumer policyChangeConsumer;
+
+    private UUID workspaceId;
+    private UUID roleId;
+    private UUID userId;
+
+    @BeforeEach
+    void setUp() {
+        policyGenerations = new PolicyGenerations(meterRegistry);
+        workspaceLaneExecutor = new WorkspaceLaneExecutor("test", 100, WorkspaceLaneExecutor.Overflow.ABORT,
+                Duration.ofSeconds(1), meterRegistry);
+        policyChangeConsumer = new PolicyChangeConsumer(syncService, policyGenerations, eventPublisher,
+                new PermissionEventSerde(objectMapper), workspaceLaneExecutor, listenerRegistry, meterRegistry);
+        lenient().when(eventPublisher.getNodeId()).thenReturn(THIS_NODE);
+        lenient().when(consumer.currentLag(any())).thenReturn(OptionalLong.of(3));
+        lenient().when(listenerRegistry.getListenerContainer(PolicyChangeConsumer.LISTENER_ID)).thenReturn(container);
+        workspaceId = UUID.randomUUID();
+        roleId = UUID.randomUUID();
+        userId = UUID.randomUUID();
+    }
+
+    @AfterEach
+    void tearDown() {
+        workspaceLaneExecutor.close();
+    }
+
+    /**
+     * Waits for the events handed to the workspace's lane to be applied.
+     */
+    private void awaitApplied() throws Exception {
+        CompletableFuture.runAsync(() -> { }, workspaceLaneExecutor.lane(workspaceId)).get(5, TimeUnit.SECONDS);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private ConsumerRecord<String, byte[]> record(long offset, String origin, String type, Map<String, Object> data)
+            throws Exception {
+        Map<String, Object> event = Map.of("eventType", type, "workspaceId", workspaceId.toString(),
+                "origin", origin, "generation", 100 + offset, "data", data);
+        return new ConsumerRecord<>(TOPIC, 1, offset, workspaceId.toString(), objectMapper.writeValueAsBytes(event));
+    }
+
+    @Nested
+    @DisplayName("Apply Tests")
+    class ApplyTests {
+
+        @Test
+        @DisplayName("should replace the role's policies from an update on another node")
+        void shouldApplyRoleUpdate() throws Exception {
+            policyChangeConsumer.onEvent(record(7, OTHER_NODE, "ROLE_UPDATED", Map.of(
+                    "roleId", roleId.toString(),
+                    "workspaceId", workspaceId.toString(),
+                    "permissions", List.of(Map.of("resource", "message", "action", "read")))), consumer);
+            awaitApplied();
+
+            verify(syncService).applyRolePolicies(roleId, workspaceId, List.of(new PolicyRule("message", "read")));
+            assertThat(meterRegistry.get("permission.policy.replication.applied").tag("type", "ROLE_UPDATED")
+                    .counter().count()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("should apply assignments, revocations and role deletions")
+        void shouldApplyGroupingChanges() throws Exception {
+            Map<String, Object> grant = Map.of("userId", userId.toString(), "roleId", roleId.toString(),
+                    "workspaceId", workspaceId.toString());
+
+            policyChangeConsumer.onEvent(record(1, OTHER_NODE, "USER_ROLE_ASSIGNED", grant), consumer);
+            policyChangeConsumer.onEvent(record(2, OTHER_NODE, "USER_ROLE_REVOKED", grant), consumer);
+            policyChangeConsumer.onEvent(record(3, OTHER_NODE, "ROLE_DELETED",
+                    Map.of("roleId", roleId.toString(), "workspaceId", workspaceId.toString())), consumer);
+            awaitApplied();
+
+            verify(syncService).applyUserRoleAssignment(userId, roleId, workspaceId);
+            verify(syncService).applyUserRoleRevocation(userId, roleId, workspaceId);
+            verify(syncService).applyRoleRemoval(roleId, workspaceId);
+            assertThat(policyGenerations.current(workspaceId)).isEqualTo(103);
+        }
+
+        @Test
+        @DisplayName("should apply events in the binary format as well")
+        void shouldApplyBinaryEvent() throws Exception {
+            byte[] payload = new BinaryEventCodec().encode(PermissionEvent.builder()
+                    .type(PermissionEvent.Type.USER_ROLE_ASSIGNED)
+                    .workspaceId(workspaceId)
+                    .timestamp(System.currentTimeMillis())
+                    .origin(UUID.fromString(OTHER_NODE))
+                    .generation(42)
+                    .userId(userId)
+                    .roleId(roleId)
+                    .roleName("Member")
+                    .build());
+
+            policyChangeConsumer.onEvent(new ConsumerRecord<>(TOPIC, 0, 1, workspaceId.toString(), payload), consumer);
+            awaitApplied();
+
+            verify(syncService).applyUserRoleAssignment(userId, roleId, workspaceId);
+            assertThat(policyGenerations.current(workspaceId)).isEqualTo(42);
+        }
+
+        @Test
+        @DisplayName("should skip its own events and malformed ones but still track their offsets")
+        void shouldSkipOwnAndMalformedEvents() throws Exception {
+            policyChangeConsumer.onEvent(record(4, THIS_NODE, "ROLE_DELETED",
+                    Map.of("roleId", roleId.toString(), "workspaceId", workspaceId.toString())), consumer);
+            policyChangeConsumer.onEvent(new ConsumerRecord<>(TOPIC, 1, 5, "key", "{not json".getBytes(StandardCharsets.UTF_8)), consumer);
+            awaitApplied();
+
+            verifyNoInteractions(syncService);
+            assertThat(policyGenerations.current(workspaceId)).isZero();
+            assertThat(policyChangeConsumer.appliedOffsets()).containsEntry(1, 5L);
+        }
+    }
+
+    @Nested
+    @DisplayName("Overflow Tests")
+    class OverflowTests {
+
+        @Test
+        @DisplayName("should pause and rewind the partition rather than drop an event when the executor is full")
+        void shouldRewindWhenFull() throws Exception {
+            workspaceLaneExecutor.close();
+            workspaceLaneExecutor = new WorkspaceLaneExecutor("test", 1, WorkspaceLaneExecutor.Overflow.ABORT,
+                    Duration.ofSeconds(1), meterRegistry);
+            policyChangeConsumer = new PolicyChangeConsumer(syncService, policyGenerations, eventPublisher,
+                    new PermissionEventSerde(objectMapper), workspaceLaneExecutor, listenerRegistry, meterRegistry);
+            CountDownLatch release = new CountDownLatch(1);
+            workspaceLaneExecutor.execute("other", () -> await(release));
+            TopicPartition partition = new TopicPartition(TOPIC, 1);
+            Map<String, Object> deletion = Map.of("roleId", roleId.toString(), "workspaceId", workspaceId.toString());
+
+            policyChangeConsumer.onEvent(record(3, OTHER_NODE, "ROLE_DELETED", deletion), consumer);
+            // Fetched in the same batch, so delivered again after the rewound record
+            policyChangeConsumer.onEvent(record(4, OTHER_NODE, "ROLE_DELETED", deletion), consumer);
+
+            verify(consumer).seek(partition, 3);
+            verify(container).pausePartition(partition);
+            verify(container, timeout(5_000)).resumePartition(partition);
+            verify(syncService, never()).applyRoleRemoval(any(), any());
+            assertThat(policyChangeConsumer.appliedOffsets()).doesNotContainKey(1);
+
+            release.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (workspaceLaneExecutor.depth() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            policyChangeConsumer.onEvent(record(3, OTHER_NODE, "ROLE_DELETED", deletion), consumer);
+
+            verify(syncService, timeout(5_000)).applyRoleRemoval(roleId, workspaceId);
+            verify(consumer, times(1)).seek(any(TopicPartition.class), anyLong());
+        }
+
+        @Test
+        @DisplayName("should give up once the executor is closed")
+        void shouldRejectWhenClosed() throws Exception {
+            workspaceLaneExecutor.close();
+
+            assertThatThrownBy(() -> policyChangeConsumer.onEvent(record(3, OTHER_NODE, "ROLE_DELETED",
+                    Map.of("roleId", roleId.toString(), "workspaceId", workspaceId.toString())), consumer))
+                    .isInstanceOf(RejectedExecutionException.class);
+            assertThat(policyChangeConsumer.appliedOffsets()).doesNotContainKey(1);
+        }
+    }
+
+    @Nested
+    @DisplayName("Lag Tests")
+    class LagTests {
+
+        @Test
+        @DisplayName("should expose the offset lag per partition and the replication delay")
+        void shouldTrackLag() throws Exception {
+            policyChangeConsumer.onEvent(record(9, OTHER_NODE, "ROLE_CREATED", Map.of(
+                    "roleId", roleId.toString(),
+                    "workspaceId", workspaceId.toString(),
+                    "permissions", List.of())), consumer);
+            awaitApplied();
+
+            assertThat(meterRegistry.get("permission.policy.replication.lag").tag("partition", "1").gauge().value())
+                    .isEqualTo(3);
+            assertThat(meterRegistry.get("permission.policy.replication.delay").timer().count()).isEqualTo(1);
+            assertThat(policyChangeConsumer.appliedOffsets()).containsEntry(1, 9L);
+        }
+
+        @Test
+        @DisplayName("should count an event as applied only once its lane has run it")
+        void shouldTrackOffsetOnceApplied() throws Exception {
+            CountDownLatch release = new CountDownLatch(1);
+            workspaceLaneExecutor.execute(workspaceId, () -> await(release));
+            policyChangeConsumer.onEvent(record(8, THIS_NODE, "ROLE_DELETED",
+                    Map.of("roleId", roleId.toString(), "workspaceId", workspaceId.toString())), consumer);
+            policyChangeConsumer.onEvent(record(9, OTHER_NODE, "ROLE_DELETED",
+                    Map.of("roleId", roleId.toString(), "workspaceId", workspaceId.toString())), consumer);
+
+            assertThat(policyChangeConsumer.appliedOffsets()).containsEntry(1, 8L);
+            assertThat(meterRegistry.get("permission.policy.replication.lag").tag("partition", "1").gauge().value())
+                    .isEqualTo(4);
+
+            release.countDown();
+            awaitApplied();
+
+            verify(syncService).applyRoleRemoval(roleId, workspaceId);
+            assertThat(policyChangeConsumer.appliedOffsets()).containsEntry(1, 9L);
+            assertThat(meterRegistry.get("permission.policy.replication.lag").tag("partition", "1").gauge().value())
+                    .isEqualTo(3);
+        }
+
+        @Test
+        @DisplayName("should name its consumer group after the instance id, or else the host name")
+        void shouldUseStableGroupId() throws Exception {
+            ReflectionTestUtils.setField(policyChangeConsumer, "groupPrefix", "policy");
+
+            assertThat(policyChangeConsumer.getGroupId()).isEqualTo("policy-" + InetAddress.getLocalHost().getHostName());
+
+            ReflectionTestUtils.setField(policyChangeConsumer, "instanceId", "permission-service-0");
+
+            assertThat(policyChangeConsumer.getGroupId()).isEqualTo("policy-permission-service-0");
+        }
+
+        @Test
+        @DisplayName("should start newly assigned partitions from the node's start time")
+        void shouldSeekOnFirstAssignment() {
+            ConsumerSeekCallback callback = mock(ConsumerSeekCallback.class);
+            TopicPartition partition = new TopicPartition(TOPIC, 0);
+
+            policyChangeConsumer.onPartitionsAssigned(Map.of(partition, 0L), callback);
+            policyChangeConsumer.onPartitionsAssigned(Map.of(partition, 12L), callback);
+
+            verify(callback, times(1)).seekToTimestamp(eq(List.of(partition)), longThat(time -> time < System.currentTimeMillis()));
+        }
+    }
+}
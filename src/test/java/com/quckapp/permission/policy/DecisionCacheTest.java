@@ -0,0 +1,130 @@
+package com.quckapp.permission.policy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("DecisionCache Tests")
+class DecisionCacheTest {
+
+    private static final UUID WORKSPACE = UUID.randomUUID();
+    private static final UUID OTHER_WORKSPACE = UUID.randomUUID();
+    private static final UUID ROLE = UUID.randomUUID();
+    private static final UUID USER = UUID.randomUUID();
+
+    private SimpleMeterRegistry meterRegistry;
+    private SnapshotEnforcer enforcer;
+    private DecisionCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        enforcer = new SnapshotEnforcer();
+        cache = new DecisionCache(true, 1_000, meterRegistry);
+        enforcer.addPolicy(ROLE, WORKSPACE, "message", "read");
+        enforcer.addPolicy(ROLE, OTHER_WORKSPACE, "message", "read");
+    }
+
+    private boolean check(UUID workspace) {
+        return cache.check(enforcer.domain(workspace), USER, workspace, "message", "read");
+    }
+
+    @Nested
+    @DisplayName("Generation Tests")
+    class GenerationTests {
+
+        @Test
+        @DisplayName("should bump only the written workspace's generation")
+        void shouldBumpWrittenWorkspace() {
+            long before = enforcer.domain(WORKSPACE).getGeneration();
+            long other = enforcer.domain(OTHER_WORKSPACE).getGeneration();
+
+            enforcer.addGroupingPolicy(USER, ROLE, WORKSPACE);
+
+            assertThat(enforcer.domain(WORKSPACE).getGeneration()).isGreaterThan(before);
+            assertThat(enforcer.domain(OTHER_WORKSPACE).getGeneration()).isEqualTo(other);
+        }
+
+        @Test
+        @DisplayName("should keep the generation on a no-op write")
+        void shouldKeepGenerationOnNoOp() {
+            enforcer.addGroupingPolicy(USER, ROLE, WORKSPACE);
+            long before = enforcer.domain(WORKSPACE).getGeneration();
+
+            enforcer.addGroupingPolicy(USER, ROLE, WORKSPACE);
+
+            assertThat(enforcer.domain(WORKSPACE).getGeneration()).isEqualTo(before);
+        }
+    }
+
+    @Nested
+    @DisplayName("Cache Tests")
+    class CacheTests {
+
+        @Test
+        @DisplayName("should serve a repeated check from the cache")
+        void shouldServeRepeatedCheck() {
+            enforcer.addGroupingPolicy(USER, ROLE, WORKSPACE);
+
+            assertThat(check(WORKSPACE)).isTrue();
+            assertThat(check(WORKSPACE)).isTrue();
+
+            assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+            assertThat(cache.size()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("should recompute a decision after a write to its workspace")
+        void shouldInvalidateOnWrite() {
+            assertThat(check(WORKSPACE)).isFalse();
+
+            enforcer.addGroupingPolicy(USER, ROLE, WORKSPACE);
+            assertThat(check(WORKSPACE)).isTrue();
+
+            enforcer.removeGroupingPolicy(USER, ROLE, WORKSPACE);
+            assertThat(check(WORKSPACE)).isFalse();
+
+            assertThat(meterRegistry.get("permission.decisions.stale").counter().count()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("should keep decisions of other workspaces across a write")
+        void shouldKeepOtherWorkspaces() {
+            enforcer.addGroupingPolicy(USER, ROLE, OTHER_WORKSPACE);
+            assertThat(check(OTHER_WORKSPACE)).isTrue();
+
+            enforcer.addGroupingPolicy(USER, ROLE, WORKSPACE);
+            assertThat(check(OTHER_WORKSPACE)).isTrue();
+
+            assertThat(meterRegistry.get("permission.decisions.stale").counter().count()).isZero();
+        }
+
+        @Test
+        @DisplayName("should answer from a held workspace snapshot consistently with its generation")
+        void shouldUseHeldSnapshot() {
+            enforcer.addGroupingPolicy(USER, ROLE, WORKSPACE);
+            DomainPolicy before = enforcer.domain(WORKSPACE);
+            enforcer.removeGroupingPolicy(USER, ROLE, WORKSPACE);
+
+            assertThat(check(WORKSPACE)).isFalse();
+            assertThat(cache.check(before, USER, WORKSPACE, "message", "read")).isTrue();
+            assertThat(check(WORKSPACE)).isFalse();
+        }
+
+        @Test
+        @DisplayName("should bypass the cache when disabled")
+        void shouldBypassWhenDisabled() {
+            DecisionCache disabled = new DecisionCache(false, 1_000, new SimpleMeterRegistry());
+            enforcer.addGroupingPolicy(USER, ROLE, WORKSPACE);
+
+            assertThat(disabled.check(enforcer.domain(WORKSPACE), USER, WORKSPACE, "message", "read")).isTrue();
+            assertThat(disabled.size()).isZero();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.quckapp.permission.policy;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("DomainTableAdapter Tests")
+class DomainTableAdapterTest {
+
+    private static final UUID WORKSPACE = UUID.randomUUID();
+    private static final UUID ROLE = UUID.randomUUID();
+    private static final UUID USER = UUID.randomUUID();
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private DomainTableAdapter adapter;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+            .setType(EmbeddedDatabaseType.H2)
+            .generateUniqueName(true)
+            .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        // The same column types as the MySQL migration
+        jdbcTemplate.execute("CREATE TABLE permissions (id BINARY(16) PRIMARY KEY, resource VARCHAR(100), action VARCHAR(50))");
+        jdbcTemplate.execute("CREATE TABLE roles (id BINARY(16) PRIMARY KEY, workspace_id BINARY(16))");
+        jdbcTemplate.execute("CREATE TABLE role_permissions (role_id BINARY(16), permission_id BINARY(16))");
+        jdbcTemplate.execute("CREATE TABLE user_roles (user_id BINARY(16), role_id BINARY(16), workspace_id BINARY(16))");
+
+        UUID read = UUID.randomUUID();
+        UUID manage = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO permissions VALUES (?, 'message', 'read')", bytes(read));
+        jdbcTemplate.update("INSERT INTO permissions VALUES (?, 'channel', '*')", bytes(manage));
+        jdbcTemplate.update("INSERT INTO roles VALUES (?, ?)", bytes(ROLE), bytes(WORKSPACE));
+        jdbcTemplate.update("INSERT INTO role_permissions VALUES (?, ?)", bytes(ROLE), bytes(read));
+        jdbcTemplate.update("INSERT INTO role_permissions VALUES (?, ?)", bytes(ROLE), bytes(manage));
+        jdbcTemplate.update("INSERT INTO user_roles VALUES (?, ?, ?)", bytes(USER), bytes(ROLE), bytes(WORKSPACE));
+        adapter = new DomainTableAdapter(database);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Nested
+    @DisplayName("Load Tests")
+    class LoadTests {
+
+        @Test
+        @DisplayName("should load policies and groupings from the domain tables")
+        void shouldLoadFromTables() {
+            SnapshotEnforcer.Rows rows = adapter.loadAll();
+
+            assertThat(rows.policies()).containsExactlyInAnyOrder(
+                List.of(ROLE.toString(), WORKSPACE.toString(), "message", "read"),
+                List.of(ROLE.toString(), WORKSPACE.toString(), "channel", "*"));
+            assertThat(rows.groupings()).containsExactly(
+                List.of(USER.toString(), ROLE.toString(), WORKSPACE.toString()));
+        }
+
+        @Test
+        @DisplayName("should count the rows and bytes read")
+        void shouldCountRowsRead() {
+            adapter.loadAll();
+
+            assertThat(adapter.rowsRead()).isEqualTo(3);
+            // Two ids plus "message"/"read" and "channel"/"*", then three ids
+            assertThat(adapter.bytesRead()).isEqualTo(2 * 32 + 11 + 8 + 48);
+        }
+    }
+
+    @Nested
+    @DisplayName("Workspace Load Tests")
+    class WorkspaceLoadTests {
+
+        @Test
+        @DisplayName("should load only the requested workspaces")
+        void shouldLoadRequestedWorkspaces() {
+            UUID otherRole = UUID.randomUUID();
+            UUID otherWorkspace = UUID.randomUUID();
+            jdbcTemplate.update("INSERT INTO roles VALUES (?, ?)", bytes(otherRole), bytes(otherWorkspace));
+            jdbcTemplate.update("INSERT INTO user_roles VALUES (?, ?, ?)", bytes(USER), bytes(otherRole), bytes(otherWorkspace));
+
+            SnapshotEnforcer.Rows rows = adapter.loadWorkspaces(List.of(WORKSPACE));
+
+            assertThat(rows.policies()).hasSize(2);
+            assertThat(rows.groupings()).containsExactly(
+                List.of(USER.toString(), ROLE.toString(), WORKSPACE.toString()));
+            assertThat(adapter.loadWorkspaces(List.of(otherWorkspace)).groupings()).containsExactly(
+                List.of(USER.toString(), otherRole.toString(), otherWorkspace.toString()));
+        }
+    }
+
+    private static byte[] bytes(UUID uuid) {
+        return ByteBuffer.allocate(16).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).array();
+    }
+}
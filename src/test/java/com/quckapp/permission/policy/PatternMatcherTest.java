@@ -0,0 +1,119 @@
+package com.quckapp.permission.policy;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("PatternMatcher Tests")
+class PatternMatcherTest {
+
+    private static final String[] RESOURCES = {
+        "*", "message", "/workspaces/:id", "/workspaces/:id/*", "/workspaces/*", "/workspaces/:id/channels/:channel",
+        "/files/*", "/:tenant/settings", "/", "/*", "", "files.json", "/workspaces/:id/mess*", "/a/*/b",
+        "/workspaces/abc:id", "/workspaces/:", "/users/me", "channel",
+    };
+
+    private static final String[] ACTIONS = {"read", "*", "re*", "create", "manage_*"};
+
+    private static final String[] REQUEST_RESOURCES = {
+        "message", "messages", "channel", "/workspaces", "/workspaces/", "/workspaces/42", "/workspaces/42/",
+        "/workspaces/42/channels", "/workspaces/42/channels/7", "/workspaces/42/channels/7/x", "/workspaces//channels/7",
+        "/files", "/files/", "/files/a/b.txt", "/acme/settings", "//settings", "/", "", "filesXjson", "files.json",
+        "/workspaces/42/messages", "/workspaces/42/mess", "/a/x/b", "/a/b", "/workspaces/abc1", "/users/me", "/users/you",
+    };
+
+    private static final String[] REQUEST_ACTIONS = {"read", "reread", "create", "delete", "manage_members", "", "*"};
+
+    @Nested
+    @DisplayName("Semantics Tests")
+    class SemanticsTests {
+
+        @Test
+        @DisplayName("should match path parameters against exactly one non-empty segment")
+        void shouldMatchPathParameters() {
+            PatternMatcher matcher = PatternMatcher.compile(List.of(new PolicyRule("/workspaces/:id", "read")));
+
+            assertThat(matcher.matches("/workspaces/42", "read")).isTrue();
+            assertThat(matcher.matches("/workspaces/", "read")).isFalse();
+            assertThat(matcher.matches("/workspaces/42/channels", "read")).isFalse();
+            assertThat(matcher.matches("/workspaces/42", "create")).isFalse();
+        }
+
+        @Test
+        @DisplayName("should match everything below a trailing wildcard")
+        void shouldMatchTrailingWildcard() {
+            PatternMatcher matcher = PatternMatcher.compile(List.of(new PolicyRule("/files/*", "*")));
+
+            assertThat(matcher.matches("/files/", "read")).isTrue();
+            assertThat(matcher.matches("/files/a/b.txt", "delete")).isTrue();
+            assertThat(matcher.matches("/files", "read")).isFalse();
+        }
+
+        @Test
+        @DisplayName("should treat an action ending in a wildcard as a prefix")
+        void shouldMatchActionPrefix() {
+            PatternMatcher matcher = PatternMatcher.compile(List.of(new PolicyRule("message", "manage_*")));
+
+            assertThat(matcher.matches("message", "manage_members")).isTrue();
+            assertThat(matcher.matches("message", "manage_")).isTrue();
+            assertThat(matcher.matches("message", "read")).isFalse();
+        }
+
+        @Test
+        @DisplayName("should match nothing when empty")
+        void shouldMatchNothingWhenEmpty() {
+            PatternMatcher matcher = PatternMatcher.compile(List.of());
+
+            assertThat(matcher.isEmpty()).isTrue();
+            assertThat(matcher.matches("message", "read")).isFalse();
+        }
+    }
+
+    @Nested
+    @DisplayName("Equivalence Tests")
+    class EquivalenceTests {
+
+        @Test
+        @DisplayName("should agree with keyMatch2 and keyMatch for every single rule")
+        void shouldAgreeForSingleRules() {
+            for (String resource : RESOURCES) {
+                for (String action : ACTIONS) {
+                    PolicyRule rule = new PolicyRule(resource, action);
+                    PatternMatcher matcher = PatternMatcher.compile(List.of(rule));
+                    assertAgrees(List.of(rule), matcher);
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("should agree with keyMatch2 and keyMatch for random rule sets")
+        void shouldAgreeForRuleSets() {
+            Random random = new Random(42);
+            for (int round = 0; round < 200; round++) {
+                List<PolicyRule> rules = new ArrayList<>();
+                for (int i = random.nextInt(6) + 1; i > 0; i--) {
+                    rules.add(new PolicyRule(RESOURCES[random.nextInt(RESOURCES.length)],
+                        ACTIONS[random.nextInt(ACTIONS.length)]));
+                }
+                assertAgrees(rules, PatternMatcher.compile(rules));
+            }
+        }
+
+        private void assertAgrees(List<PolicyRule> rules, PatternMatcher matcher) {
+            for (String resource : REQUEST_RESOURCES) {
+                for (String action : REQUEST_ACTIONS) {
+                    boolean expected = rules.stream().anyMatch(rule -> rule.matches(resource, action));
+                    assertThat(matcher.matches(resource, action))
+                        .as("%s against (%s, %s)", rules, resource, action)
+                        .isEqualTo(expected);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.quckapp.permission.policy;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("PolicySnapshotFile Tests")
+class PolicySnapshotFileTest {
+
+    private static final UUID WORKSPACE = UUID.randomUUID();
+    private static final UUID OTHER_WORKSPACE = UUID.randomUUID();
+    private static final UUID ROLE = UUID.randomUUID();
+    private static final UUID OTHER_ROLE = UUID.randomUUID();
+    private static final UUID USER = UUID.randomUUID();
+
+    @TempDir
+    Path dir;
+
+    private Path file;
+    private SnapshotEnforcer source;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = dir.resolve("policy.snapshot");
+        source = new SnapshotEnforcer();
+        source.addPolicy(ROLE, WORKSPACE, "message", "read");
+        source.addPolicy(ROLE, WORKSPACE, "/channels/:id", "manage_*");
+        source.addPolicy(OTHER_ROLE, OTHER_WORKSPACE, "file", "*");
+        source.addGroupingPolicy(USER, ROLE, WORKSPACE);
+        source.addGroupingPolicy(USER, OTHER_ROLE, OTHER_WORKSPACE);
+        PolicySnapshotFile.write(source, 42, file);
+    }
+
+    @Nested
+    @DisplayName("Round Trip Tests")
+    class RoundTripTests {
+
+        @Test
+        @DisplayName("should restore the same decisions into a fresh enforcer")
+        void shouldRestorePolicy() {
+            SnapshotEnforcer restored = new SnapshotEnforcer();
+            // Occupy some ids so the image's ids have to be remapped
+            restored.addGroupingPolicy(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+
+            Optional<PolicySnapshotFile.Image> image = PolicySnapshotFile.read(file, restored);
+
+            assertThat(image).isPresent();
+            assertThat(image.get().position()).isEqualTo(42);
+            assertThat(image.get().domains()).isEqualTo(2);
+            assertThat(restored.enforce(USER, WORKSPACE, "message", "read")).isTrue();
+            assertThat(restored.enforce(USER, WORKSPACE, "/channels/7", "manage_members")).isTrue();
+            assertThat(restored.enforce(USER, WORKSPACE, "message", "delete")).isFalse();
+            assertThat(restored.enforce(USER, OTHER_WORKSPACE, "file", "upload")).isTrue();
+            assertThat(restored.domain(WORKSPACE).policyCount()).isEqualTo(2);
+            assertThat(restored.domain(WORKSPACE).groupingCount()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("should replace an older image without leaving a temporary file")
+        void shouldReplaceAtomically() throws IOException {
+            source.removeGroupingPolicy(USER, ROLE, WORKSPACE);
+            PolicySnapshotFile.write(source, 43, file);
+            SnapshotEnforcer restored = new SnapshotEnforcer();
+
+            assertThat(PolicySnapshotFile.read(file, restored)).map(PolicySnapshotFile.Image::position).contains(43L);
+            assertThat(restored.domain(WORKSPACE).isMember(USER)).isFalse();
+            try (var files = Files.list(dir)) {
+                assertThat(files).containsExactly(file);
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Rejection Tests")
+    class RejectionTests {
+
+        @Test
+        @DisplayName("should reject a corrupted image and keep the current policy")
+        void shouldRejectCorruptImage() throws IOException {
+            byte[] bytes = Files.readAllBytes(file);
+            bytes[bytes.length / 2] ^= 0x01;
+            Files.write(file, bytes);
+            SnapshotEnforcer restored = new SnapshotEnforcer();
+            restored.addPolicy(ROLE, WORKSPACE, "channel", "read");
+
+            assertThat(PolicySnapshotFile.read(file, restored)).isEmpty();
+            assertThat(restored.domain(WORKSPACE).policyCount()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("should reject a truncated or missing image")
+        void shouldRejectTruncatedImage() throws IOException {
+            byte[] bytes = Files.readAllBytes(file);
+            Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+
+            assertThat(PolicySnapshotFile.read(file, new SnapshotEnforcer())).isEmpty();
+            assertThat(PolicySnapshotFile.read(dir.resolve("missing"), new SnapshotEnforcer())).isEmpty();
+        }
+    }
+}
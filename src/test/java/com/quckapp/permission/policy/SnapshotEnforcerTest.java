@@ -0,0 +1,539 @@
+package com.quckapp.permission.policy;
+
+import com.quckapp.permission.TestDataFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("SnapshotEnforcer Tests")
+class SnapshotEnforcerTest {
+
+    private static final UUID WORKSPACE = UUID.randomUUID();
+    private static final UUID OTHER_WORKSPACE = UUID.randomUUID();
+    private static final UUID ROLE = UUID.randomUUID();
+    private static final UUID OTHER_ROLE = UUID.randomUUID();
+    private static final UUID USER = UUID.randomUUID();
+
+    private SnapshotEnforcer enforcer;
+
+    @BeforeEach
+    void setUp() {
+        enforcer = new SnapshotEnforcer();
+    }
+
+    @Nested
+    @DisplayName("Enforce Tests")
+    class EnforceTests {
+
+        @Test
+        @DisplayName("should allow user through role policy in the same workspace")
+        void shouldAllowThroughRole() {
+            enforcer.addPolicy(ROLE, WORKSPACE, "message", "read");
+            enforcer.addGroupingPolicy(USER, ROLE, WORKSPACE);
+
+            assertThat(enforcer.enforce(USER, WORKSPACE, "message", "read")).isTrue();
+            assertThat(enforcer.enforce(USER, WORKSPACE, "message", "delete")).isFalse();
+            assertThat(enforcer.enforce(USER, OTHER_WORKSPACE, "message", "read")).isFalse();
+        }
+
+        @Test
+        @DisplayName("should match wildcard action and resource patterns like the Casbin matcher")
+        void shouldMatchPatterns() {
+            enforcer.addPolicy(ROLE, WORKSPACE, "message", "*");
+            enforcer.addPolicy(ROLE, WORKSPACE, "/channels/:id", "read");
+            enforcer.addGroupingPolicy(USER, ROLE, WORKSPACE);
+
+            assertThat(enforcer.enforce(USER, WORKSPACE, "message", "delete")).isTrue();
+            assertThat(enforcer.enforce(USER, WORKSPACE, "/channels/42", "read")).isTrue();
+            assertThat(enforcer.enforce(USER, WORKSPACE, "/channels/42/members", "read")).isFalse();
+        }
+
+        @Test
+        @DisplayName("should resolve exact and wildcard actions in one lookup")
+        void shouldResolveWildcardAction() {
+            enforcer.addPolicy(ROLE, WORKSPACE, "message", "read");
+            enforcer.addPolicy(ROLE, WORKSPACE, "channel", "*");
+            enforcer.addPolicy(ROLE, WORKSPACE, "file", "down*");
+            enforcer.addGroupingPolicy(USER, ROLE, WORKSPACE);
+
+            assertThat(enforcer.enforce(USER, WORKSPACE, "message", "read")).isTrue();
+            assertThat(enforcer.enforce(USER, WORKSPACE, "message", "*")).isFalse();
+            assertThat(enforcer.enforce(USER, WORKSPACE, "channel", "delete")).isTrue();
+            assertThat(enforcer.enforce(USER, WORKSPACE, "channel", "*")).isTrue();
+            assertThat(enforcer.enforce(USER, WORKSPACE, "file", "download")).isTrue();
+            assertThat(enforcer.enforce(USER, WORKSPACE, "file", "upload")).isFalse();
+        }
+
+        @Test
+        @DisplayName("should resolve a subject once and answer many checks")
+        void shouldResolveSubject() {
+            enforcer.addPolicy(ROLE, WORKSPACE, "message", "read");
+            enforcer.addPolicy(OTHER_ROLE, WORKSPACE, "channel", "*");
+            enforcer.addGroupingPolicy(USER, ROLE, WORKSPACE);
+            enforcer.addGroupingPolicy(USER, OTHER_ROLE, WORKSPACE);
+
+            SubjectPolicy subject = enforcer.domain(WORKSPACE).subject(USER);
+
+            assertThat(subject.hasGrants()).isTrue();
+            assertThat(subject.permits("message", "read")).isTrue();
+            assertThat(subject.permits("channel", "delete")).isTrue();
+            assertThat(subject.permits("admin", "access")).isFalse();
+            assertThat(enforcer.domain(WORKSPACE).subject(UUID.randomUUID()).hasGrants()).isFalse();
+        }
+
+        @Test
+        @DisplayName("should track workspace membership through grouping changes")
+        void shouldTrackMembership() {
+            UUID stranger = UUID.randomUUID();
+            enforcer.addGroupingPolicy(USER, ROLE, WORKSPACE);
+
+            assertThat(enforcer.domain(WORKSPACE).isMember(USER)).isTrue();
+            assertThat(enforcer.domain(OTHER_WORKSPACE).isMember(USER)).isFalse();
+            assertThat(enforcer.domain(WORKSPACE).isMember(stranger)).isFalse();
+
+            enforcer.removeGroupingPolicy(USER, ROLE, WORKSPACE);
+            assertThat(enforcer.domain(WORKSPACE).isMember(USER)).isFalse();
+        }
+
+        @Test
+        @DisplayName("should deny after grouping is removed")
+        void shouldDenyAfterGroupingRemoved() {
+            enforcer.addPolicy(ROLE, WORKSPACE, "message", "read");
+            enforcer.addGroupingPolicy(USER, ROLE, WORKSPACE);
+            enforcer.removeGroupingPolicy(USER, ROLE, WORKSPACE);
+
+            assertThat(enforcer.enforce(USER, WORKSPACE, "message", "read")).isFalse();
+        }
+
+        @Test
+        @DisplayName("should remove role policies and groupings by filter")
+        void shouldRemoveFiltered() {
+            enforcer.addPolicy(ROLE, WORKSPACE, "message", "read");
+            enforcer.addGroupingPolicy(USER, ROLE, WORKSPACE);
+            enforcer.removeFilteredPolicy(ROLE, WORKSPACE);
+
+            assertThat(enforcer.enforce(USER, WORKSPACE, "message", "read")).isFalse();
+            assertThat(enforcer.domain(WORKSPACE).groupingCount()).isEqualTo(1);
+
+            enforcer.removeFilteredGroupingPolicy(ROLE, WORKSPACE);
+            assertThat(enforcer.domainCount()).isZero();
+        }
+    }
+
+    @Nested
+    @DisplayName("Snapshot Tests")
+    class SnapshotTests {
+
+        @Test
+        @DisplayName("should keep a held workspace snapshot unchanged by later writes")
+        void shouldIsolateHeldSnapshot() {
+            enforcer.addPolicy(ROLE, WORKSPACE, "message", "read");
+            enforcer.addGroupingPolicy(USER, ROLE, WORKSPACE);
+            DomainPolicy before = enforcer.domain(WORKSPACE);
+
+            enforcer.removeGroupingPolicy(USER, ROLE, WORKSPACE);
+
+            assertThat(before.enforce(USER, "message", "read")).isTrue();
+            assertThat(enforcer.domain(WORKSPACE).enforce(USER, "message", "read")).isFalse();
+            assertThat(enforcer.domain(WORKSPACE).getGeneration()).isGreaterThan(before.getGeneration());
+        }
+
+        @Test
+        @DisplayName("should leave other workspaces untouched by a write")
+        void shouldIsolateWorkspaces() {
+            enforcer.addPolicy(ROLE, WORKSPACE, "message", "read");
+            DomainPolicy before = enforcer.domain(WORKSPACE);
+
+            enforcer.addPolicy(ROLE, OTHER_WORKSPACE, "message", "read");
+            enforcer.removeFilteredPolicy(ROLE, OTHER_WORKSPACE);
+
+            assertThat(enforcer.domain(WORKSPACE)).isSameAs(before);
+        }
+
+        @Test
+        @DisplayName("should not publish a new generation for a no-op write")
+        void shouldSkipNoOpWrite() {
+            enforcer.addGroupingPolicy(USER, ROLE, WORKSPACE);
+            DomainPolicy before = enforcer.domain(WORKSPACE);
+
+            enforcer.addGroupingPolicy(USER, ROLE, WORKSPACE);
+
+            assertThat(enforcer.domain(WORKSPACE)).isSameAs(before);
+        }
+
+        @Test
+        @DisplayName("should publish each workspace once for a batch of groupings")
+        void shouldAddGroupingBatch() {
+            UUID otherUser = UUID.randomUUID();
+            enforcer.addPolicy(ROLE, WORKSPACE, "message", "read");
+            enforcer.addPolicy(OTHER_ROLE, WORKSPACE, "channel", "create");
+            long before = enforcer.domain(WORKSPACE).getGeneration();
+
+            enforcer.addGroupingPolicies(List.of(
+                new Grouping(USER, ROLE, WORKSPACE),
+                new Grouping(USER, OTHER_ROLE, WORKSPACE),
+                new Grouping(otherUser, ROLE, WORKSPACE),
+                new Grouping(USER, ROLE, OTHER_WORKSPACE)));
+
+            DomainPolicy workspace = enforcer.domain(WORKSPACE);
+            assertThat(workspace.getGeneration()).isEqualTo(before + 1);
+            assertThat(workspace.groupingCount()).isEqualTo(3);
+            assertThat(workspace.enforce(USER, "channel", "create")).isTrue();
+            assertThat(workspace.enforce(otherUser, "channel", "create")).isFalse();
+            assertThat(enforcer.domain(OTHER_WORKSPACE).groupingCount()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("should serve the previous policy until a rebuild is swapped in")
+        void shouldServePreviousPolicyDuringRebuild() {
+            enforcer.addPolicy(ROLE, WORKSPACE, "message", "read");
+            enforcer.addGroupingPolicy(USER, ROLE, WORKSPACE);
+
+            enforcer.rebuild(() -> {
+                assertThat(enforcer.enforce(USER, WORKSPACE, "message", "read")).isTrue();
+                return new SnapshotEnforcer.Rows(
+                    List.of(List.of(ROLE.toString(), OTHER_WORKSPACE.toString(), "channel", "read")),
+                    List.of(List.of(USER.toString(), ROLE.toString(), OTHER_WORKSPACE.toString())));
+            });
+
+            assertThat(enforcer.enforce(USER, WORKSPACE, "message", "read")).isFalse();
+            assertThat(enforcer.enforce(USER, OTHER_WORKSPACE, "channel", "read")).isTrue();
+        }
+
+        @Test
+        @DisplayName("should replay writes made while a rebuild reads its rows")
+        void shouldReplayWritesDuringRebuild() {
+            UUID lateUser = UUID.randomUUID();
+            List<List<String>> policies = List.of(List.of(ROLE.toString(), WORKSPACE.toString(), "message", "read"));
+
+            enforcer.rebuild(() -> {
+                enforcer.addGroupingPolicy(lateUser, ROLE, WORKSPACE);
+                return new SnapshotEnforcer.Rows(policies, List.of());
+            });
+
+            assertThat(enforcer.enforce(lateUser, WORKSPACE, "message", "read")).isTrue();
+        }
+
+        @Test
+        @DisplayName("should replay writes made before the rebuild from the start of journaling")
+        void shouldReplayWritesFromStartOfJournaling() {
+            UUID earlyUser = UUID.randomUUID();
+            List<List<String>> policies = List.of(List.of(ROLE.toString(), WORKSPACE.toString(), "message", "read"));
+
+            enforcer.journaling(() -> {
+                enforcer.addGroupingPolicy(earlyUser, ROLE, WORKSPACE);
+                enforcer.rebuild(() -> new SnapshotEnforcer.Rows(policies, List.of()));
+            });
+
+            assertThat(enforcer.enforce(earlyUser, WORKSPACE, "message", "read")).isTrue();
+        }
+
+        @Test
+        @DisplayName("should compile every workspace of a rebuild and report the slowest by UUID")
+        void shouldReportRebuildPerWorkspace() {
+            List<List<String>> policies = new ArrayList<>();
+            List<List<String>> groupings = new ArrayList<>();
+            List<UUID> workspaces = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                UUID workspace = UUID.randomUUID();
+                workspaces.add(workspace);
+                policies.add(List.of(ROLE.toString(), workspace.toString(), "message", "read"));
+                groupings.add(List.of(USER.toString(), ROLE.toString(), workspace.toString()));
+            }
+
+            WorkspaceTasks.Report<UUID> report = enforcer.load(policies, groupings);
+
+            assertThat(report.workspaces()).isEqualTo(50);
+            assertThat(report.slowest()).hasSize(10)
+                .extracting(WorkspaceTasks.Timing::workspace)
+                .allMatch(workspaces::contains);
+            assertThat(workspaces).allMatch(w -> enforcer.enforce(USER, w, "message", "read"));
+        }
+
+        @Test
+        @DisplayName("should grow the partition table for many workspaces")
+        void shouldGrowPartitions() {
+            List<UUID> workspaces = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                UUID workspace = UUID.randomUUID();
+                workspaces.add(workspace);
+                enforcer.addPolicy(ROLE, workspace, "message", "read");
+                enforcer.addGroupingPolicy(USER, ROLE, workspace);
+            }
+
+            assertThat(enforcer.domainCount()).isEqualTo(500);
+            assertThat(workspaces).allMatch(w -> enforcer.enforce(USER, w, "message", "read"));
+        }
+
+        @Test
+        @DisplayName("should size the partition table by workspaces, not by users and roles")
+        void shouldNotGrowPartitionsWithUsers() {
+            for (int i = 0; i < 500; i++) {
+                enforcer.addGroupingPolicy(UUID.randomUUID(), ROLE, WORKSPACE);
+            }
+
+            assertThat(enforcer.domain(WORKSPACE).groupingCount()).isEqualTo(500);
+            assertThat(enforcer.partitionCapacity()).isEqualTo(64);
+        }
+
+        @Test
+        @DisplayName("should replace the whole policy on load")
+        void shouldReplaceOnLoad() {
+            enforcer.addPolicy(ROLE, OTHER_WORKSPACE, "message", "read");
+
+            enforcer.load(
+                List.of(List.of(ROLE.toString(), WORKSPACE.toString(), "channel", "read")),
+                List.of(List.of(USER.toString(), ROLE.toString(), WORKSPACE.toString())));
+
+            assertThat(enforcer.enforce(USER, WORKSPACE, "channel", "read")).isTrue();
+            assertThat(enforcer.domain(OTHER_WORKSPACE).isEmpty()).isTrue();
+        }
+
+        @Test
+        @DisplayName("should export the policy as the Casbin rows it loads from")
+        void shouldExportRows() {
+            List<List<String>> policies = List.of(
+                List.of(ROLE.toString(), WORKSPACE.toString(), "channel", "read"),
+                List.of(ROLE.toString(), OTHER_WORKSPACE.toString(), "message", "*"));
+            List<List<String>> groupings = List.of(List.of(USER.toString(), ROLE.toString(), WORKSPACE.toString()));
+            enforcer.load(policies, groupings);
+
+            SnapshotEnforcer.Rows rows = enforcer.rows();
+
+            assertThat(rows.policies()).containsExactlyInAnyOrderElementsOf(policies);
+            assertThat(rows.groupings()).containsExactlyElementsOf(groupings);
+        }
+
+        @Test
+        @DisplayName("should skip rows that are not keyed by UUIDs on load")
+        void shouldSkipNonUuidRowsOnLoad() {
+            enforcer.load(
+                List.of(List.of("legacy-role", WORKSPACE.toString(), "channel", "read"),
+                        List.of(ROLE.toString(), WORKSPACE.toString(), "message", "read")),
+                List.of(List.of(USER.toString(), ROLE.toString(), WORKSPACE.toString())));
+
+            assertThat(enforcer.enforce(USER, WORKSPACE, "message", "read")).isTrue();
+            assertThat(enforcer.domain(WORKSPACE).policyCount()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("should treat removals of unknown ids as no-ops")
+        void shouldIgnoreUnknownRemovals() {
+            enforcer.addGroupingPolicy(USER, ROLE, WORKSPACE);
+            DomainPolicy before = enforcer.domain(WORKSPACE);
+
+            enforcer.removeGroupingPolicy(UUID.randomUUID(), ROLE, WORKSPACE);
+            enforcer.removeFilteredGroupingPolicy(ROLE, UUID.randomUUID());
+
+            assertThat(enforcer.domain(WORKSPACE)).isSameAs(before);
+            assertThat(enforcer.domainCount()).isEqualTo(1);
+        }
+    }
+
+    @Nested
+    @DisplayName("Lazy Loading Tests")
+    class LazyLoadingTests {
+
+        @BeforeEach
+        void enableLazyLoading() {
+            enforcer.enableLazyLoading();
+        }
+
+        private SnapshotEnforcer.Rows rows(String action) {
+            return new SnapshotEnforcer.Rows(
+                    List.of(List.of(ROLE.toString(), WORKSPACE.toString(), "message", action)),
+                    List.of(List.of(USER.toString(), ROLE.toString(), WORKSPACE.toString())));
+        }
+
+        @Test
+        @DisplayName("should drop writes to workspaces that are not resident")
+        void shouldDropWritesToAbsentWorkspaces() {
+            enforcer.addPolicy(ROLE, WORKSPACE, "message", "read");
+            enforcer.addGroupingPolicy(USER, ROLE, WORKSPACE);
+
+            assertThat(enforcer.isResident(WORKSPACE)).isFalse();
+            assertThat(enforcer.isTracked(WORKSPACE)).isFalse();
+            assertThat(enforcer.enforce(USER, WORKSPACE, "message", "read")).isFalse();
+        }
+
+        @Test
+        @DisplayName("should replay writes made while the workspace was loading")
+        void shouldReplayQueuedWrites() {
+            long load = enforcer.beginLoad(WORKSPACE);
+            enforcer.addPolicy(ROLE, WORKSPACE, "message", "delete");
+
+            assertThat(enforcer.isTracked(WORKSPACE)).isTrue();
+            assertThat(enforcer.isResident(WORKSPACE)).isFalse();
+
+            DomainPolicy loaded = enforcer.completeLoad(WORKSPACE, load, rows("read"));
+
+            assertThat(enforcer.isResident(WORKSPACE)).isTrue();
+            assertThat(enforcer.domain(WORKSPACE)).isSameAs(loaded);
+            assertThat(enforcer.enforce(USER, WORKSPACE, "message", "read")).isTrue();
+            assertThat(enforcer.enforce(USER, WORKSPACE, "message", "delete")).isTrue();
+        }
+
+        @Test
+        @DisplayName("should apply writes to resident workspaces and forget evicted ones")
+        void shouldEvictWorkspace() {
+            enforcer.completeLoad(WORKSPACE, enforcer.beginLoad(WORKSPACE), rows("read"));
+            enforcer.addPolicy(ROLE, WORKSPACE, "channel", "read");
+            long generation = enforcer.domain(WORKSPACE).getGeneration();
+
+            assertThat(enforcer.enforce(USER, WORKSPACE, "channel", "read")).isTrue();
+
+            enforcer.evict(WORKSPACE);
+
+            assertThat(enforcer.isTracked(WORKSPACE)).isFalse();
+            assertThat(enforcer.enforce(USER, WORKSPACE, "message", "read")).isFalse();
+            assertThat(enforcer.domain(WORKSPACE).getGeneration()).isGreaterThan(generation);
+        }
+
+        @Test
+        @DisplayName("should hand out a workspace's policy only while it is resident")
+        void shouldReadResidentDomain() {
+            assertThat(enforcer.residentDomain(WORKSPACE)).isNull();
+            long load = enforcer.beginLoad(WORKSPACE);
+            assertThat(enforcer.residentDomain(WORKSPACE)).isNull();
+
+            DomainPolicy loaded = enforcer.completeLoad(WORKSPACE, load, rows("read"));
+            assertThat(enforcer.residentDomain(WORKSPACE)).isSameAs(loaded);
+
+            enforcer.evict(WORKSPACE);
+            assertThat(enforcer.residentDomain(WORKSPACE)).isNull();
+        }
+
+        @Test
+        @DisplayName("should not publish a load the workspace was evicted during")
+        void shouldDiscardLoadAcrossEviction() {
+            long load = enforcer.beginLoad(WORKSPACE);
+            enforcer.evict(WORKSPACE);
+            enforcer.addPolicy(ROLE, WORKSPACE, "message", "delete");
+
+            assertThat(enforcer.completeLoad(WORKSPACE, load, rows("read"))).isNull();
+            assertThat(enforcer.isTracked(WORKSPACE)).isFalse();
+
+            long reload = enforcer.beginLoad(WORKSPACE);
+            enforcer.evict(WORKSPACE);
+            long latest = enforcer.beginLoad(WORKSPACE);
+
+            assertThat(enforcer.completeLoad(WORKSPACE, reload, rows("read"))).isNull();
+            assertThat(enforcer.completeLoad(WORKSPACE, latest, rows("read"))).isNotNull();
+            assertThat(enforcer.isResident(WORKSPACE)).isTrue();
+        }
+    }
+
+    @Nested
+    @DisplayName("Permission Bits Tests")
+    class PermissionBitsTests {
+
+        private PermissionCatalog catalog;
+
+        @BeforeEach
+        void installCatalog() {
+            catalog = PermissionCatalog.of(List.of(
+                    TestDataFactory.createPermission("message", "read", "Read messages"),
+                    TestDataFactory.createPermission("message", "delete", "Delete messages"),
+                    TestDataFactory.createPermission("message", "*", "Full message access"),
+                    TestDataFactory.createPermission("channel", "read", "Read channels")));
+            enforcer.updateCatalog(catalog);
+        }
+
+        @Test
+        @DisplayName("should assign dense indices ordered by resource and action")
+        void shouldAssignDenseIndices() {
+            assertThat(catalog.size()).isEqualTo(4);
+            assertThat(catalog.keyAt(0)).isEqualTo("channel:read");
+            assertThat(catalog.indexOf("message", "*")).isEqualTo(1);
+            assertThat(catalog.indexOf("file", "upload")).isEqualTo(-1);
+        }
+
+        @Test
+        @DisplayName("should precompile the union of a subject's roles")
+        void shouldPrecompileUnion() {
+            enforcer.addPolicy(ROLE, WORKSPACE, "message", "read");
+            enforcer.addPolicy(OTHER_ROLE, WORKSPACE, "channel", "read");
+            enforcer.addGroupingPolicy(USER, ROLE, WORKSPACE);
+            enforcer.addGroupingPolicy(USER, OTHER_ROLE, WORKSPACE);
+
+            SubjectPolicy subject = enforcer.domain(WORKSPACE).subject(USER);
+
+            assertThat(subject.bits().cardinality()).isEqualTo(2);
+            assertThat(subject.bits().get(catalog.indexOf("channel", "read"))).isTrue();
+            assertThat(subject.permits("message", "read")).isTrue();
+            assertThat(subject.permits("message", "delete")).isFalse();
+        }
+
+        @Test
+        @DisplayName("should grant every action through the resource wildcard bit")
+        void shouldGrantThroughWildcardBit() {
+            enforcer.addPolicy(ROLE, WORKSPACE, "message", "*");
+            enforcer.addGroupingPolicy(USER, ROLE, WORKSPACE);
+
+            assertThat(enforcer.enforce(USER, WORKSPACE, "message", "delete")).isTrue();
+            assertThat(enforcer.enforce(USER, WORKSPACE, "message", "archive")).isTrue();
+            assertThat(enforcer.enforce(USER, WORKSPACE, "channel", "read")).isFalse();
+        }
+
+        @Test
+        @DisplayName("should recompile holders when role rules are replaced")
+        void shouldRecompileHoldersOnReplace() {
+            enforcer.addPolicy(ROLE, WORKSPACE, "message", "read");
+            enforcer.addGroupingPolicy(USER, ROLE, WORKSPACE);
+
+            enforcer.replacePolicies(ROLE, WORKSPACE, List.of(new PolicyRule("channel", "read")));
+
+            assertThat(enforcer.enforce(USER, WORKSPACE, "message", "read")).isFalse();
+            assertThat(enforcer.enforce(USER, WORKSPACE, "channel", "read")).isTrue();
+            assertThat(enforcer.domain(WORKSPACE).groupingCount()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("should recompute a subject's bits when one of its roles is revoked")
+        void shouldRecomputeOnRevoke() {
+            enforcer.addPolicy(ROLE, WORKSPACE, "message", "read");
+            enforcer.addPolicy(OTHER_ROLE, WORKSPACE, "message", "read");
+            enforcer.addGroupingPolicy(USER, ROLE, WORKSPACE);
+            enforcer.addGroupingPolicy(USER, OTHER_ROLE, WORKSPACE);
+
+            enforcer.removeGroupingPolicy(USER, ROLE, WORKSPACE);
+            assertThat(enforcer.enforce(USER, WORKSPACE, "message", "read")).isTrue();
+
+            enforcer.removeGroupingPolicy(USER, OTHER_ROLE, WORKSPACE);
+            assertThat(enforcer.enforce(USER, WORKSPACE, "message", "read")).isFalse();
+        }
+
+        @Test
+        @DisplayName("should keep evaluating rules outside the catalog")
+        void shouldEvaluateResidualRules() {
+            enforcer.addPolicy(ROLE, WORKSPACE, "/channels/:id", "read");
+            enforcer.addPolicy(ROLE, WORKSPACE, "file", "upload");
+            enforcer.addGroupingPolicy(USER, ROLE, WORKSPACE);
+
+            assertThat(enforcer.enforce(USER, WORKSPACE, "/channels/7", "read")).isTrue();
+            assertThat(enforcer.enforce(USER, WORKSPACE, "file", "upload")).isTrue();
+            assertThat(enforcer.domain(WORKSPACE).subject(USER).bits().isEmpty()).isTrue();
+        }
+
+        @Test
+        @DisplayName("should recompile existing policy when the catalog changes")
+        void shouldRecompileOnCatalogChange() {
+            enforcer.updateCatalog(PermissionCatalog.EMPTY);
+            enforcer.addPolicy(ROLE, WORKSPACE, "message", "read");
+            enforcer.addGroupingPolicy(USER, ROLE, WORKSPACE);
+            assertThat(enforcer.domain(WORKSPACE).subject(USER).bits().isEmpty()).isTrue();
+
+            enforcer.updateCatalog(catalog);
+
+            assertThat(enforcer.domain(WORKSPACE).subject(USER).bits().cardinality()).isEqualTo(1);
+            assertThat(enforcer.enforce(USER, WORKSPACE, "message", "read")).isTrue();
+        }
+    }
+}
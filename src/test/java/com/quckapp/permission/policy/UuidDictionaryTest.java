@@ -0,0 +1,104 @@
+package com.quckapp.permission.policy;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("UuidDictionary Tests")
+class UuidDictionaryTest {
+
+    private UuidDictionary dictionary;
+
+    @BeforeEach
+    void setUp() {
+        dictionary = new UuidDictionary();
+    }
+
+    @Nested
+    @DisplayName("Intern Tests")
+    class InternTests {
+
+        @Test
+        @DisplayName("should assign dense ids starting at one")
+        void shouldAssignDenseIds() {
+            UUID first = UUID.randomUUID();
+            UUID second = UUID.randomUUID();
+
+            assertThat(dictionary.intern(first)).isEqualTo(1);
+            assertThat(dictionary.intern(second)).isEqualTo(2);
+            assertThat(dictionary.intern(first)).isEqualTo(1);
+            assertThat(dictionary.size()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("should not intern on lookup")
+        void shouldNotInternOnFind() {
+            assertThat(dictionary.find(UUID.randomUUID())).isEqualTo(UuidDictionary.NONE);
+            assertThat(dictionary.size()).isZero();
+        }
+
+        @Test
+        @DisplayName("should keep ids stable while the table grows")
+        void shouldKeepIdsAcrossGrowth() {
+            Map<UUID, Integer> assigned = new HashMap<>();
+            for (int i = 0; i < 10_000; i++) {
+                UUID uuid = UUID.randomUUID();
+                assigned.put(uuid, dictionary.intern(uuid));
+            }
+
+            assigned.forEach((uuid, id) -> assertThat(dictionary.find(uuid)).isEqualTo(id));
+            assertThat(dictionary.find(new UUID(0, 0))).isEqualTo(UuidDictionary.NONE);
+        }
+    }
+
+    @Nested
+    @DisplayName("IntMap Tests")
+    class IntMapTests {
+
+        @Test
+        @DisplayName("should behave like a HashMap under random puts and removes")
+        void shouldMatchHashMap() {
+            IntMap<Integer> map = new IntMap<>();
+            Map<Integer, Integer> expected = new HashMap<>();
+            Random random = new Random(42);
+            for (int i = 0; i < 20_000; i++) {
+                int key = 1 + random.nextInt(500);
+                if (random.nextBoolean()) {
+                    map.put(key, i);
+                    expected.put(key, i);
+                } else {
+                    map.remove(key);
+                    expected.remove(key);
+                }
+            }
+
+            assertThat(map.size()).isEqualTo(expected.size());
+            for (int key = 1; key <= 500; key++) {
+                assertThat(map.get(key)).isEqualTo(expected.get(key));
+            }
+        }
+
+        @Test
+        @DisplayName("should leave the source untouched when a copy is modified")
+        void shouldCopyOnWrite() {
+            IntMap<String> source = new IntMap<>();
+            source.put(7, "seven");
+
+            IntMap<String> copy = source.copy();
+            copy.put(8, "eight");
+            copy.remove(7);
+
+            assertThat(source.get(7)).isEqualTo("seven");
+            assertThat(source.get(8)).isNull();
+            assertThat(copy.size()).isEqualTo(1);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.quckapp.permission.policy;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("WorkspaceTasks Tests")
+class WorkspaceTasksTest {
+
+    @Nested
+    @DisplayName("Run Tests")
+    class RunTests {
+
+        @Test
+        @DisplayName("should run workspaces concurrently on the bounded pool")
+        void shouldRunConcurrently() {
+            // Every task waits for the others, so this only finishes if two run at once
+            CountDownLatch started = new CountDownLatch(2);
+            Set<String> threads = ConcurrentHashMap.newKeySet();
+
+            WorkspaceTasks.Report<String> report = WorkspaceTasks.run("test", 2, List.of("a", "b"), Function.identity(),
+                workspace -> {
+                    threads.add(Thread.currentThread().getName());
+                    started.countDown();
+                    try {
+                        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+
+            assertThat(threads).hasSize(2);
+            assertThat(report.workspaces()).isEqualTo(2);
+            assertThat(report.slowest()).extracting(WorkspaceTasks.Timing::workspace).containsExactlyInAnyOrder("a", "b");
+        }
+
+        @Test
+        @DisplayName("should list the slowest workspaces first")
+        void shouldReportSlowestFirst() {
+            List<Integer> workspaces = IntStream.range(0, 20).boxed().toList();
+
+            WorkspaceTasks.Report<Integer> report = WorkspaceTasks.run("test", 4, workspaces, Function.identity(),
+                workspace -> {
+                    if (workspace == 7) {
+                        sleep();
+                    }
+                });
+
+            assertThat(report.slowest()).hasSize(10);
+            assertThat(report.slowest().get(0).workspace()).isEqualTo(7);
+        }
+
+        @Test
+        @DisplayName("should rethrow a failed workspace after the others finished")
+        void shouldRethrowFailure() {
+            Set<Integer> finished = ConcurrentHashMap.newKeySet();
+
+            assertThatThrownBy(() -> WorkspaceTasks.run("test", 2, List.of(1, 2, 3), Function.identity(), workspace -> {
+                if (workspace == 2) {
+                    throw new IllegalArgumentException("broken tenant");
+                }
+                finished.add(workspace);
+            })).isInstanceOf(IllegalArgumentException.class).hasMessage("broken tenant");
+            assertThat(finished).containsExactlyInAnyOrder(1, 3);
+        }
+
+        private void sleep() {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,410 @@
+package com.quckapp.permission.service;
+
+import com.quckapp.permission.TestDataFactory;
+import com.quckapp.permission.domain.entity.PolicyChange;
+import com.quckapp.permission.domain.entity.Role;
+import com.quckapp.permission.domain.entity.WorkspacePolicyVersion;
+import com.quckapp.permission.domain.projection.RolePermissionRow;
+import com.quckapp.permission.domain.projection.UserRoleGrant;
+import com.quckapp.permission.domain.repository.PermissionRepository;
+import com.quckapp.permission.domain.repository.PolicyChangeRepository;
+import com.quckapp.permission.domain.repository.RoleRepository;
+import com.quckapp.permission.domain.repository.UserRoleRepository;
+import com.quckapp.permission.domain.repository.WorkspacePolicyVersionRepository;
+import com.quckapp.permission.policy.DecisionCache;
+import com.quckapp.permission.policy.DomainTableAdapter;
+import com.quckapp.permission.policy.PolicyRule;
+import com.quckapp.permission.policy.PolicySnapshotFile;
+import com.quckapp.permission.policy.SnapshotEnforcer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CasbinPolicySyncService Tests")
+class CasbinPolicySyncServiceTest {
+
+    @Mock
+    private DomainTableAdapter adapter;
+
+    @Mock
+    private DecisionCache decisionCache;
+
+    @Mock
+    private RoleRepository roleRepository;
+
+    @Mock
+    private PermissionRepository permissionRepository;
+
+    @Mock
+    private UserRoleRepository userRoleRepository;
+
+    @Mock
+    private PolicyChangeRepository policyChangeRepository;
+
+    @Mock
+    private WorkspacePolicyVersionRepository versionRepository;
+
+    @Mock
+    private PolicySnapshotService policySnapshotService;
+
+    @Mock
+    private WorkspacePolicyLoader workspacePolicyLoader;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private SnapshotEnforcer snapshotEnforcer;
+    private PolicyGenerations policyGenerations;
+    private CasbinPolicySyncService syncService;
+
+    private UUID workspaceId;
+    private UUID roleId;
+    private Role role;
+
+    @BeforeEach
+    void setUp() {
+        snapshotEnforcer = new SnapshotEnforcer();
+        policyGenerations = new PolicyGenerations(meterRegistry);
+        syncService = new CasbinPolicySyncService(
+                adapter,
+                snapshotEnforcer,
+                decisionCache,
+                roleRepository,
+                permissionRepository,
+                userRoleRepository,
+                policyChangeRepository,
+                versionRepository,
+                policySnapshotService,
+                workspacePolicyLoader,
+                policyGenerations,
+                meterRegistry
+        );
+        Map<UUID, Long> versions = new HashMap<>();
+        lenient().doAnswer(invocation -> versions.merge(invocation.getArgument(0), 1L, Long::sum))
+                .when(versionRepository).increment(any());
+        lenient().when(versionRepository.findVersion(any()))
+                .thenAnswer(invocation -> Optional.ofNullable(versions.get(invocation.<UUID>getArgument(0))));
+
+        workspaceId = UUID.randomUUID();
+        roleId = UUID.randomUUID();
+        role = TestDataFactory.createRole(workspaceId, "Member", "Test role", false, 10);
+        role.setId(roleId);
+        role.setPermissions(new LinkedHashSet<>(List.of(
+                TestDataFactory.createPermission("message", "read", null),
+                TestDataFactory.createPermission("message", "create", null),
+                TestDataFactory.createPermission("channel", "read", null))));
+    }
+
+    @Nested
+    @DisplayName("Write Tests")
+    class WriteTests {
+
+        @Test
+        @DisplayName("should add a role's policies to the snapshot")
+        void shouldAddRolePolicies() {
+            syncService.syncRolePermissions(role);
+
+            assertThat(snapshotEnforcer.domain(workspaceId).policyCount()).isEqualTo(3);
+            verifyNoInteractions(adapter);
+        }
+
+        @Test
+        @DisplayName("should replace a role's policies, dropping rules it no longer has")
+        void shouldReplaceRolePolicies() {
+            snapshotEnforcer.addPolicies(roleId, workspaceId, List.of(new PolicyRule("admin", "access")));
+
+            syncService.replaceRolePermissions(role);
+
+            assertThat(snapshotEnforcer.rows().policies()).containsExactlyInAnyOrder(
+                    policy("message", "read"), policy("message", "create"), policy("channel", "read"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Full Sync Tests")
+    class FullSyncTests {
+
+        private UUID userId;
+
+        @BeforeEach
+        void setUp() {
+            userId = UUID.randomUUID();
+            lenient().when(roleRepository.findAllRolePermissionRows()).thenReturn(List.of(
+                    new RolePermissionRow(roleId, workspaceId, "message", "read"),
+                    new RolePermissionRow(roleId, workspaceId, "message", "create"),
+                    new RolePermissionRow(roleId, workspaceId, "channel", "read")));
+        }
+
+        @Test
+        @DisplayName("should add missing policies and groupings")
+        void shouldAddMissingRules() {
+            when(userRoleRepository.streamAllGrants()).thenReturn(Stream.of(
+                    new UserRoleGrant(userId, roleId, workspaceId),
+                    new UserRoleGrant(UUID.randomUUID(), roleId, workspaceId),
+                    new UserRoleGrant(UUID.randomUUID(), roleId, workspaceId)));
+
+            syncService.syncAllPolicies();
+
+            verify(roleRepository, never()).findByIdWithPermissions(any());
+            assertThat(meterRegistry.get("permission.policy.rebuild").tag("type", "sync").timer().count()).isEqualTo(1);
+            assertThat(snapshotEnforcer.enforce(userId, workspaceId, "channel", "read")).isTrue();
+            assertThat(snapshotEnforcer.domain(workspaceId).groupingCount()).isEqualTo(3);
+        }
+
+        @Test
+        @DisplayName("should apply every workspace's slice of the sync to the snapshot")
+        void shouldSyncEachWorkspace() {
+            List<UUID> workspaces = List.of(workspaceId, UUID.randomUUID(), UUID.randomUUID());
+            List<RolePermissionRow> rows = new ArrayList<>();
+            List<UserRoleGrant> grants = new ArrayList<>();
+            for (UUID workspace : workspaces) {
+                UUID workspaceRole = UUID.randomUUID();
+                rows.add(new RolePermissionRow(workspaceRole, workspace, "message", "read"));
+                grants.add(new UserRoleGrant(userId, workspaceRole, workspace));
+            }
+            when(roleRepository.findAllRolePermissionRows()).thenReturn(rows);
+            when(userRoleRepository.streamAllGrants()).thenReturn(grants.stream());
+
+            syncService.syncAllPolicies();
+
+            assertThat(workspaces).allMatch(workspace -> snapshotEnforcer.enforce(userId, workspace, "message", "read"));
+            assertThat(snapshotEnforcer.domainCount()).isEqualTo(3);
+        }
+
+        @Test
+        @DisplayName("should change nothing when the snapshot already matches the tables")
+        void shouldNotWriteOnNoOpResync() {
+            List<List<String>> policies = List.of(
+                    policy("message", "read"), policy("message", "create"), policy("channel", "read"));
+            List<List<String>> groupings = List.of(grouping(userId));
+            when(userRoleRepository.streamAllGrants()).thenReturn(Stream.of(new UserRoleGrant(userId, roleId, workspaceId)));
+            snapshotEnforcer.load(policies, groupings);
+            long generation = snapshotEnforcer.domain(workspaceId).getGeneration();
+
+            syncService.syncAllPolicies();
+
+            assertThat(snapshotEnforcer.domain(workspaceId).getGeneration()).isEqualTo(generation);
+        }
+
+        @Test
+        @DisplayName("should remove only the rules no longer backed by the tables")
+        void shouldRemoveStaleRules() {
+            UUID formerUser = UUID.randomUUID();
+            List<List<String>> policies = List.of(
+                    policy("message", "read"), policy("message", "create"), policy("channel", "read"),
+                    policy("admin", "access"));
+            List<List<String>> groupings = List.of(grouping(userId), grouping(formerUser));
+            when(userRoleRepository.streamAllGrants()).thenReturn(Stream.of(new UserRoleGrant(userId, roleId, workspaceId)));
+            snapshotEnforcer.load(policies, groupings);
+
+            syncService.syncAllPolicies();
+
+            assertThat(snapshotEnforcer.enforce(userId, workspaceId, "admin", "access")).isFalse();
+            assertThat(snapshotEnforcer.enforce(userId, workspaceId, "message", "read")).isTrue();
+            assertThat(snapshotEnforcer.domain(workspaceId).isMember(formerUser)).isFalse();
+        }
+
+        @Test
+        @DisplayName("should not undo grants changed after the sync started reading")
+        void shouldKeepChangesMadeDuringSync() {
+            UUID regranted = UUID.randomUUID();
+            UUID revoked = UUID.randomUUID();
+            snapshotEnforcer.load(List.of(policy("message", "read")), List.of(grouping(userId), grouping(regranted)));
+            when(userRoleRepository.streamAllGrants()).thenAnswer(invocation -> {
+                // The tables were read before these changes committed
+                syncService.applyUserRoleAssignment(regranted, roleId, workspaceId);
+                syncService.applyUserRoleAssignment(revoked, roleId, workspaceId);
+                syncService.applyUserRoleRevocation(revoked, roleId, workspaceId);
+                return Stream.of(new UserRoleGrant(userId, roleId, workspaceId), new UserRoleGrant(revoked, roleId, workspaceId));
+            });
+
+            syncService.syncAllPolicies();
+
+            assertThat(snapshotEnforcer.domain(workspaceId).isMember(regranted)).isTrue();
+            assertThat(snapshotEnforcer.domain(workspaceId).isMember(revoked)).isFalse();
+            assertThat(snapshotEnforcer.enforce(userId, workspaceId, "channel", "read")).isTrue();
+        }
+    }
+
+    @Nested
+    @DisplayName("Startup Tests")
+    class StartupTests {
+
+        @Test
+        @DisplayName("should serve a restored snapshot without reading the domain tables")
+        void shouldRestoreWithoutTableRead() {
+            UUID userId = UUID.randomUUID();
+            when(policySnapshotService.restore()).thenAnswer(invocation -> Optional.of(new PolicySnapshotFile.Image(
+                    5, System.currentTimeMillis(), 1,
+                    snapshotEnforcer.load(List.of(policy("message", "read")), List.of(grouping(userId))))));
+            when(policySnapshotService.changesSince(any())).thenReturn(List.of());
+
+            syncService.syncPoliciesOnStartup();
+
+            verifyNoInteractions(adapter, roleRepository, userRoleRepository);
+            assertThat(snapshotEnforcer.enforce(userId, workspaceId, "message", "read")).isTrue();
+            verify(policySnapshotService).markCurrent();
+        }
+    }
+
+    @Nested
+    @DisplayName("Change Log Tests")
+    class ChangeLogTests {
+
+        @Test
+        @DisplayName("should record role and grant changes")
+        void shouldRecordChanges() {
+            UUID userId = UUID.randomUUID();
+
+            syncService.replaceRolePermissions(role);
+            syncService.addUserRoleAssignment(userId, roleId, workspaceId);
+
+            verify(policyChangeRepository).save(argThat(change -> change.getKind() == PolicyChange.Kind.ROLE
+                && change.getRoleId().equals(roleId) && change.getUserId() == null));
+            verify(policyChangeRepository).save(argThat(change -> change.getKind() == PolicyChange.Kind.GRANT
+                && userId.equals(change.getUserId())));
+        }
+
+        @Test
+        @DisplayName("should return the workspace's next version and count it as applied once committed")
+        void shouldAdvanceGenerationAfterCommit() {
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                assertThat(syncService.replaceRolePermissions(role)).isEqualTo(1);
+                assertThat(syncService.addUserRoleAssignment(UUID.randomUUID(), roleId, workspaceId)).isEqualTo(2);
+                assertThat(policyGenerations.current(workspaceId)).isZero();
+
+                TransactionSynchronizationUtils.triggerAfterCommit();
+                TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+
+            assertThat(policyGenerations.current(workspaceId)).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("should apply a local change to memory only once its transaction commits")
+        void shouldApplyAfterCommit() {
+            UUID userId = UUID.randomUUID();
+            snapshotEnforcer.addPolicies(roleId, workspaceId, List.of(new PolicyRule("message", "read")));
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                syncService.addUserRoleAssignment(userId, roleId, workspaceId);
+                assertThat(snapshotEnforcer.domain(workspaceId).isMember(userId)).isFalse();
+
+                TransactionSynchronizationUtils.triggerAfterCommit();
+                TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+
+            assertThat(snapshotEnforcer.enforce(userId, workspaceId, "message", "read")).isTrue();
+        }
+
+        @Test
+        @DisplayName("should leave memory untouched when the transaction rolls back")
+        void shouldNotApplyOnRollback() {
+            UUID userId = UUID.randomUUID();
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                syncService.replaceRolePermissions(role);
+                syncService.addUserRoleAssignment(userId, roleId, workspaceId);
+
+                TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+
+            assertThat(snapshotEnforcer.domain(workspaceId).isMember(userId)).isFalse();
+            assertThat(snapshotEnforcer.domain(workspaceId).policyCount()).isZero();
+            assertThat(policyGenerations.current(workspaceId)).isZero();
+            // The workspace's apply lock was released: a replicated change still gets through
+            CompletableFuture.runAsync(() -> syncService.applyUserRoleAssignment(userId, roleId, workspaceId))
+                    .orTimeout(5, TimeUnit.SECONDS).join();
+            assertThat(snapshotEnforcer.domain(workspaceId).isMember(userId)).isTrue();
+        }
+
+        @Test
+        @DisplayName("should advance each workspace to the version read before a full sync")
+        void shouldAdvanceToVersionsReadBeforeSync() {
+            when(versionRepository.findAll()).thenReturn(List.of(new WorkspacePolicyVersion(workspaceId, 7)));
+            when(userRoleRepository.streamAllGrants()).thenReturn(Stream.empty());
+
+            syncService.syncAllPolicies();
+
+            InOrder order = inOrder(versionRepository, roleRepository);
+            order.verify(versionRepository).findAll();
+            order.verify(roleRepository).findAllRolePermissionRows();
+            assertThat(policyGenerations.current(workspaceId)).isEqualTo(7);
+        }
+
+        @Test
+        @DisplayName("should apply changes from other nodes without recording them again")
+        void shouldApplyReplicatedChangesWithoutRecording() {
+            UUID userId = UUID.randomUUID();
+
+            syncService.applyRolePolicies(roleId, workspaceId, List.of(new PolicyRule("message", "read")));
+            syncService.applyUserRoleAssignment(userId, roleId, workspaceId);
+
+            assertThat(snapshotEnforcer.enforce(userId, workspaceId, "message", "read")).isTrue();
+            verifyNoInteractions(policyChangeRepository, versionRepository);
+        }
+
+        @Test
+        @DisplayName("should bring the snapshot up to date with the tables for every changed role and grant")
+        void shouldCatchUpFromTables() {
+            UUID userId = UUID.randomUUID();
+            UUID revokedUser = UUID.randomUUID();
+            UUID deletedRole = UUID.randomUUID();
+            snapshotEnforcer.addPolicies(deletedRole, workspaceId, List.of(new PolicyRule("admin", "access")));
+            snapshotEnforcer.addGroupingPolicy(revokedUser, roleId, workspaceId);
+            snapshotEnforcer.addGroupingPolicy(revokedUser, deletedRole, workspaceId);
+            when(roleRepository.findByIdWithPermissions(roleId)).thenReturn(Optional.of(role));
+            when(roleRepository.findByIdWithPermissions(deletedRole)).thenReturn(Optional.empty());
+            when(userRoleRepository.existsByUserIdAndRoleIdAndWorkspaceId(userId, roleId, workspaceId)).thenReturn(true);
+            when(userRoleRepository.existsByUserIdAndRoleIdAndWorkspaceId(revokedUser, roleId, workspaceId)).thenReturn(false);
+
+            syncService.catchUp(List.of(
+                change(PolicyChange.Kind.ROLE, roleId, null),
+                change(PolicyChange.Kind.GRANT, roleId, userId),
+                change(PolicyChange.Kind.ROLE, deletedRole, null),
+                change(PolicyChange.Kind.GRANT, roleId, revokedUser),
+                change(PolicyChange.Kind.ROLE, roleId, null)));
+
+            verify(roleRepository, times(1)).findByIdWithPermissions(roleId);
+            assertThat(snapshotEnforcer.enforce(userId, workspaceId, "channel", "read")).isTrue();
+            assertThat(snapshotEnforcer.domain(workspaceId).isMember(revokedUser)).isFalse();
+            verifyNoInteractions(adapter);
+        }
+
+        private PolicyChange change(PolicyChange.Kind kind, UUID changedRole, UUID userId) {
+            return PolicyChange.builder().kind(kind).roleId(changedRole).workspaceId(workspaceId).userId(userId).build();
+        }
+    }
+
+    private List<String> grouping(UUID userId) {
+        return List.of(userId.toString(), roleId.toString(), workspaceId.toString());
+    }
+
+    private List<String> policy(String resource, String action) {
+        return List.of(roleId.toString(), workspaceId.toString(), resource, action);
+    }
+}
@@ -17,9 +17,13 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
 
+import java.lang.reflect.Method;
 import java.util.*;
 
 import static org.assertj.core.api.Assertions.*;
@@ -95,7 +99,7 @@ class PermissionServiceTest {
 
             verify(roleRepository).save(any(Role.class));
             verify(casbinPolicySyncService).syncRolePermissions(any(Role.class));
-            verify(eventPublisher).publishRoleCreated(any(Role.class));
+            verify(eventPublisher).publishRoleCreated(any(Role.class), anyLong());
         }
 
         @Test
@@ -141,7 +145,7 @@ class PermissionServiceTest {
                     .hasMessageContaining("Role already exists");
 
             verify(roleRepository, never()).save(any());
-            verify(eventPublisher, never()).publishRoleCreated(any());
+            verify(eventPublisher, never()).publishRoleCreated(any(), anyLong());
         }
     }
 
@@ -210,9 +214,9 @@ class PermissionServiceTest {
             assertThat(testRole.getDescription()).isEqualTo("Updated description");
             assertThat(testRole.getPriority()).isEqualTo(20);
 
-            verify(casbinPolicySyncService).removeRolePolicies(roleId, workspaceId);
-            verify(casbinPolicySyncService).syncRolePermissions(testRole);
-            verify(eventPublisher).publishRoleUpdated(testRole);
+            verify(casbinPolicySyncService).replaceRolePermissions(testRole);
+            verify(casbinPolicySyncService, never()).removeRolePolicies(any(), any());
+            verify(eventPublisher).publishRoleUpdated(eq(testRole), anyLong());
         }
 
         @Test
@@ -277,7 +281,7 @@ class PermissionServiceTest {
 
             verify(casbinPolicySyncService).removeRolePolicies(roleId, workspaceId);
             verify(roleRepository).delete(testRole);
-            verify(eventPublisher).publishRoleDeleted(roleId, workspaceId, "Member");
+            verify(eventPublisher).publishRoleDeleted(roleId, workspaceId, "Member", 0L);
         }
 
         @Test
@@ -366,7 +370,7 @@ class PermissionServiceTest {
             assertThat(result.getRoleName()).isEqualTo("Member");
 
             verify(casbinPolicySyncService).addUserRoleAssignment(userId, roleId, workspaceId);
-            verify(eventPublisher).publishUserRoleAssigned(any(UserRole.class), eq("Member"));
+            verify(eventPublisher).publishUserRoleAssigned(any(UserRole.class), eq("Member"), anyLong());
         }
 
         @Test
@@ -431,7 +435,7 @@ class PermissionServiceTest {
 
             verify(userRoleRepository).deleteByUserIdAndRoleIdAndWorkspaceId(userId, roleId, workspaceId);
             verify(casbinPolicySyncService).removeUserRoleAssignment(userId, roleId, workspaceId);
-            verify(eventPublisher).publishUserRoleRevoked(userId, roleId, workspaceId);
+            verify(eventPublisher).publishUserRoleRevoked(userId, roleId, workspaceId, 0L);
         }
     }
 
@@ -446,6 +450,7 @@ class PermissionServiceTest {
             UserRole userRole = TestDataFactory.createUserRole(userId, roleWithPerms.getId(), workspaceId);
             userRole.setRole(roleWithPerms);
 
+            when(casbinPolicySyncService.isMember(userId, workspaceId)).thenReturn(true);
             when(userRoleRepository.findByUserIdAndWorkspaceIdWithRoleAndPermissions(userId, workspaceId))
                     .thenReturn(List.of(userRole));
 
@@ -461,6 +466,7 @@ class PermissionServiceTest {
         @Test
         @DisplayName("should return empty permissions when user has no roles")
         void shouldReturnEmptyPermissionsWhenNoRoles() {
+            when(casbinPolicySyncService.isMember(userId, workspaceId)).thenReturn(true);
             when(userRoleRepository.findByUserIdAndWorkspaceIdWithRoleAndPermissions(userId, workspaceId))
                     .thenReturn(List.of());
 
@@ -485,6 +491,7 @@ class PermissionServiceTest {
             UserRole userRole2 = TestDataFactory.createUserRole(userId, role2.getId(), workspaceId);
             userRole2.setRole(role2);
 
+            when(casbinPolicySyncService.isMember(userId, workspaceId)).thenReturn(true);
             when(userRoleRepository.findByUserIdAndWorkspaceIdWithRoleAndPermissions(userId, workspaceId))
                     .thenReturn(List.of(userRole1, userRole2));
 
@@ -493,6 +500,18 @@ class PermissionServiceTest {
             assertThat(result.getRoles()).hasSize(2);
             assertThat(result.getPermissions()).contains("message:read", "channel:read");
         }
+
+        @Test
+        @DisplayName("should answer users without roles in the workspace without a query")
+        void shouldSkipQueryForNonMembers() {
+            when(casbinPolicySyncService.isMember(userId, workspaceId)).thenReturn(false);
+
+            UserPermissionsResponse result = permissionService.getUserPermissions(userId, workspaceId);
+
+            assertThat(result.getRoles()).isEmpty();
+            assertThat(result.getPermissions()).isEmpty();
+            verify(userRoleRepository, never()).findByUserIdAndWorkspaceIdWithRoleAndPermissions(any(), any());
+        }
     }
 
     @Nested
@@ -519,8 +538,8 @@ class PermissionServiceTest {
         }
 
         @Test
-        @DisplayName("should check wildcard permission as fallback")
-        void shouldCheckWildcardPermissionAsFallback() {
+        @DisplayName("should resolve a denied check in a single evaluation")
+        void shouldResolveDeniedCheckInSingleEvaluation() {
             CheckPermissionRequest request = CheckPermissionRequest.builder()
                     .userId(userId)
                     .workspaceId(workspaceId)
@@ -530,12 +549,12 @@ class PermissionServiceTest {
 
             when(casbinPolicySyncService.checkPermission(userId, workspaceId, "message", "delete"))
                     .thenReturn(false);
-            when(casbinPolicySyncService.checkPermission(userId, workspaceId, "message", "*"))
-                    .thenReturn(true);
 
             PermissionCheckResponse result = permissionService.checkPermission(request);
 
-            assertThat(result.isAllowed()).isTrue();
+            assertThat(result.isAllowed()).isFalse();
+            verify(casbinPolicySyncService, times(1)).checkPermission(any(), any(), any(), any());
+            verify(casbinPolicySyncService, never()).checkPermission(userId, workspaceId, "message", "*");
         }
 
         @Test
@@ -556,5 +575,82 @@ class PermissionServiceTest {
             assertThat(result.isAllowed()).isFalse();
             assertThat(result.getReason()).contains("denied");
         }
+
+        @Test
+        @DisplayName("should wait for the required policy generation before checking")
+        void shouldAwaitMinGeneration() {
+            CheckPermissionRequest request = CheckPermissionRequest.builder()
+                    .userId(userId)
+                    .workspaceId(workspaceId)
+                    .resource("message")
+                    .action("read")
+                    .minGeneration(42L)
+                    .build();
+
+            when(casbinPolicySyncService.checkPermission(userId, workspaceId, "message", "read"))
+                    .thenReturn(true);
+
+            permissionService.checkPermission(request);
+
+            InOrder order = inOrder(casbinPolicySyncService);
+            order.verify(casbinPolicySyncService).awaitGeneration(workspaceId, 42L);
+            order.verify(casbinPolicySyncService).checkPermission(userId, workspaceId, "message", "read");
+        }
+
+        @Test
+        @DisplayName("should check outside a transaction, so that waiting holds no database connection")
+        void shouldCheckWithoutTransaction() throws Exception {
+            AnnotationTransactionAttributeSource attributes = new AnnotationTransactionAttributeSource();
+
+            for (Method method : List.of(
+                    PermissionService.class.getMethod("checkPermission", CheckPermissionRequest.class),
+                    PermissionService.class.getMethod("checkPermissions", BatchCheckPermissionRequest.class))) {
+                assertThat(attributes.getTransactionAttribute(method, PermissionService.class).getPropagationBehavior())
+                        .as(method.getName())
+                        .isEqualTo(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Batch Check Permission Tests")
+    class BatchCheckPermissionTests {
+
+        @Test
+        @DisplayName("should map positional results from a single batch evaluation")
+        void shouldMapPositionalResults() {
+            List<CheckPermissionRequest> checks = List.of(
+                    CheckPermissionRequest.builder().userId(userId).workspaceId(workspaceId)
+                            .resource("message").action("read").build(),
+                    CheckPermissionRequest.builder().userId(userId).workspaceId(workspaceId)
+                            .resource("admin").action("access").build());
+
+            when(casbinPolicySyncService.checkPermissions(checks)).thenReturn(new boolean[]{true, false});
+
+            BatchPermissionCheckResponse result = permissionService.checkPermissions(
+                    BatchCheckPermissionRequest.builder().checks(checks).build());
+
+            assertThat(result.getResults()).extracting(PermissionCheckResponse::isAllowed)
+                    .containsExactly(true, false);
+            verify(casbinPolicySyncService, never()).checkPermission(any(), any(), any(), any());
+            verify(casbinPolicySyncService, never()).awaitGeneration(any(), anyLong());
+        }
+
+        @Test
+        @DisplayName("should wait once per workspace for the highest generation required")
+        void shouldAwaitHighestGenerationPerWorkspace() {
+            List<CheckPermissionRequest> checks = List.of(
+                    CheckPermissionRequest.builder().userId(userId).workspaceId(workspaceId)
+                            .resource("message").action("read").minGeneration(5L).build(),
+                    CheckPermissionRequest.builder().userId(userId).workspaceId(workspaceId)
+                            .resource("message").action("create").minGeneration(9L).build());
+
+            when(casbinPolicySyncService.checkPermissions(checks)).thenReturn(new boolean[]{true, true});
+
+            permissionService.checkPermissions(BatchCheckPermissionRequest.builder().checks(checks).build());
+
+            verify(casbinPolicySyncService).awaitGeneration(workspaceId, 9L);
+            verify(casbinPolicySyncService, times(1)).awaitGeneration(any(), anyLong());
+        }
     }
 }
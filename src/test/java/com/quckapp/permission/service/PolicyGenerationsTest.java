@@ -0,0 +1,102 @@
+package com.quckapp.permission.service;
+
+import com.quckapp.permission.exception.PolicyBehindException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("PolicyGenerations Tests")
+class PolicyGenerationsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PolicyGenerations policyGenerations;
+    private UUID workspaceId;
+
+    @BeforeEach
+    void setUp() {
+        policyGenerations = new PolicyGenerations(meterRegistry);
+        ReflectionTestUtils.setField(policyGenerations, "waitTimeout", Duration.ofMillis(100));
+        workspaceId = UUID.randomUUID();
+    }
+
+    @Nested
+    @DisplayName("Generation Tests")
+    class GenerationTests {
+
+        @Test
+        @DisplayName("should advance each workspace to its loaded version")
+        void shouldAdvanceToLoadedVersions() {
+            UUID other = UUID.randomUUID();
+            policyGenerations.advance(workspaceId, 20);
+            policyGenerations.advanceAll(Map.of(workspaceId, 15L, other, 3L));
+
+            assertThat(policyGenerations.current(workspaceId)).isEqualTo(20);
+            assertThat(policyGenerations.current(other)).isEqualTo(3);
+            assertThat(policyGenerations.current(UUID.randomUUID())).isZero();
+        }
+
+        @Test
+        @DisplayName("should never move a workspace back")
+        void shouldNotMoveBack() {
+            policyGenerations.advance(workspaceId, 9);
+            policyGenerations.advance(workspaceId, 4);
+
+            assertThat(policyGenerations.current(workspaceId)).isEqualTo(9);
+        }
+    }
+
+    @Nested
+    @DisplayName("Await Tests")
+    class AwaitTests {
+
+        @Test
+        @DisplayName("should return at once when the generation is already applied")
+        void shouldReturnWhenApplied() {
+            policyGenerations.advance(workspaceId, 5);
+
+            assertThatCode(() -> policyGenerations.await(workspaceId, 5)).doesNotThrowAnyException();
+            assertThat(meterRegistry.find("permission.policy.consistency.waits").counter()).isNull();
+        }
+
+        @Test
+        @DisplayName("should wait for the change to be applied by another thread")
+        void shouldWaitForChange() throws Exception {
+            ReflectionTestUtils.setField(policyGenerations, "waitTimeout", Duration.ofSeconds(5));
+            CompletableFuture<Void> check = CompletableFuture.runAsync(() -> policyGenerations.await(workspaceId, 7));
+
+            Thread.sleep(20);
+            policyGenerations.advance(workspaceId, 7);
+
+            check.get(5, TimeUnit.SECONDS);
+            assertThat(meterRegistry.get("permission.policy.consistency.waits").tag("outcome", "caught_up")
+                    .counter().count()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("should refuse the check once the wait times out")
+        void shouldTimeOut() {
+            policyGenerations.advance(workspaceId, 3);
+
+            assertThatThrownBy(() -> policyGenerations.await(workspaceId, 8))
+                    .isInstanceOf(PolicyBehindException.class)
+                    .satisfies(e -> {
+                        PolicyBehindException behind = (PolicyBehindException) e;
+                        assertThat(behind.getRequiredGeneration()).isEqualTo(8);
+                        assertThat(behind.getCurrentGeneration()).isEqualTo(3);
+                    });
+            assertThat(meterRegistry.get("permission.policy.consistency.waits").tag("outcome", "timed_out")
+                    .counter().count()).isEqualTo(1);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.quckapp.permission.service;
+
+import com.quckapp.permission.policy.DomainTableAdapter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PolicyWarmup Tests")
+class PolicyWarmupTest {
+
+    @Mock
+    private CasbinPolicySyncService syncService;
+
+    @Mock
+    private DomainTableAdapter adapter;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PolicyWarmup warmup;
+    private PolicyHealthIndicator healthIndicator;
+
+    @BeforeEach
+    void setUp() {
+        warmup = new PolicyWarmup(syncService, adapter, meterRegistry);
+        ReflectionTestUtils.setField(warmup, "retryInterval", Duration.ofMillis(1));
+        warmup.registerMetrics();
+        healthIndicator = new PolicyHealthIndicator(warmup);
+    }
+
+    @Nested
+    @DisplayName("Warm-up Tests")
+    class WarmupTests {
+
+        @Test
+        @DisplayName("should become ready once the policy is loaded")
+        void shouldBecomeReady() {
+            assertThat(warmup.attempt()).isTrue();
+
+            assertThat(warmup.isReady()).isTrue();
+            assertThat(meterRegistry.get("permission.policy.warmup.ready").gauge().value()).isEqualTo(1);
+            verify(syncService).syncPoliciesOnStartup();
+        }
+
+        @Test
+        @DisplayName("should retry a failed load until it succeeds")
+        void shouldRetryFailedLoad() {
+            doThrow(new IllegalStateException("database down"))
+                    .doNothing()
+                    .when(syncService).syncPoliciesOnStartup();
+
+            warmup.run();
+
+            assertThat(warmup.isReady()).isTrue();
+            assertThat(warmup.attempts()).isEqualTo(2);
+            assertThat(warmup.failure()).isNull();
+        }
+
+        @Test
+        @DisplayName("should expose rows and bytes read as gauges")
+        void shouldExposeProgress() {
+            when(adapter.rowsRead()).thenReturn(42L);
+            when(adapter.bytesRead()).thenReturn(2_048L);
+
+            assertThat(meterRegistry.get("permission.policy.warmup.rows").gauge().value()).isEqualTo(42);
+            assertThat(meterRegistry.get("permission.policy.warmup.bytes").gauge().value()).isEqualTo(2_048);
+            assertThat(meterRegistry.get("permission.policy.warmup.ready").gauge().value()).isZero();
+        }
+    }
+
+    @Nested
+    @DisplayName("Health Tests")
+    class HealthTests {
+
+        @Test
+        @DisplayName("should report out of service until the first load finishes")
+        void shouldBeOutOfServiceWhilePending() {
+            Health health = healthIndicator.health();
+
+            assertThat(health.getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+            assertThat(health.getDetails()).containsEntry("phase", PolicyWarmup.Phase.PENDING);
+        }
+
+        @Test
+        @DisplayName("should report down with the error after a failed load")
+        void shouldBeDownAfterFailure() {
+            doThrow(new IllegalStateException("database down")).when(syncService).syncPoliciesOnStartup();
+
+            assertThat(warmup.attempt()).isFalse();
+            Health health = healthIndicator.health();
+
+            assertThat(health.getStatus()).isEqualTo(Status.DOWN);
+            assertThat(health.getDetails()).containsEntry("error", "java.lang.IllegalStateException: database down");
+        }
+
+        @Test
+        @DisplayName("should report up once loaded")
+        void shouldBeUpWhenReady() {
+            warmup.attempt();
+
+            assertThat(healthIndicator.health().getStatus()).isEqualTo(Status.UP);
+        }
+    }
+}
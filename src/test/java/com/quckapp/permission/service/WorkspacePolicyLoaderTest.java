@@ -0,0 +1,249 @@
+package com.quckapp.permission.service;
+
+import com.quckapp.permission.domain.repository.WorkspacePolicyVersionRepository;
+import com.quckapp.permission.policy.DomainPolicy;
+import com.quckapp.permission.policy.DomainTableAdapter;
+import com.quckapp.permission.policy.SnapshotEnforcer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("WorkspacePolicyLoader Tests")
+class WorkspacePolicyLoaderTest {
+
+    private static final UUID USER = UUID.randomUUID();
+
+    @Mock
+    private DomainTableAdapter adapter;
+
+    @Mock
+    private WorkspacePolicyVersionRepository versionRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private SnapshotEnforcer snapshotEnforcer;
+    private PolicyGenerations policyGenerations;
+    private WorkspacePolicyLoader loader;
+
+    @BeforeEach
+    void setUp() {
+        snapshotEnforcer = new SnapshotEnforcer();
+        policyGenerations = new PolicyGenerations(meterRegistry);
+        loader = new WorkspacePolicyLoader(snapshotEnforcer, adapter, versionRepository,
+                policyGenerations, transactionManager, meterRegistry);
+        ReflectionTestUtils.setField(loader, "enabled", true);
+        ReflectionTestUtils.setField(loader, "maxResidentEntries", 1_000L);
+        ReflectionTestUtils.setField(loader, "pinnedWorkspaces", List.of());
+        ReflectionTestUtils.setField(loader, "loadParallelism", 2);
+        lenient().when(adapter.loadWorkspaces(anyCollection()))
+                .thenAnswer(invocation -> rows(invocation.<List<UUID>>getArgument(0).get(0)));
+    }
+
+    @Nested
+    @DisplayName("Load Tests")
+    class LoadTests {
+
+        @Test
+        @DisplayName("should load a workspace on its first check only")
+        void shouldLoadOnFirstCheck() {
+            loader.init();
+            UUID workspace = UUID.randomUUID();
+
+            loader.ensureLoaded(workspace);
+            loader.ensureLoaded(workspace);
+
+            verify(adapter, times(1)).loadWorkspaces(List.of(workspace));
+            assertThat(snapshotEnforcer.enforce(USER, workspace, "message", "read")).isTrue();
+            assertThat(snapshotEnforcer.rows().groupings()).hasSize(1);
+            assertThat(meterRegistry.get("permission.policy.workspace.loads").counter().count()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("should coalesce concurrent checks of a workspace into one load")
+        void shouldCoalesceConcurrentLoads() throws Exception {
+            loader.init();
+            UUID workspace = UUID.randomUUID();
+            CountDownLatch reading = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            doAnswer(invocation -> {
+                reading.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return rows(workspace);
+            }).when(adapter).loadWorkspaces(anyCollection());
+
+            CompletableFuture<Void> first = CompletableFuture.runAsync(() -> loader.ensureLoaded(workspace));
+            assertThat(reading.await(5, TimeUnit.SECONDS)).isTrue();
+            CompletableFuture<Void> second = CompletableFuture.runAsync(() -> loader.ensureLoaded(workspace));
+            release.countDown();
+            CompletableFuture.allOf(first, second).get(5, TimeUnit.SECONDS);
+
+            verify(adapter, times(1)).loadWorkspaces(anyCollection());
+            assertThat(snapshotEnforcer.isResident(workspace)).isTrue();
+        }
+
+        @Test
+        @DisplayName("should leave the workspace unloaded when reading it fails")
+        void shouldRetryAfterFailedLoad() {
+            loader.init();
+            UUID workspace = UUID.randomUUID();
+            doThrow(new IllegalStateException("database down"))
+                    .doAnswer(invocation -> rows(workspace))
+                    .when(adapter).loadWorkspaces(anyCollection());
+
+            assertThatThrownBy(() -> loader.ensureLoaded(workspace)).hasMessage("database down");
+            assertThat(snapshotEnforcer.isTracked(workspace)).isFalse();
+
+            loader.ensureLoaded(workspace);
+
+            assertThat(snapshotEnforcer.isResident(workspace)).isTrue();
+        }
+
+        @Test
+        @DisplayName("should keep writes made during the read and start over if evicted meanwhile")
+        void shouldReloadAfterEvictionDuringRead() {
+            loader.init();
+            UUID workspace = UUID.randomUUID();
+            UUID role = UUID.randomUUID();
+            doAnswer(invocation -> {
+                snapshotEnforcer.evict(workspace);
+                return rows(workspace);
+            }).doAnswer(invocation -> {
+                snapshotEnforcer.addPolicy(role, workspace, "channel", "read");
+                snapshotEnforcer.addGroupingPolicy(USER, role, workspace);
+                return rows(workspace);
+            }).when(adapter).loadWorkspaces(anyCollection());
+
+            loader.ensureLoaded(workspace);
+
+            verify(adapter, times(2)).loadWorkspaces(anyCollection());
+            verify(transactionManager, times(2)).getTransaction(argThat(definition ->
+                    definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+            assertThat(snapshotEnforcer.isResident(workspace)).isTrue();
+            assertThat(snapshotEnforcer.enforce(USER, workspace, "channel", "read")).isTrue();
+        }
+
+        @Test
+        @DisplayName("should check against the loaded policy even if the load evicts it at once")
+        void shouldReturnLoadedPolicyDespiteEviction() {
+            // Below the workspace's two entries, so putting it in the resident set evicts it
+            ReflectionTestUtils.setField(loader, "maxResidentEntries", 1L);
+            loader.init();
+            UUID workspace = UUID.randomUUID();
+
+            DomainPolicy policy = loader.ensureLoaded(workspace);
+
+            assertThat(snapshotEnforcer.isResident(workspace)).isFalse();
+            assertThat(policy.enforce(USER, "message", "read")).isTrue();
+        }
+
+        @Test
+        @DisplayName("should do nothing when lazy loading is disabled")
+        void shouldNotLoadWhenDisabled() {
+            ReflectionTestUtils.setField(loader, "enabled", false);
+            loader.init();
+
+            loader.ensureLoaded(UUID.randomUUID());
+
+            verifyNoInteractions(adapter);
+            assertThat(snapshotEnforcer.isResident(UUID.randomUUID())).isTrue();
+        }
+    }
+
+    @Nested
+    @DisplayName("Eviction Tests")
+    class EvictionTests {
+
+        @Test
+        @DisplayName("should evict workspaces once their entries exceed the budget")
+        void shouldEvictOverBudget() {
+            // Each workspace holds one policy and one grouping
+            ReflectionTestUtils.setField(loader, "maxResidentEntries", 4L);
+            loader.init();
+            List<UUID> workspaces = Stream.generate(UUID::randomUUID).limit(3).toList();
+
+            workspaces.forEach(loader::ensureLoaded);
+
+            List<UUID> resident = workspaces.stream().filter(snapshotEnforcer::isResident).toList();
+            assertThat(resident).hasSize(2);
+            assertThat(snapshotEnforcer.rows().groupings()).extracting(rule -> rule.get(2))
+                    .containsExactlyInAnyOrderElementsOf(resident.stream().map(UUID::toString).toList());
+            assertThat(meterRegistry.get("permission.policy.workspace.evictions").counter().count()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("should keep pinned workspaces resident regardless of the budget")
+        void shouldNeverEvictPinned() {
+            UUID pinned = UUID.randomUUID();
+            ReflectionTestUtils.setField(loader, "maxResidentEntries", 2L);
+            ReflectionTestUtils.setField(loader, "pinnedWorkspaces", List.of(pinned));
+            loader.init();
+
+            loader.loadPinned();
+            Stream.generate(UUID::randomUUID).limit(3).forEach(loader::ensureLoaded);
+
+            assertThat(snapshotEnforcer.isResident(pinned)).isTrue();
+            assertThat(snapshotEnforcer.domain(pinned).isMember(USER)).isTrue();
+        }
+
+        @Test
+        @DisplayName("should reload the resident workspaces from the tables")
+        void shouldReloadResident() {
+            loader.init();
+            UUID workspace = UUID.randomUUID();
+            loader.ensureLoaded(workspace);
+
+            assertThat(loader.reloadResident().workspaces()).isEqualTo(1);
+            verify(adapter, times(2)).loadWorkspaces(List.of(workspace));
+        }
+
+        @Test
+        @DisplayName("should drop rows deleted from the tables on reload")
+        void shouldReplaceRowsOnReload() {
+            loader.init();
+            UUID workspace = UUID.randomUUID();
+            loader.ensureLoaded(workspace);
+            doReturn(new SnapshotEnforcer.Rows(
+                    List.of(List.of(roleOf(workspace).toString(), workspace.toString(), "message", "read")), List.of()))
+                    .when(adapter).loadWorkspaces(anyCollection());
+
+            loader.reloadResident();
+
+            assertThat(snapshotEnforcer.rows().groupings()).isEmpty();
+            assertThat(snapshotEnforcer.rows().policies()).hasSize(1);
+            assertThat(snapshotEnforcer.domain(workspace).isMember(USER)).isFalse();
+        }
+    }
+
+    private static SnapshotEnforcer.Rows rows(UUID workspace) {
+        String role = roleOf(workspace).toString();
+        return new SnapshotEnforcer.Rows(
+                List.of(List.of(role, workspace.toString(), "message", "read")),
+                List.of(List.of(USER.toString(), role, workspace.toString())));
+    }
+
+    private static UUID roleOf(UUID workspace) {
+        return new UUID(workspace.getLeastSignificantBits(), workspace.getMostSignificantBits());
+    }
+}